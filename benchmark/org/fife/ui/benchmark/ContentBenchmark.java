@@ -0,0 +1,193 @@
+/*
+ * 10/18/2026
+ *
+ * ContentBenchmark.java - Compares PieceTableContent with GapContent.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.benchmark;
+
+import java.util.Random;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.GapContent;
+import javax.swing.text.Segment;
+
+import org.fife.ui.rtextarea.PieceTableContent;
+
+
+/**
+ * A simple benchmark comparing {@link PieceTableContent} with Swing's
+ * <code>GapContent</code> for random edits, appends and a replace-all.
+ * Usage:
+ *
+ * <pre>
+ * java -Xmx2g org.fife.ui.benchmark.ContentBenchmark [sizeInMB]
+ * </pre>
+ *
+ * The document size defaults to 100 MB (of chars).  Each scenario is run
+ * once to warm up and once to be timed.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class ContentBenchmark {
+
+	private static final int RANDOM_EDITS = 20000;
+	private static final String LINE =
+		"2026-10-18 12:00:00,000 INFO  [main] foo.Bar - some log message\n";
+
+
+	private interface Factory {
+		AbstractDocument.Content create();
+	}
+
+
+	private static String createText(int size) {
+		StringBuilder sb = new StringBuilder(size);
+		while (sb.length()+LINE.length()<=size) {
+			sb.append(LINE);
+		}
+		return sb.toString();
+	}
+
+
+	public static void main(String[] args) throws BadLocationException {
+
+		int mb = args.length>0 ? Integer.parseInt(args[0]) : 100;
+		int size = mb * 1024 * 1024;
+		String text = createText(size);
+
+		Factory gap = new Factory() {
+			@Override
+			public AbstractDocument.Content create() {
+				return new GapContent();
+			}
+		};
+		Factory pieces = new Factory() {
+			@Override
+			public AbstractDocument.Content create() {
+				return new PieceTableContent();
+			}
+		};
+
+		System.out.println("Document size: " + text.length() + " chars");
+		for (int i=0; i<2; i++) {
+			boolean print = i==1;
+			run("random edits", "GapContent", gap, text, 0, print);
+			run("random edits", "PieceTableContent", pieces, text, 0, print);
+			run("append", "GapContent", gap, text, 1, print);
+			run("append", "PieceTableContent", pieces, text, 1, print);
+			run("replace all", "GapContent", gap, text, 2, print);
+			run("replace all", "PieceTableContent", pieces, text, 2, print);
+		}
+
+	}
+
+
+	private static void run(String scenario, String name, Factory factory,
+			String text, int which, boolean print)
+			throws BadLocationException {
+
+		AbstractDocument.Content content = factory.create();
+		System.gc();
+		long start = System.nanoTime();
+
+		switch (which) {
+			case 0:
+				content.insertString(0, text);
+				start = System.nanoTime();
+				randomEdits(content);
+				break;
+			case 1:
+				append(content, text.length());
+				break;
+			default:
+				content.insertString(0, text);
+				start = System.nanoTime();
+				replaceAll(content, "INFO", "DEBUG");
+				break;
+		}
+
+		long millis = (System.nanoTime()-start) / 1000000;
+		if (print) {
+			String extra = "";
+			if (content instanceof PieceTableContent) {
+				extra = " (" + ((PieceTableContent)content).getPieceCount() +
+						" pieces)";
+			}
+			System.out.println(scenario + ", " + name + ": " + millis +
+								" ms" + extra);
+		}
+
+	}
+
+
+	private static void append(AbstractDocument.Content content, int size)
+			throws BadLocationException {
+		while (content.length()+LINE.length()<=size) {
+			content.insertString(content.length()-1, LINE);
+		}
+	}
+
+
+	private static void randomEdits(AbstractDocument.Content content)
+			throws BadLocationException {
+		Random random = new Random(0);
+		for (int i=0; i<RANDOM_EDITS; i++) {
+			int offs = random.nextInt(content.length()-1);
+			if (random.nextBoolean()) {
+				content.insertString(offs, "x");
+			}
+			else {
+				content.remove(offs, 1);
+			}
+		}
+	}
+
+
+	/**
+	 * Replaces all occurrences of a string, front to back, the way a
+	 * "replace all" in an editor does.
+	 */
+	private static void replaceAll(AbstractDocument.Content content,
+			String find, String replace) throws BadLocationException {
+		Segment s = new Segment();
+		s.setPartialReturn(true);
+		int offs = 0;
+		while (offs<content.length()-find.length()) {
+			content.getChars(offs, content.length()-offs, s);
+			int end = s.offset + s.count - find.length();
+			int found = -1;
+			for (int i=s.offset; i<=end; i++) {
+				if (s.array[i]==find.charAt(0) && regionMatches(s, i, find)) {
+					found = offs + i - s.offset;
+					break;
+				}
+			}
+			if (found==-1) {
+				// Not in this segment; back up so a match straddling the
+				// end of it is still found.
+				offs += Math.max(1, s.count-find.length()+1);
+				continue;
+			}
+			content.remove(found, find.length());
+			content.insertString(found, replace);
+			offs = found + replace.length();
+		}
+	}
+
+
+	private static boolean regionMatches(Segment s, int i, String str) {
+		for (int j=1; j<str.length(); j++) {
+			if (s.array[i+j]!=str.charAt(j)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+}
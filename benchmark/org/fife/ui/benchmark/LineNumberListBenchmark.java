@@ -0,0 +1,186 @@
+/*
+ * 10/18/2026
+ *
+ * LineNumberListBenchmark.java - Measures how fast line numbers are painted.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.benchmark;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
+import org.fife.ui.rsyntaxtextarea.folding.Fold;
+import org.fife.ui.rsyntaxtextarea.folding.FoldManager;
+import org.fife.ui.rtextarea.LineNumberList;
+
+
+/**
+ * A simple benchmark measuring how long a {@link LineNumberList} takes to
+ * paint, the way it does while the user scrolls through a large file.  The
+ * gutter is painted a screen at a time into an image, top to bottom, and the
+ * time and bytes allocated per 1,000 lines painted are printed.  Usage:
+ *
+ * <pre>
+ * java -Djava.awt.headless=true org.fife.ui.benchmark.LineNumberListBenchmark [lines]
+ * </pre>
+ *
+ * The document has 200,000 lines by default.  It is painted once with code
+ * folding disabled and once with every other method collapsed.  Each
+ * scenario is warmed up and then timed for a second, and its fastest run is
+ * reported.  Allocation is only measured on JVMs that support it.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class LineNumberListBenchmark {
+
+	/**
+	 * The minimum time each scenario is run for, in nanoseconds, before and
+	 * after warming up.
+	 */
+	private static final long RUN_NANOS = 1000000000L;
+
+	/**
+	 * The number of lines painted at a time.
+	 */
+	private static final int SCREEN_LINES = 60;
+
+
+	private static String createText(int lineCount) {
+		StringBuilder sb = new StringBuilder(lineCount * 24);
+		sb.append("public class Foo {\n");
+		int line = 1;
+		while (line+6<lineCount) {
+			sb.append("\tpublic void bar").append(line).append("() {\n");
+			sb.append("\t\tint x = 0;\n");
+			sb.append("\t\tx++;\n");
+			sb.append("\t\tSystem.out.println(x);\n");
+			sb.append("\t}\n");
+			line += 5;
+		}
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far,
+	 * or <code>-1</code> if this JVM can't tell.
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean =
+					(com.sun.management.ThreadMXBean)bean;
+			if (sunBean.isThreadAllocatedMemorySupported() &&
+					sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getThreadAllocatedBytes(
+						Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+
+	public static void main(String[] args) {
+
+		int lineCount = args.length>0 ? Integer.parseInt(args[0]) : 200000;
+
+		RSyntaxTextArea textArea = new RSyntaxTextArea();
+		textArea.setSyntaxEditingStyle(SyntaxConstants.SYNTAX_STYLE_JAVA);
+		textArea.setText(createText(lineCount));
+		LineNumberList list = new LineNumberList(textArea);
+		// paint() only paints within the list's bounds, and the text area
+		// isn't laid out, so size the list to fit every line
+		list.setSize(list.getPreferredSize().width,
+				textArea.getLineCount()*textArea.getLineHeight());
+		System.out.println("Document size: " + textArea.getLineCount() +
+				" lines");
+
+		run("No folding", textArea, list);
+
+		textArea.setCodeFoldingEnabled(true);
+		FoldManager fm = textArea.getFoldManager();
+		fm.reparse();
+		Fold fold = fm.getFoldCount()>0 ? fm.getFold(0) : null;
+		for (int i=0; fold!=null && i<fold.getChildCount(); i+=2) {
+			fold.getChild(i).setCollapsed(true);
+		}
+		run("Every other method collapsed", textArea, list);
+
+	}
+
+
+	/**
+	 * Paints the entire gutter, a screen at a time.
+	 *
+	 * @return The number of lines painted.
+	 */
+	private static int paintAll(RSyntaxTextArea textArea, LineNumberList list,
+			BufferedImage image) {
+		int lineHeight = textArea.getLineHeight();
+		int screenHeight = SCREEN_LINES * lineHeight;
+		int visibleLineCount = textArea.getLineCount() -
+				textArea.getFoldManager().getHiddenLineCount();
+		int height = visibleLineCount * lineHeight;
+		for (int y=0; y<height; y+=screenHeight) {
+			Graphics2D g = image.createGraphics();
+			try {
+				g.translate(0, -y);
+				g.setClip(0, y, image.getWidth(), screenHeight);
+				list.paint(g);
+			} finally {
+				g.dispose();
+			}
+		}
+		return visibleLineCount;
+	}
+
+
+	private static void run(String scenario, RSyntaxTextArea textArea,
+			LineNumberList list) {
+
+		BufferedImage image = new BufferedImage(list.getWidth(),
+				SCREEN_LINES*textArea.getLineHeight(),
+				BufferedImage.TYPE_INT_RGB);
+
+		// Warm up
+		long start = System.nanoTime();
+		while (System.nanoTime()-start<RUN_NANOS) {
+			paintAll(textArea, list, image);
+		}
+
+		long best = Long.MAX_VALUE;
+		long allocated = -1;
+		int lines = 0;
+		start = System.nanoTime();
+		while (System.nanoTime()-start<RUN_NANOS) {
+			long bytes = getAllocatedBytes();
+			long time = System.nanoTime();
+			lines = paintAll(textArea, list, image);
+			time = System.nanoTime() - time;
+			if (bytes>-1) {
+				allocated = getAllocatedBytes() - bytes;
+			}
+			best = Math.min(best, time);
+		}
+
+		double perThousand = 1000.0 / lines;
+		String extra = "";
+		if (allocated>-1) {
+			extra = ", " + Math.round(allocated*perThousand) + " bytes";
+		}
+		System.out.println(scenario + ": " + lines + " lines, " +
+				String.format("%.1f", best*perThousand/1000) +
+				" us per 1,000 lines" + extra);
+
+	}
+
+
+}
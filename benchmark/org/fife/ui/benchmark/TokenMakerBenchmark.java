@@ -0,0 +1,401 @@
+/*
+ * 10/18/2026
+ *
+ * TokenMakerBenchmark.java - Measures the throughput of all token makers.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.benchmark;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import javax.swing.text.Segment;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
+import org.fife.ui.rsyntaxtextarea.Token;
+import org.fife.ui.rsyntaxtextarea.TokenMaker;
+import org.fife.ui.rsyntaxtextarea.TokenMakerFactory;
+
+
+/**
+ * A simple benchmark measuring how fast each token maker registered with
+ * the default {@link TokenMakerFactory} tokenizes a synthetic corpus.  Each
+ * style's corpus is generated from a sample of its language family (C-like,
+ * markup, scripting, SQL, etc.), and is tokenized line by line the way
+ * {@link RSyntaxDocument} does it: each line starts in the state the
+ * previous line ended in.<p>
+ *
+ * For each style, lines per second, tokens per second and bytes allocated
+ * per line are printed.  Usage:
+ *
+ * <pre>
+ * java org.fife.ui.benchmark.TokenMakerBenchmark [options] [style...]
+ *
+ *    -save file        Saves the results as a baseline.
+ *    -baseline file    Compares the results against a saved baseline, and
+ *                      exits with status 1 if any style regressed.
+ *    -threshold pct    How much slower a style may be than its baseline
+ *                      before it's a regression.  Defaults to 10.
+ *    -lines n          The number of lines per corpus.  Defaults to 20000.
+ * </pre>
+ *
+ * If no styles are given, all of them are run.  Each style is warmed up and
+ * then timed for a second, and its fastest run is reported.  Since the JIT
+ * compiles shared code differently depending on what ran before, results are
+ * only comparable with a baseline run on the same list of styles.
+ * Allocation is only measured on JVMs that support it.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class TokenMakerBenchmark {
+
+	/**
+	 * The minimum time each style is run for, in nanoseconds, before and
+	 * while being timed.
+	 */
+	private static final long WARMUP_NANOS = 1000000000L;
+	private static final long TIMED_NANOS = 1000000000L;
+
+	private static final String[] C_SAMPLE = {
+		"/*",
+		" * A multi-line comment describing the class below.",
+		" */",
+		"public class Sample extends Base implements Runnable { // Trailing",
+		"	private static final int COUNT = 42;",
+		"	private String name = \"a \\\"quoted\\\" string\";",
+		"	private char ch = 'x';",
+		"",
+		"	public void run() {",
+		"		for (int i=0; i<COUNT; i++) {",
+		"			if (name!=null && i%2==0) {",
+		"				System.out.println(name + i*3.14f + 0x1F);",
+		"			}",
+		"		}",
+		"		return;",
+		"	}",
+		"}",
+	};
+
+	private static final String[] MARKUP_SAMPLE = {
+		"<!DOCTYPE html>",
+		"<html lang=\"en\">",
+		"<!-- A comment",
+		"     spanning lines -->",
+		"<head><title>Sample &amp; page</title>",
+		"<script type=\"text/javascript\">",
+		"	var x = \"str\"; function f(a) { return a + 1; }",
+		"</script>",
+		"<style>body { color: #333; margin: 0 auto; }</style>",
+		"</head>",
+		"<body class=\"main\" id='b1'>",
+		"	<p>Some <b>bold</b> text, and <a href=\"x.html\">a link</a>.</p>",
+		"	<?php $x = array(1, 'two'); echo \"v=$x\"; // comment ?>",
+		"	<%= request.getParameter(\"name\") %>",
+		"</body>",
+		"</html>",
+	};
+
+	private static final String[] SCRIPT_SAMPLE = {
+		"# A comment line",
+		"import os, sys",
+		"",
+		"def main(argv):",
+		"    name = \"double \\\"quoted\\\"\"",
+		"    path = '/usr/local/bin'",
+		"    for i in range(0, 10):",
+		"        if i % 2 == 0 and name:",
+		"            print(name, i * 3.14)  # trailing",
+		"    echo $HOME ${PATH} > /dev/null 2>&1",
+		"    return 0",
+	};
+
+	private static final String[] SQL_SAMPLE = {
+		"-- A comment line",
+		"SELECT u.id, u.name, 'text' AS label, COUNT(*) AS total",
+		"  FROM users u INNER JOIN orders o ON o.user_id = u.id",
+		" WHERE u.id > 10 AND u.name LIKE 'a%' /* inline */",
+		" GROUP BY u.id, u.name HAVING COUNT(*) > 2",
+		" ORDER BY total DESC;",
+		"IF x = 1 THEN y := 2.5; END IF;",
+	};
+
+	private static final String[] LISP_SAMPLE = {
+		"; A comment line",
+		"(defn sample [x y]",
+		"  \"A docstring.\"",
+		"  (let [z (+ x y 42)]",
+		"    (if (> z 10) (println \"big\" z) :small)))",
+	};
+
+	private static final String[] ASM_SAMPLE = {
+		"; A comment line",
+		"start:  mov eax, 0x10      ; trailing",
+		"        add eax, ebx",
+		"        lda #$20",
+		"        jmp start",
+		"msg     db \"hello\", 0",
+	};
+
+	private static final String[] DATA_SAMPLE = {
+		"; A comment",
+		"[section]",
+		"key.name = some value with spaces",
+		"path=C:\\\\dir\\\\file.txt",
+		"{ \"id\": 42, \"name\": \"str\", \"list\": [1, 2.5, true, null] }",
+		"1,\"two, quoted\",3.0,four",
+		"127.0.0.1    localhost",
+	};
+
+	private static final String[] TEXT_SAMPLE = {
+		"# A heading",
+		"Some plain text, with *emphasis* and **strong** words.",
+		"\\section{Intro} A \\textbf{LaTeX} line with $x^2$ math.",
+		"[b]BBCode[/b] and [url=http://example.com]a link[/url].",
+		"    indented code block",
+		"- a list item with `code`",
+	};
+
+
+	/**
+	 * Returns the sample a style's corpus is generated from.
+	 */
+	private static String[] getSample(String style) {
+		switch (style) {
+			case SyntaxConstants.SYNTAX_STYLE_DTD:
+			case SyntaxConstants.SYNTAX_STYLE_HANDLEBARS:
+			case SyntaxConstants.SYNTAX_STYLE_HTML:
+			case SyntaxConstants.SYNTAX_STYLE_JSP:
+			case SyntaxConstants.SYNTAX_STYLE_MXML:
+			case SyntaxConstants.SYNTAX_STYLE_PHP:
+			case SyntaxConstants.SYNTAX_STYLE_XML:
+				return MARKUP_SAMPLE;
+			case SyntaxConstants.SYNTAX_STYLE_DOCKERFILE:
+			case SyntaxConstants.SYNTAX_STYLE_HTACCESS:
+			case SyntaxConstants.SYNTAX_STYLE_MAKEFILE:
+			case SyntaxConstants.SYNTAX_STYLE_NSIS:
+			case SyntaxConstants.SYNTAX_STYLE_PERL:
+			case SyntaxConstants.SYNTAX_STYLE_PYTHON:
+			case SyntaxConstants.SYNTAX_STYLE_RUBY:
+			case SyntaxConstants.SYNTAX_STYLE_TCL:
+			case SyntaxConstants.SYNTAX_STYLE_UNIX_SHELL:
+			case SyntaxConstants.SYNTAX_STYLE_WINDOWS_BATCH:
+			case SyntaxConstants.SYNTAX_STYLE_YAML:
+				return SCRIPT_SAMPLE;
+			case SyntaxConstants.SYNTAX_STYLE_DELPHI:
+			case SyntaxConstants.SYNTAX_STYLE_FORTRAN:
+			case SyntaxConstants.SYNTAX_STYLE_LUA:
+			case SyntaxConstants.SYNTAX_STYLE_SAS:
+			case SyntaxConstants.SYNTAX_STYLE_SQL:
+			case SyntaxConstants.SYNTAX_STYLE_VISUAL_BASIC:
+				return SQL_SAMPLE;
+			case SyntaxConstants.SYNTAX_STYLE_CLOJURE:
+			case SyntaxConstants.SYNTAX_STYLE_LISP:
+				return LISP_SAMPLE;
+			case SyntaxConstants.SYNTAX_STYLE_ASSEMBLER_6502:
+			case SyntaxConstants.SYNTAX_STYLE_ASSEMBLER_X86:
+				return ASM_SAMPLE;
+			case SyntaxConstants.SYNTAX_STYLE_CSV:
+			case SyntaxConstants.SYNTAX_STYLE_HOSTS:
+			case SyntaxConstants.SYNTAX_STYLE_INI:
+			case SyntaxConstants.SYNTAX_STYLE_JSON:
+			case SyntaxConstants.SYNTAX_STYLE_JSON_WITH_COMMENTS:
+			case SyntaxConstants.SYNTAX_STYLE_PROPERTIES_FILE:
+				return DATA_SAMPLE;
+			case SyntaxConstants.SYNTAX_STYLE_BBCODE:
+			case SyntaxConstants.SYNTAX_STYLE_LATEX:
+			case SyntaxConstants.SYNTAX_STYLE_MARKDOWN:
+			case SyntaxConstants.SYNTAX_STYLE_NONE:
+				return TEXT_SAMPLE;
+			default:
+				return C_SAMPLE;
+		}
+	}
+
+
+	/**
+	 * Generates a corpus by repeating a sample, with numbers in identifiers
+	 * so that lines aren't all identical.
+	 */
+	private static Segment[] createCorpus(String[] sample, int lineCount) {
+		Segment[] corpus = new Segment[lineCount];
+		for (int i=0; i<lineCount; i++) {
+			String line = sample[i % sample.length];
+			int copy = i / sample.length;
+			if (copy>0) {
+				line = line.replace("name", "name" + copy);
+			}
+			char[] array = line.toCharArray();
+			corpus[i] = new Segment(array, 0, array.length);
+		}
+		return corpus;
+	}
+
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far,
+	 * or <code>-1</code> if this JVM can't tell.
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean =
+					(com.sun.management.ThreadMXBean)bean;
+			if (sunBean.isThreadAllocatedMemorySupported() &&
+					sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getThreadAllocatedBytes(
+						Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+
+	public static void main(String[] args) throws IOException {
+
+		String saveFile = null;
+		String baselineFile = null;
+		double threshold = 10;
+		int lineCount = 20000;
+		List<String> styles = new ArrayList<>();
+
+		for (int i=0; i<args.length; i++) {
+			switch (args[i]) {
+				case "-save":
+					saveFile = args[++i];
+					break;
+				case "-baseline":
+					baselineFile = args[++i];
+					break;
+				case "-threshold":
+					threshold = Double.parseDouble(args[++i]);
+					break;
+				case "-lines":
+					lineCount = Integer.parseInt(args[++i]);
+					break;
+				default:
+					styles.add(args[i]);
+					break;
+			}
+		}
+
+		TokenMakerFactory tmf = TokenMakerFactory.getDefaultInstance();
+		if (styles.isEmpty()) {
+			styles.addAll(new TreeSet<>(tmf.keySet()));
+		}
+
+		Properties baseline = null;
+		if (baselineFile!=null) {
+			baseline = new Properties();
+			try (InputStream in = new FileInputStream(baselineFile)) {
+				baseline.load(in);
+			}
+		}
+
+		System.out.println(String.format("%-28s %12s %12s %10s %8s",
+				"Style", "lines/sec", "tokens/sec", "bytes/line", "change"));
+
+		Properties results = new Properties();
+		List<String> regressions = new ArrayList<>();
+		for (String style : styles) {
+
+			TokenMaker tm = tmf.getTokenMaker(style);
+			Segment[] corpus = createCorpus(getSample(style), lineCount);
+
+			long end = System.nanoTime() + WARMUP_NANOS;
+			while (System.nanoTime()<end) {
+				tokenize(tm, corpus);
+			}
+
+			// Take the fastest run, to filter out GC and other noise
+			long best = Long.MAX_VALUE;
+			long tokenCount = 0;
+			long allocated = 0;
+			end = System.nanoTime() + TIMED_NANOS;
+			do {
+				long bytes = getAllocatedBytes();
+				long start = System.nanoTime();
+				tokenCount = tokenize(tm, corpus);
+				best = Math.min(best, System.nanoTime() - start);
+				allocated = bytes==-1 ? -1 : getAllocatedBytes() - bytes;
+			} while (System.nanoTime()<end);
+
+			double seconds = best / 1e9;
+			double linesPerSec = lineCount / seconds;
+			results.setProperty(style, String.valueOf((long)linesPerSec));
+
+			String change = "";
+			String old = baseline!=null ? baseline.getProperty(style) : null;
+			if (old!=null) {
+				double ratio = linesPerSec / Double.parseDouble(old);
+				change = String.format("%+.1f%%", (ratio-1)*100);
+				if (ratio<1-threshold/100) {
+					regressions.add(style + " (" + change + ")");
+					change += " !";
+				}
+			}
+
+			System.out.println(String.format("%-28s %12d %12d %10s %8s",
+					style, (long)linesPerSec, (long)(tokenCount/seconds),
+					allocated==-1 ? "?" : String.valueOf(allocated/lineCount),
+					change));
+
+		}
+
+		if (saveFile!=null) {
+			try (OutputStream out = new FileOutputStream(saveFile)) {
+				results.store(out, "TokenMakerBenchmark lines/sec, " +
+						lineCount + " lines");
+			}
+		}
+
+		if (!regressions.isEmpty()) {
+			System.out.println();
+			System.out.println("More than " + threshold +
+					"% slower than the baseline:");
+			for (String regression : regressions) {
+				System.out.println("   " + regression);
+			}
+			System.exit(1);
+		}
+
+	}
+
+
+	/**
+	 * Tokenizes a corpus, each line starting in the state the previous one
+	 * ended in.
+	 *
+	 * @return The number of tokens created.
+	 */
+	private static long tokenize(TokenMaker tm, Segment[] corpus) {
+		long tokenCount = 0;
+		int lastTokenType = Token.NULL;
+		int offset = 0;
+		for (Segment line : corpus) {
+			Token t = tm.getTokenList(line, lastTokenType, offset);
+			Token last = t;
+			for (; t!=null; t=t.getNextToken()) {
+				tokenCount++;
+				last = t;
+			}
+			lastTokenType = last!=null ? last.getType() : Token.NULL;
+			offset += line.count + 1;
+		}
+		return tokenCount;
+	}
+
+
+}
@@ -0,0 +1,240 @@
+/*
+ * 10/18/2026
+ *
+ * TokenMapBenchmark.java - Compares TokenMap with its old, chained version.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.benchmark;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxUtilities;
+import org.fife.ui.rsyntaxtextarea.Token;
+import org.fife.ui.rsyntaxtextarea.TokenMap;
+
+
+/**
+ * A simple benchmark comparing {@link TokenMap} lookups with those of the
+ * bucket-chained table it used before.  Two keyword sets are generated,
+ * sized like the largest built-in ones: a case-sensitive one like the UNIX
+ * shell's, and one ignoring case like the Windows batch file one.  For each,
+ * a mix of the keywords (in random case) and non-keyword identifiers is
+ * looked up, and the results of the two tables are checked against each
+ * other.  Usage:
+ *
+ * <pre>
+ * java org.fife.ui.benchmark.TokenMapBenchmark [lookupsInMillions]
+ * </pre>
+ *
+ * Each keyword set is run a few times to warm up, then timed.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class TokenMapBenchmark {
+
+	private static final String[] IDENTIFIERS = {
+		"i", "x", "foo", "bar", "count", "index", "PATH", "HOME", "tmp",
+		"file", "line", "result", "value", "name", "args", "dir", "src",
+		"target", "options", "verbose", "logfile", "OUTPUT_DIR", "exitCode",
+	};
+
+
+	private static char[][] createInput(String[] words, boolean ignoreCase,
+			int count) {
+		Random random = new Random(0);
+		char[][] input = new char[count][];
+		for (int i=0; i<count; i++) {
+			String word;
+			if (random.nextBoolean()) {
+				word = words[random.nextInt(words.length)];
+				if (ignoreCase && random.nextBoolean()) {
+					word = word.toUpperCase();
+				}
+			}
+			else {
+				word = IDENTIFIERS[random.nextInt(IDENTIFIERS.length)];
+			}
+			input[i] = word.toCharArray();
+		}
+		return input;
+	}
+
+
+	/**
+	 * Returns random, lower case words of 2 to 10 letters, none of which
+	 * are in {@link #IDENTIFIERS}.
+	 */
+	private static String[] createWords(int count, long seed) {
+		Random random = new Random(seed);
+		Set<String> words = new LinkedHashSet<>();
+		Set<String> identifiers = new LinkedHashSet<>();
+		for (String identifier : IDENTIFIERS) {
+			identifiers.add(identifier.toLowerCase());
+		}
+		while (words.size()<count) {
+			char[] word = new char[2 + random.nextInt(9)];
+			for (int i=0; i<word.length; i++) {
+				word[i] = (char)('a' + random.nextInt(26));
+			}
+			String str = new String(word);
+			if (!identifiers.contains(str)) {
+				words.add(str);
+			}
+		}
+		return words.toArray(new String[0]);
+	}
+
+
+	public static void main(String[] args) {
+
+		int millions = args.length>0 ? Integer.parseInt(args[0]) : 20;
+
+		run("270 words", createWords(270, 1), false, millions);
+		run("124 words, ignoring case", createWords(124, 2), true,
+				millions);
+
+	}
+
+
+	private static void run(String name, String[] words, boolean ignoreCase,
+			int millions) {
+
+		TokenMap map = new TokenMap(ignoreCase);
+		ChainedTokenMap old = new ChainedTokenMap(ignoreCase);
+		for (int i=0; i<words.length; i++) {
+			int type = i%2==0 ? Token.RESERVED_WORD : Token.FUNCTION;
+			map.put(words[i], type);
+			old.put(words[i].toCharArray(), type);
+		}
+
+		char[][] input = createInput(words, ignoreCase, 4096);
+		for (char[] word : input) {
+			int expected = old.get(word, 0, word.length-1);
+			if (map.get(word, 0, word.length-1)!=expected) {
+				throw new IllegalStateException("Mismatch for " +
+						new String(word));
+			}
+		}
+
+		int lookups = millions * 1000000;
+		long oldTime = 0, newTime = 0;
+		int sum = 0;
+		for (int i=0; i<5; i++) {
+			long start = System.nanoTime();
+			sum += runOld(old, input, lookups);
+			oldTime = System.nanoTime() - start;
+			start = System.nanoTime();
+			sum += runNew(map, input, lookups);
+			newTime = System.nanoTime() - start;
+		}
+
+		System.out.println(name + ", " + millions + "M lookups (" +
+				sum + ")");
+		System.out.println("   chained: " + oldTime/1000000 + " ms");
+		System.out.println("   TokenMap: " + newTime/1000000 + " ms");
+
+	}
+
+
+	private static int runNew(TokenMap map, char[][] input, int lookups) {
+		int found = 0;
+		int mask = input.length - 1;
+		for (int i=0; i<lookups; i++) {
+			char[] word = input[i & mask];
+			if (map.get(word, 0, word.length-1)>-1) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+
+	private static int runOld(ChainedTokenMap map, char[][] input,
+			int lookups) {
+		int found = 0;
+		int mask = input.length - 1;
+		for (int i=0; i<lookups; i++) {
+			char[] word = input[i & mask];
+			if (map.get(word, 0, word.length-1)>-1) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+
+	/**
+	 * The old <code>TokenMap</code>: 52 buckets, chosen by the first and
+	 * last characters of a word, each holding a linked list of words.
+	 */
+	private static final class ChainedTokenMap {
+
+		private static final int SIZE = 52;
+
+		private Node[] buckets;
+		private boolean ignoreCase;
+
+		private ChainedTokenMap(boolean ignoreCase) {
+			buckets = new Node[SIZE];
+			this.ignoreCase = ignoreCase;
+		}
+
+		private int get(char[] array, int start, int end) {
+			int length = end - start + 1;
+			for (Node node=buckets[getHashCode(array, start, length)];
+					node!=null; node=node.next) {
+				if (node.text.length==length && matches(node.text,
+						array, start)) {
+					return node.tokenType;
+				}
+			}
+			return -1;
+		}
+
+		private static int getHashCode(char[] text, int offset, int length) {
+			return (RSyntaxUtilities.toLowerCase(text[offset]) +
+				RSyntaxUtilities.toLowerCase(text[offset+length-1])) % SIZE;
+		}
+
+		private boolean matches(char[] word, char[] array, int start) {
+			for (int i=0; i<word.length; i++) {
+				char ch = array[start+i];
+				if (ignoreCase) {
+					ch = RSyntaxUtilities.toLowerCase(ch);
+				}
+				if (ch!=word[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void put(char[] text, int tokenType) {
+			int bucket = getHashCode(text, 0, text.length);
+			buckets[bucket] = new Node(text, tokenType, buckets[bucket]);
+		}
+
+	}
+
+
+	private static final class Node {
+
+		private char[] text;
+		private int tokenType;
+		private Node next;
+
+		private Node(char[] text, int tokenType, Node next) {
+			this.text = text;
+			this.tokenType = tokenType;
+			this.next = next;
+		}
+
+	}
+
+
+}
@@ -0,0 +1,279 @@
+/*
+ * 10/18/2026
+ *
+ * FileChannelReader.java - A reader that decodes a file through a channel.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+
+/**
+ * A <code>Reader</code> that decodes a file through a
+ * <code>FileChannel</code>.  The file is read into a single, reused direct
+ * buffer and decoded from it with a <code>CharsetDecoder</code>, so no byte
+ * array the size of the file is ever allocated on the heap.  Combined with
+ * <code>RDocument.insert(int, Reader, int)</code>, this allows a file to be
+ * loaded into a document without first building a <code>String</code> of its
+ * entire contents.<p>
+ *
+ * The file is not memory-mapped, so once this reader is closed, nothing
+ * keeps it open; on Windows, a mapped file can't be replaced or deleted
+ * until the mapping is garbage collected.<p>
+ *
+ * As with <code>InputStreamReader</code>, malformed input and unmappable
+ * characters are replaced rather than reported.  A UTF-8 byte order mark at
+ * the start of the file is skipped.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public class FileChannelReader extends Reader {
+
+	/**
+	 * The default size of the buffer bytes are read into.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private CharsetDecoder decoder;
+	private long fileSize;
+
+	/**
+	 * Bytes read from the file but not yet decoded.  This is always ready
+	 * to be read from (i.e., flipped).
+	 */
+	private ByteBuffer bytes;
+
+	/**
+	 * The number of bytes read from the file into <code>bytes</code>,
+	 * including a skipped BOM.
+	 */
+	private long filePos;
+
+	private boolean endOfInput;
+	private boolean eof;
+
+	/**
+	 * The second half of a surrogate pair decoded by a one-char read, or
+	 * <code>-1</code> if there is none.
+	 */
+	private int leftover = -1;
+
+	/**
+	 * Whether the file starts with a UTF-8 BOM, which is skipped.
+	 */
+	private final boolean bomSkipped;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file The file to read.
+	 * @param cs The charset of the file.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	public FileChannelReader(File file, Charset cs) throws IOException {
+		this(file, cs, DEFAULT_BUFFER_SIZE);
+	}
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file The file to read.
+	 * @param cs The charset of the file.
+	 * @param bufferSize The number of bytes to read at a time.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	public FileChannelReader(File file, Charset cs, int bufferSize)
+			throws IOException {
+		raf = new RandomAccessFile(file, "r");
+		channel = raf.getChannel();
+		fileSize = channel.size();
+		decoder = cs.newDecoder().
+				onMalformedInput(CodingErrorAction.REPLACE).
+				onUnmappableCharacter(CodingErrorAction.REPLACE);
+		bytes = ByteBuffer.allocateDirect(Math.max(bufferSize, 16));
+		bytes.flip(); // Nothing read yet
+		bomSkipped = "UTF-8".equals(cs.name()) && hasUtf8Bom();
+		filePos = bomSkipped ? 3 : 0;
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		raf.close(); // Also closes the channel.
+	}
+
+
+	/**
+	 * Reads more of the file into the byte buffer, after any bytes not yet
+	 * decoded.
+	 */
+	private void fill() throws IOException {
+		bytes.compact();
+		try {
+			while (bytes.hasRemaining() && !endOfInput) {
+				int n = channel.read(bytes, filePos);
+				if (n==-1) {
+					endOfInput = true;
+				}
+				else {
+					filePos += n;
+					endOfInput = filePos>=fileSize;
+				}
+			}
+		} finally {
+			bytes.flip();
+		}
+	}
+
+
+	/**
+	 * Returns the number of bytes of the file consumed so far.  This may be
+	 * slightly ahead of the characters returned, as the decoder buffers a
+	 * few bytes of a character split across reads.
+	 *
+	 * @return The number of bytes read.
+	 * @see #getFileSize()
+	 */
+	public long getBytesRead() {
+		return filePos - bytes.remaining();
+	}
+
+
+	/**
+	 * Returns the size of the file being read, in bytes.
+	 *
+	 * @return The size of the file.
+	 */
+	public long getFileSize() {
+		return fileSize;
+	}
+
+
+	/**
+	 * Returns whether the file starts with a UTF-8 byte order mark.  The
+	 * BOM is skipped and never returned as a character, so callers that
+	 * want to write it back when saving must remember it themselves.
+	 *
+	 * @return Whether a UTF-8 BOM was skipped.
+	 */
+	public boolean isBomSkipped() {
+		return bomSkipped;
+	}
+
+
+	private boolean hasUtf8Bom() throws IOException {
+		if (fileSize<3) {
+			return false;
+		}
+		ByteBuffer head = ByteBuffer.allocate(3);
+		while (head.hasRemaining()) {
+			if (channel.read(head, head.position())==-1) {
+				return false;
+			}
+		}
+		return head.get(0)==(byte)0xEF && head.get(1)==(byte)0xBB &&
+				head.get(2)==(byte)0xBF;
+	}
+
+
+	/**
+	 * Decodes characters into an array.
+	 *
+	 * @param cbuf The array.
+	 * @param off The offset into the array.
+	 * @param len The number of characters wanted.  If this is
+	 *        <code>1</code> and the next character is a surrogate pair,
+	 *        <code>0</code> is returned.
+	 * @return The number of characters decoded, or <code>-1</code> if the
+	 *         end of the file was already reached.
+	 */
+	private int decode(char[] cbuf, int off, int len) throws IOException {
+
+		if (eof) {
+			return -1;
+		}
+
+		CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+		while (out.hasRemaining()) {
+
+			CoderResult result = decoder.decode(bytes, out, endOfInput);
+			if (result.isOverflow()) {
+				break;
+			}
+
+			// Underflow: either we're done, or the bytes left are a partial
+			// character that continues in the ones not yet read.
+			if (endOfInput) {
+				decoder.flush(out);
+				eof = true;
+				break;
+			}
+			fill();
+
+		}
+
+		int count = out.position() - off;
+		return count==0 && eof ? -1 : count;
+
+	}
+
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+
+		if (len==0) {
+			return 0;
+		}
+
+		int count = 0;
+		if (leftover!=-1) {
+			cbuf[off++] = (char)leftover;
+			leftover = -1;
+			if (--len==0) {
+				return 1;
+			}
+			count = 1;
+		}
+
+		// A surrogate pair can't be decoded into a single char.
+		if (len==1) {
+			char[] pair = new char[2];
+			int n = decode(pair, 0, 2);
+			if (n==-1) {
+				return count>0 ? count : -1;
+			}
+			cbuf[off] = pair[0];
+			if (n==2) {
+				leftover = pair[1];
+			}
+			return count + 1;
+		}
+
+		int n = decode(cbuf, off, len);
+		if (n==-1) {
+			return count>0 ? count : -1;
+		}
+		return count + n;
+
+	}
+
+
+}
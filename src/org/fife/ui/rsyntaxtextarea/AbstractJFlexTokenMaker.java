@@ -29,6 +29,94 @@ public abstract class AbstractJFlexTokenMaker extends TokenMakerBase {
 	protected int start;		// Just for states.
 	protected int offsetShift;	// As parser always starts at 0, but our line doesn't.
 
+	/**
+	 * Whether {@link #getLastTokenTypeOnLine(Segment, int)} is running, so
+	 * tokens aren't linked into a list.
+	 */
+	private boolean scanningState;
+
+	/**
+	 * While scanning for state, every token "added" is loaded into this one,
+	 * which becomes both the first and current token.
+	 */
+	private TokenImpl scanToken;
+
+
+	@Override
+	public void addNullToken() {
+		if (scanningState) {
+			scanToken.set(null, 0, -1, -1, TokenTypes.NULL);
+			firstToken = currentToken = scanToken;
+			return;
+		}
+		super.addNullToken();
+	}
+
+
+	@Override
+	public void addToken(char[] array, int start, int end, int tokenType,
+						int startOffset, boolean hyperlink) {
+		if (scanningState) {
+			scanToken.set(array, start, end, startOffset, tokenType);
+			firstToken = currentToken = scanToken;
+			return;
+		}
+		super.addToken(array, start, end, tokenType, startOffset, hyperlink);
+	}
+
+
+	/**
+	 * Returns the last token type on a line.  If this token maker supports
+	 * it, the line is lexed without building a token list; each token
+	 * "added" overwrites a single scratch token, and the last one's type is
+	 * returned.  This is what {@link RSyntaxDocument} calls for every line
+	 * when a document is loaded or its syntax style changes.
+	 *
+	 * @param text The line.
+	 * @param initialTokenType The token type to start with.
+	 * @return The last token type on the line.
+	 * @see #isStateOnlyScanSupported()
+	 */
+	@Override
+	public int getLastTokenTypeOnLine(Segment text, int initialTokenType) {
+
+		if (!isStateOnlyScanSupported()) {
+			return super.getLastTokenTypeOnLine(text, initialTokenType);
+		}
+
+		if (scanToken==null) {
+			scanToken = new TokenImpl();
+		}
+		scanningState = true;
+		try {
+			getTokenList(text, initialTokenType, 0);
+			return currentToken!=null ? currentToken.getType() :
+					TokenTypes.NULL;
+		} finally {
+			scanningState = false;
+			firstToken = currentToken = previousToken = null;
+		}
+
+	}
+
+
+	/**
+	 * Returns whether {@link #getLastTokenTypeOnLine(Segment, int)} can
+	 * lex a line without building its token list.  While it does,
+	 * <code>firstToken</code> and <code>currentToken</code> are both the
+	 * last token added (or <code>null</code> if none has been), so token
+	 * makers that only check whether <code>firstToken</code> is
+	 * <code>null</code> are fine.  Token makers that walk the tokens already
+	 * added to decide what to do next must override this method to return
+	 * <code>false</code>.
+	 *
+	 * @return Whether state-only scanning is supported.  The default
+	 *         implementation returns <code>true</code>.
+	 */
+	protected boolean isStateOnlyScanSupported() {
+		return true;
+	}
+
 
 	/**
 	 * Declared here so we can define overloads that refer to this method.
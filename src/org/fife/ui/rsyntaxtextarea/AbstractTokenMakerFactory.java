@@ -8,14 +8,32 @@
  */
 package org.fife.ui.rsyntaxtextarea;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 /**
  * Base class for {@link TokenMakerFactory} implementations.  A mapping from
- * language keys to the names of {@link TokenMaker} classes is stored.
+ * language keys to the names of {@link TokenMaker} classes is stored.<p>
+ *
+ * Loading a <code>TokenMaker</code> class can be expensive; JFlex-generated
+ * token makers unpack large tables in their static initializers, and this
+ * would otherwise happen on the EDT the first time a file of that type is
+ * opened.  Applications can call {@link #warmUp(Collection)} at startup to
+ * load the token makers they expect to need on a background thread.  If a
+ * pool size is set with {@link #setTokenMakerPoolSize(int)}, token makers
+ * are also created ahead of time, and each one handed out is replaced in the
+ * background.  Token makers are never shared; each call to
+ * {@link #getTokenMaker(String)} still returns a new instance.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -30,6 +48,16 @@ public abstract class AbstractTokenMakerFactory extends TokenMakerFactory {
 	 */
 	private Map<String, Object> tokenMakerMap;
 
+	/**
+	 * The number of token makers to keep ready for each key.
+	 */
+	private volatile int tokenMakerPoolSize;
+
+	/**
+	 * Runs warm-up and pool refill jobs, created on demand.
+	 */
+	private static ExecutorService warmUpExecutor;
+
 
 	/**
 	 * Constructor.
@@ -51,6 +79,13 @@ public abstract class AbstractTokenMakerFactory extends TokenMakerFactory {
 	protected TokenMaker getTokenMakerImpl(String key) {
 		TokenMakerCreator tmc = (TokenMakerCreator)tokenMakerMap.get(key);
 		if (tmc!=null) {
+			TokenMaker tm = tmc.poll();
+			if (tm!=null) {
+				if (tokenMakerPoolSize>0) {
+					fillPools(Collections.singletonList(tmc));
+				}
+				return tm;
+			}
 			try {
 				return tmc.create();
 			} catch (RuntimeException re) { // FindBugs
@@ -63,6 +98,57 @@ public abstract class AbstractTokenMakerFactory extends TokenMakerFactory {
 	}
 
 
+	/**
+	 * Creates token makers for some keys on a background thread, until
+	 * their pools are full.  If pooling is disabled, one token maker is
+	 * created and thrown away, so at least its classes are loaded.
+	 */
+	private void fillPools(final List<TokenMakerCreator> creators) {
+		getWarmUpExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				for (TokenMakerCreator tmc : creators) {
+					try {
+						tmc.fill(Math.max(1, tokenMakerPoolSize),
+								tokenMakerPoolSize>0);
+					} catch (Exception e) {
+						// Let the EDT report it when the key is used
+					}
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * Returns the number of token makers kept ready for each key.
+	 *
+	 * @return The pool size.  <code>0</code> means pooling is disabled.
+	 * @see #setTokenMakerPoolSize(int)
+	 */
+	public int getTokenMakerPoolSize() {
+		return tokenMakerPoolSize;
+	}
+
+
+	/**
+	 * Returns the executor warm-up and pool refill jobs run on.
+	 *
+	 * @return The executor.
+	 */
+	private static synchronized ExecutorService getWarmUpExecutor() {
+		if (warmUpExecutor==null) {
+			warmUpExecutor = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "TokenMakerFactory warm-up");
+				t.setDaemon(true);
+				t.setPriority(Thread.MIN_PRIORITY);
+				return t;
+			});
+		}
+		return warmUpExecutor;
+	}
+
+
 	/**
 	 * Populates the mapping from keys to instances of
 	 * <code>TokenMakerCreator</code>s.  Subclasses should override this method
@@ -109,20 +195,96 @@ public abstract class AbstractTokenMakerFactory extends TokenMakerFactory {
 
 
 	/**
-	 * Wrapper that handles the creation of TokenMaker instances.
+	 * Sets the number of token makers to keep ready for each key.  Pools
+	 * are filled by {@link #warmUp(Collection)}, and topped up whenever a
+	 * pooled token maker is handed out.
+	 *
+	 * @param size The pool size.  <code>0</code> disables pooling.
+	 * @throws IllegalArgumentException If <code>size</code> is negative.
+	 * @see #getTokenMakerPoolSize()
+	 */
+	public void setTokenMakerPoolSize(int size) {
+		if (size<0) {
+			throw new IllegalArgumentException("size cannot be negative");
+		}
+		tokenMakerPoolSize = size;
+	}
+
+
+	/**
+	 * Loads the token makers for some keys on a background thread, and
+	 * fills their pools if pooling is enabled.  This returns immediately.
+	 * Keys with no mapping are ignored.
+	 *
+	 * @param keys The keys, most important first.
+	 * @see #setTokenMakerPoolSize(int)
+	 */
+	public void warmUp(Collection<String> keys) {
+		List<TokenMakerCreator> creators = new ArrayList<>();
+		for (String key : keys) {
+			TokenMakerCreator tmc = (TokenMakerCreator)tokenMakerMap.get(key);
+			if (tmc!=null && !creators.contains(tmc)) {
+				creators.add(tmc);
+			}
+		}
+		if (!creators.isEmpty()) {
+			fillPools(creators);
+		}
+	}
+
+
+	/**
+	 * Wrapper that handles the creation of TokenMaker instances.  It keeps
+	 * the loaded class, and any token makers created ahead of time.
 	 */
 	private static class TokenMakerCreator {
 
 		private String className;
 		private ClassLoader cl;
+		private volatile Class<?> clazz;
+		private Deque<TokenMaker> pool;
 
 		public TokenMakerCreator(String className, ClassLoader cl) {
 			this.className = className;
 			this.cl = cl!=null ? cl : getClass().getClassLoader();
+			pool = new ArrayDeque<>();
 		}
 
 		public TokenMaker create() throws Exception {
-			return (TokenMaker)Class.forName(className, true, cl).newInstance();
+			Class<?> c = clazz;
+			if (c==null) {
+				c = Class.forName(className, true, cl);
+				clazz = c;
+			}
+			return (TokenMaker)c.getDeclaredConstructor().newInstance();
+		}
+
+		/**
+		 * Creates token makers until the pool holds <code>size</code> of
+		 * them.
+		 *
+		 * @param size The pool size.
+		 * @param keep Whether to keep the token makers created.  If this is
+		 *        <code>false</code>, one is created and discarded.
+		 */
+		void fill(int size, boolean keep) throws Exception {
+			while (poolSize()<size) {
+				TokenMaker tm = create();
+				if (!keep) {
+					return;
+				}
+				synchronized (this) {
+					pool.addLast(tm);
+				}
+			}
+		}
+
+		synchronized TokenMaker poll() {
+			return pool.pollFirst();
+		}
+
+		private synchronized int poolSize() {
+			return pool.size();
 		}
 
 	}
@@ -51,8 +51,9 @@ class DefaultTokenFactory implements TokenFactory {
 	 * Constructor.
 	 *
 	 * @param size The initial number of tokens in this factory.
-	 * @param increment How many tokens to increment by when the stack gets
-	 *        empty.
+	 * @param increment The minimum number of tokens to increment by when the
+	 *        stack gets empty.  The stack at least doubles in size each
+	 *        time, so long lines don't cause repeated copying.
 	 */
 	DefaultTokenFactory(int size, int increment) {
 
@@ -74,11 +75,12 @@ class DefaultTokenFactory implements TokenFactory {
 	 * request is made and no more tokens are available.
 	 */
 	private void augmentTokenList() {
-		TokenImpl[] temp = new TokenImpl[size + increment];
+		int growth = Math.max(increment, size);
+		TokenImpl[] temp = new TokenImpl[size + growth];
 		System.arraycopy(tokenList,0, temp,0, size);
-		size += increment;
+		size += growth;
 		tokenList = temp;
-		for (int i=0; i<increment; i++) {
+		for (int i=0; i<growth; i++) {
 			tokenList[size-i-1] = new TokenImpl();
 		}
 		//System.err.println("... size up to: " + size);
@@ -0,0 +1,305 @@
+/*
+ * 10/18/2026
+ *
+ * LargeFileDocument.java - A read-only document for viewing very large files.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.io.Reader;
+
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+
+import org.fife.ui.rtextarea.PagedFileContent;
+
+
+/**
+ * A read-only document whose text is left in a file on disk, for viewing
+ * files too large to load into memory.  Text is paged in on demand by a
+ * {@link PagedFileContent}, and the element for each line is created only
+ * when it is asked for, so opening a file costs only a single indexing pass
+ * over it and a few bytes per line.<p>
+ *
+ * Since tokenizing would require visiting every line, this document is
+ * always plain text; attempts to change its syntax style are ignored.  Any
+ * attempt to modify it results in a <code>BadLocationException</code>.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see PagedFileContent
+ */
+public class LargeFileDocument extends RSyntaxDocument {
+
+	private transient PagedFileContent content;
+
+	/**
+	 * The root element.  This is <code>null</code> only while the super
+	 * class constructor is running.
+	 */
+	private transient LineMap lineMap;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param content The content to view.  Its index must already have been
+	 *        built.
+	 * @see PagedFileContent#buildIndex()
+	 */
+	public LargeFileDocument(PagedFileContent content) {
+		super(content, null, SYNTAX_STYLE_NONE);
+		this.content = content;
+		lineMap = new LineMap();
+	}
+
+
+	@Override
+	public char charAt(int offset) throws BadLocationException {
+		return content.charAt(offset);
+	}
+
+
+	@Override
+	public Element getDefaultRootElement() {
+		return lineMap!=null ? lineMap : super.getDefaultRootElement();
+	}
+
+
+	/**
+	 * Returns the content being viewed.
+	 *
+	 * @return The content.
+	 */
+	public PagedFileContent getFileContent() {
+		return content;
+	}
+
+
+	/**
+	 * Returns the length of the longest line in this document, in chars.
+	 *
+	 * @return The length of the longest line.
+	 */
+	public int getLongestLineLength() {
+		return content.getLongestLineLength();
+	}
+
+
+	/**
+	 * Always returns <code>Token.NULL</code>, since this document is always
+	 * plain text.
+	 *
+	 * @param line The line to inspect.
+	 * @return <code>Token.NULL</code>.
+	 */
+	@Override
+	public int getLastTokenTypeOnLine(int line) {
+		return Token.NULL;
+	}
+
+
+	/**
+	 * Always throws an exception, as this document is read-only.
+	 */
+	@Override
+	public int insert(int offs, Reader in, int bufSize)
+			throws BadLocationException {
+		throw new BadLocationException("Document is read-only", offs);
+	}
+
+
+	/**
+	 * Always throws an exception, as this document is read-only.
+	 */
+	@Override
+	public void insertString(int offs, String str, AttributeSet a)
+			throws BadLocationException {
+		throw new BadLocationException("Document is read-only", offs);
+	}
+
+
+	/**
+	 * Always throws an exception, as this document is read-only.
+	 */
+	@Override
+	public void remove(int offs, int len) throws BadLocationException {
+		throw new BadLocationException("Document is read-only", offs);
+	}
+
+
+	/**
+	 * Always throws an exception, as this document is read-only.
+	 */
+	@Override
+	public void replace(int offset, int length, String text,
+			AttributeSet attrs) throws BadLocationException {
+		throw new BadLocationException("Document is read-only", offset);
+	}
+
+
+	/**
+	 * Ignored unless called during construction, since this document is
+	 * always plain text.
+	 *
+	 * @param styleKey The new style to use.
+	 */
+	@Override
+	public void setSyntaxStyle(String styleKey) {
+		if (lineMap==null) {
+			super.setSyntaxStyle(SYNTAX_STYLE_NONE);
+		}
+	}
+
+
+	/**
+	 * Ignored, since this document is always plain text.
+	 *
+	 * @param tokenMaker The new token maker to use.
+	 */
+	@Override
+	public void setSyntaxStyle(TokenMaker tokenMaker) {
+	}
+
+
+	/**
+	 * The root element.  Line elements are created as they are requested.
+	 */
+	private class LineMap implements Element {
+
+		@Override
+		public AttributeSet getAttributes() {
+			return null;
+		}
+
+		@Override
+		public Document getDocument() {
+			return LargeFileDocument.this;
+		}
+
+		@Override
+		public Element getElement(int index) {
+			if (index<0 || index>=content.getLineCount()) {
+				return null;
+			}
+			return new Line(index);
+		}
+
+		@Override
+		public int getElementCount() {
+			return content.getLineCount();
+		}
+
+		@Override
+		public int getElementIndex(int offset) {
+			return content.getLineOfOffset(Math.max(0, offset));
+		}
+
+		@Override
+		public int getEndOffset() {
+			return content.length();
+		}
+
+		@Override
+		public String getName() {
+			return ParagraphElementName;
+		}
+
+		@Override
+		public Element getParentElement() {
+			return null;
+		}
+
+		@Override
+		public int getStartOffset() {
+			return 0;
+		}
+
+		@Override
+		public boolean isLeaf() {
+			return false;
+		}
+
+	}
+
+
+	/**
+	 * A single line of the document.
+	 */
+	private class Line implements Element {
+
+		private int line;
+
+		Line(int line) {
+			this.line = line;
+		}
+
+		@Override
+		public AttributeSet getAttributes() {
+			return null;
+		}
+
+		@Override
+		public Document getDocument() {
+			return LargeFileDocument.this;
+		}
+
+		@Override
+		public Element getElement(int index) {
+			return null;
+		}
+
+		@Override
+		public int getElementCount() {
+			return 0;
+		}
+
+		@Override
+		public int getElementIndex(int offset) {
+			return -1;
+		}
+
+		@Override
+		public int getEndOffset() {
+			return content.getLineEndOffset(line);
+		}
+
+		@Override
+		public String getName() {
+			return ContentElementName;
+		}
+
+		@Override
+		public Element getParentElement() {
+			return lineMap;
+		}
+
+		@Override
+		public int getStartOffset() {
+			return content.getLineStartOffset(line);
+		}
+
+		@Override
+		public boolean isLeaf() {
+			return true;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Line && ((Line)o).line==line &&
+					((Line)o).getDocument()==getDocument();
+		}
+
+		@Override
+		public int hashCode() {
+			return line;
+		}
+
+	}
+
+
+}
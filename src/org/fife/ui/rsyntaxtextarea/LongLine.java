@@ -0,0 +1,402 @@
+/*
+ * 10/18/2026
+ *
+ * LongLine.java - A very long line, tokenized a segment at a time.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.Segment;
+
+
+/**
+ * A line in an {@link RSyntaxDocument} too long to tokenize and measure all
+ * at once, such as the only line of a minified JavaScript or JSON file.
+ * The line is split into "virtual" segments of about
+ * {@link #SEGMENT_LENGTH} characters, each tokenized as if it were a line
+ * of its own, starting in the state the previous segment ended in.  Views
+ * only ask for the segments they paint.<p>
+ *
+ * Segments are cut just after a delimiter such as a comma, brace or space
+ * where possible, but a token that spans a cut is still split in two, and
+ * constructs that can't span lines (such as strings in most languages) may
+ * be highlighted incorrectly around it.  This is the price of not
+ * tokenizing the whole line.<p>
+ *
+ * Everything is computed lazily, from the start of the line: segment
+ * boundaries, the state each segment starts in, and the x-offset of each
+ * segment from the start of the line (its "checkpoint"), which views measure
+ * and store here so they can skip straight to the segments they paint.
+ * When the line is edited, only what comes after the edit is discarded.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class LongLine {
+
+	private RSyntaxDocument doc;
+	private TokenMaker tokenMaker;
+	private Element elem;
+
+	/**
+	 * The start of each known segment, relative to the start of the line.
+	 * <code>starts[segmentCount]</code> is where the next segment starts.
+	 */
+	private int[] starts;
+	private int segmentCount;
+
+	/**
+	 * Whether the last segment is known.
+	 */
+	private boolean complete;
+
+	/**
+	 * The token type each segment starts in.
+	 */
+	private int[] states;
+	private int stateCount;
+
+	/**
+	 * The x-offset of each segment from the start of the line, and what the
+	 * view that measured them used as a key for its font and tab settings.
+	 */
+	private float[] checkpoints;
+	private int checkpointCount;
+	private Object checkpointKey;
+
+	/**
+	 * The most recently used segments' tokens.
+	 */
+	private Map<Integer, TokenArray> tokens;
+
+	private Segment s;
+
+	/**
+	 * The approximate number of characters in a segment.
+	 */
+	static final int SEGMENT_LENGTH = 1024;
+
+	/**
+	 * How far back from {@link #SEGMENT_LENGTH} to look for a delimiter to
+	 * cut a segment after.
+	 */
+	private static final int MAX_CUT_SEARCH = 128;
+
+	/**
+	 * The number of segments whose tokens are cached.
+	 */
+	private static final int MAX_CACHED_SEGMENTS = 16;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param doc The document.
+	 * @param tokenMaker The document's token maker.
+	 * @param elem The line.
+	 * @param initialTokenType The last token type on the previous line.
+	 */
+	LongLine(RSyntaxDocument doc, TokenMaker tokenMaker, Element elem,
+			int initialTokenType) {
+		this.doc = doc;
+		this.tokenMaker = tokenMaker;
+		this.elem = elem;
+		starts = new int[16];
+		states = new int[16];
+		states[0] = initialTokenType;
+		stateCount = 1;
+		checkpoints = new float[16];
+		tokens = new LinkedHashMap<>(MAX_CACHED_SEGMENTS, 0.75f, true);
+		s = new Segment();
+	}
+
+
+	/**
+	 * Adds the x-offset of the next segment.
+	 *
+	 * @param x The x-offset of the segment after the last checkpoint, from
+	 *        the start of the line.
+	 * @see #getCheckpointCount(Object)
+	 */
+	void addCheckpoint(float x) {
+		if (checkpointCount==checkpoints.length) {
+			checkpoints = grow(checkpoints);
+		}
+		checkpoints[checkpointCount++] = x;
+	}
+
+
+	/**
+	 * Discards everything computed for the part of the line at or after an
+	 * offset, because the text there has changed.
+	 *
+	 * @param offs The offset in the document of the first changed
+	 *        character.
+	 */
+	void discardFrom(int offs) {
+
+		// A segment's cut depends on the text up to SEGMENT_LENGTH past
+		// its start, not just the text up to its end.
+		int rel = offs - elem.getStartOffset();
+		int count = 0;
+		while (count<segmentCount && starts[count]+SEGMENT_LENGTH<=rel) {
+			count++;
+		}
+
+		segmentCount = count;
+		complete = false;
+		stateCount = Math.min(stateCount, count+1);
+		checkpointCount = Math.min(checkpointCount, count+1);
+		for (Iterator<Integer> i=tokens.keySet().iterator(); i.hasNext(); ) {
+			if (i.next()>=count) {
+				i.remove();
+			}
+		}
+
+	}
+
+
+	/**
+	 * Computes segment boundaries until a segment is known.
+	 *
+	 * @param segment The segment.
+	 * @return Whether the segment exists.
+	 */
+	private boolean ensureSegment(int segment) {
+		int length = getLength();
+		while (segmentCount<=segment && !complete) {
+			int start = starts[segmentCount];
+			int end = start + SEGMENT_LENGTH;
+			if (end>=length - SEGMENT_LENGTH/4) {
+				// Don't leave a tiny segment at the end of the line
+				end = length;
+				complete = true;
+			}
+			else {
+				end = findCut(start, end);
+			}
+			if (segmentCount+1==starts.length) {
+				starts = grow(starts);
+			}
+			starts[++segmentCount] = end;
+		}
+		return segment<segmentCount;
+	}
+
+
+	/**
+	 * Returns where to cut a segment: just after the last delimiter before
+	 * a position, if there is one close enough.
+	 *
+	 * @param start The start of the segment, relative to the line.
+	 * @param end The longest the segment can be, relative to the line.
+	 * @return The end of the segment, relative to the line.
+	 */
+	private int findCut(int start, int end) {
+		int searchStart = Math.max(start + 1, end - MAX_CUT_SEARCH);
+		int lineStart = elem.getStartOffset();
+		try {
+			doc.getText(lineStart+searchStart, end-searchStart, s);
+		} catch (BadLocationException ble) { // Never happens
+			ble.printStackTrace();
+			return end;
+		}
+		for (int i=s.count-1; i>=0; i--) {
+			switch (s.array[s.offset+i]) {
+				case ' ':
+				case '\t':
+				case ',':
+				case ';':
+				case '{':
+				case '}':
+				case '>':
+					return searchStart + i + 1;
+			}
+		}
+		return end;
+	}
+
+
+	/**
+	 * Returns a segment's x-offset from the start of the line.
+	 *
+	 * @param index The segment.  This must be less than the checkpoint
+	 *        count.
+	 * @return The x-offset.
+	 * @see #getCheckpointCount(Object)
+	 */
+	float getCheckpoint(int index) {
+		return checkpoints[index];
+	}
+
+
+	/**
+	 * Returns the number of segments whose x-offset is known.  If the
+	 * checkpoints were measured by a different view, or with different
+	 * font or tab settings, they are all discarded.
+	 *
+	 * @param key Identifies the view and settings doing the measuring.
+	 * @return The number of checkpoints.
+	 * @see #addCheckpoint(float)
+	 */
+	int getCheckpointCount(Object key) {
+		if (key!=checkpointKey) {
+			checkpointKey = key;
+			checkpointCount = 0;
+		}
+		return checkpointCount;
+	}
+
+
+	/**
+	 * Returns the line.
+	 *
+	 * @return The line.
+	 */
+	Element getElement() {
+		return elem;
+	}
+
+
+	/**
+	 * Returns the token type the line starts in.
+	 *
+	 * @return The last token type on the previous line.
+	 */
+	int getInitialTokenType() {
+		return states[0];
+	}
+
+
+	/**
+	 * Returns the length of the line, excluding its newline.
+	 */
+	private int getLength() {
+		return elem.getEndOffset() - 1 - elem.getStartOffset();
+	}
+
+
+	/**
+	 * Returns the segment containing an offset.
+	 *
+	 * @param offs The offset in the document.
+	 * @return The segment.  If <code>offs</code> is the end of the line,
+	 *         this is the last segment.
+	 */
+	int getSegmentAt(int offs) {
+		int rel = offs - elem.getStartOffset();
+		int segment = 0;
+		while (ensureSegment(segment+1) && starts[segment+1]<=rel) {
+			segment++;
+		}
+		return segment;
+	}
+
+
+	/**
+	 * Returns the tokens of a segment.
+	 *
+	 * @param segment The segment.
+	 * @return The tokens, or <code>null</code> if the segment doesn't exist.
+	 */
+	TokenArray getTokens(int segment) {
+
+		if (!ensureSegment(segment)) {
+			return null;
+		}
+
+		int lineStart = elem.getStartOffset();
+		int startOffset = lineStart + starts[segment];
+		TokenArray result = tokens.get(segment);
+		if (result!=null) {
+			// Text may have been inserted or removed on a previous line.
+			result.setStartOffset(startOffset);
+			return result;
+		}
+
+		// The states of all previous segments are needed first.
+		while (stateCount<=segment) {
+			loadSegment(stateCount-1);
+			int state = tokenMaker.getLastTokenTypeOnLine(s,
+					states[stateCount-1]);
+			addState(state);
+		}
+
+		loadSegment(segment);
+		Token t = tokenMaker.getTokenList(s, states[segment], startOffset);
+		result = new TokenArray(t, s, startOffset);
+		if (stateCount==segment+1) {
+			while (t.getNextToken()!=null) {
+				t = t.getNextToken();
+			}
+			addState(t.getType());
+		}
+
+		tokens.put(segment, result);
+		if (tokens.size()>MAX_CACHED_SEGMENTS) {
+			Iterator<TokenArray> i = tokens.values().iterator();
+			i.next();
+			i.remove();
+		}
+		return result;
+
+	}
+
+
+	/**
+	 * Returns whether a segment exists.
+	 *
+	 * @param segment The segment.
+	 * @return Whether it exists.
+	 */
+	boolean hasSegment(int segment) {
+		return ensureSegment(segment);
+	}
+
+
+	private void addState(int state) {
+		if (stateCount==states.length) {
+			states = grow(states);
+		}
+		states[stateCount++] = state;
+	}
+
+
+	private static float[] grow(float[] array) {
+		float[] temp = new float[array.length*2];
+		System.arraycopy(array,0, temp,0, array.length);
+		return temp;
+	}
+
+
+	private static int[] grow(int[] array) {
+		int[] temp = new int[array.length*2];
+		System.arraycopy(array,0, temp,0, array.length);
+		return temp;
+	}
+
+
+	/**
+	 * Loads the text of a known segment into <code>s</code>.
+	 */
+	private void loadSegment(int segment) {
+		int lineStart = elem.getStartOffset();
+		try {
+			doc.getText(lineStart+starts[segment],
+					starts[segment+1]-starts[segment], s);
+		} catch (BadLocationException ble) { // Never happens
+			ble.printStackTrace();
+			s.count = 0;
+		}
+	}
+
+
+}
@@ -0,0 +1,291 @@
+/*
+ * 10/18/2026
+ *
+ * ParallelTokenizer.java - Computes lines' syntax state on several cores.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.Segment;
+
+
+/**
+ * Computes the "last token type" of a range of lines in an
+ * {@link RSyntaxDocument} using all available cores.<p>
+ *
+ * A line's state depends on the state of the line before it, so this can't
+ * be split up exactly.  Instead, the range is split into chunks that are
+ * tokenized in parallel, each (but the first) speculatively starting from
+ * {@link Token#NULL}.  Chunks are then reconciled in order: if the line
+ * before a chunk didn't really end in <code>Token.NULL</code>, the chunk is
+ * re-tokenized from the correct state only until a line's state matches
+ * what was speculatively computed for it, the same rule the document uses
+ * after an edit.  For most languages, lines not ending in
+ * <code>Token.NULL</code> (unclosed multi-line comments or strings) are
+ * rare and short, so little is re-done.<p>
+ *
+ * The text is read under the document's read lock, a batch of lines at a
+ * time.  If the document changes, the computation is abandoned.  Since the
+ * pool's threads may be waiting for that lock, a thread holding the
+ * document's write lock must never wait for a computation to finish.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class ParallelTokenizer extends RecursiveAction {
+
+	private RSyntaxDocument doc;
+	private TokenMaker[] tokenMakers;
+	private int first;
+	private int[] states;
+	private int initialTokenType;
+	private int changeCount;
+	private volatile boolean cancelled;
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The smallest number of lines worth splitting up.
+	 */
+	static final int MIN_LINE_COUNT = 50000;
+
+	/**
+	 * The smallest number of lines in a chunk.
+	 */
+	private static final int MIN_CHUNK_LINE_COUNT = 10000;
+
+	/**
+	 * The number of lines tokenized each time the read lock is taken.
+	 */
+	private static final int BATCH_LINE_COUNT = 1024;
+
+	private static ForkJoinPool pool;
+
+
+	/**
+	 * Constructor.  This creates the token makers used, so it should be
+	 * called on the thread that owns the document's
+	 * <code>TokenMakerFactory</code>, typically the EDT.
+	 *
+	 * @param doc The document.
+	 * @param tmf The factory to create token makers with.
+	 * @param style The syntax style of the document.
+	 * @param first The first line to compute.
+	 * @param end The line after the last one to compute.
+	 * @param initialTokenType The last token type on the line before
+	 *        <code>first</code>.
+	 */
+	ParallelTokenizer(RSyntaxDocument doc, TokenMakerFactory tmf,
+			String style, int first, int end, int initialTokenType) {
+		this.doc = doc;
+		this.first = first;
+		this.initialTokenType = initialTokenType;
+		changeCount = doc.getChangeCount();
+		states = new int[end - first];
+		int chunkCount = Math.min(getParallelism() * 2,
+				Math.max(1, states.length/MIN_CHUNK_LINE_COUNT));
+		tokenMakers = new TokenMaker[chunkCount];
+		for (int i=0; i<chunkCount; i++) {
+			tokenMakers[i] = tmf.getTokenMaker(style);
+		}
+	}
+
+
+	@Override
+	protected void compute() {
+
+		int chunkCount = tokenMakers.length;
+		int chunkSize = (states.length + chunkCount - 1) / chunkCount;
+		int[] starts = new int[chunkCount];
+		List<Chunk> chunks = new ArrayList<>(chunkCount);
+		for (int i=0; i<chunkCount; i++) {
+			starts[i] = first + i*chunkSize;
+			int end = Math.min(starts[i]+chunkSize, first+states.length);
+			int state = i==0 ? initialTokenType : Token.NULL;
+			chunks.add(new Chunk(starts[i], end, state, tokenMakers[i]));
+		}
+		invokeAll(chunks);
+
+		// Fix up chunks that didn't really start in the NULL state.
+		for (int i=1; i<chunkCount && !cancelled; i++) {
+			int state = states[starts[i]-first-1];
+			if (state!=Token.NULL) {
+				lex(starts[i], first+states.length, state, true,
+						tokenMakers[i]);
+			}
+		}
+
+	}
+
+
+	/**
+	 * Returns the document's change count when this computation was
+	 * created.
+	 *
+	 * @return The change count.
+	 * @see RSyntaxDocument#getChangeCount()
+	 */
+	int getChangeCount() {
+		return changeCount;
+	}
+
+
+	/**
+	 * Returns the first line computed.
+	 *
+	 * @return The line.
+	 */
+	int getFirst() {
+		return first;
+	}
+
+
+	/**
+	 * Returns the computed states.
+	 *
+	 * @return The last token type of each line, starting with
+	 *         <code>first</code>, or <code>null</code> if the document was
+	 *         modified before the computation completed.
+	 */
+	int[] getLastTokenTypes() {
+		return cancelled ? null : states;
+	}
+
+
+	/**
+	 * Returns the number of threads lines are tokenized on.
+	 *
+	 * @return The number of threads.
+	 */
+	static int getParallelism() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+
+	/**
+	 * Returns the pool this computation should be run in.
+	 *
+	 * @return The pool.
+	 */
+	static synchronized ForkJoinPool getTokenizerPool() {
+		if (pool==null) {
+			pool = new ForkJoinPool(getParallelism());
+		}
+		return pool;
+	}
+
+
+	/**
+	 * Tokenizes a range of lines.
+	 *
+	 * @param start The first line.
+	 * @param end The line after the last line.
+	 * @param state The last token type of the line before
+	 *        <code>start</code>.
+	 * @param converge Whether to stop at the first line whose state is
+	 *        already what's computed.
+	 * @param tokenMaker The token maker to use.
+	 */
+	private void lex(int start, int end, int state, boolean converge,
+			TokenMaker tokenMaker) {
+		Batch batch = new Batch(start, end, state, converge, tokenMaker);
+		while (!batch.done && !cancelled) {
+			doc.render(batch);
+		}
+	}
+
+
+	/**
+	 * Tokenizes the lines of a batch, moving on to the next batch.
+	 */
+	private class Batch implements Runnable {
+
+		private int line;
+		private int end;
+		private int state;
+		private boolean converge;
+		private TokenMaker tokenMaker;
+		private Segment text;
+		private boolean done;
+
+		Batch(int line, int end, int state, boolean converge,
+				TokenMaker tokenMaker) {
+			this.line = line;
+			this.end = end;
+			this.state = state;
+			this.converge = converge;
+			this.tokenMaker = tokenMaker;
+			text = new Segment();
+		}
+
+		@Override
+		public void run() {
+
+			if (doc.getChangeCount()!=changeCount) {
+				cancelled = true;
+				return;
+			}
+
+			Element root = doc.getDefaultRootElement();
+			int batchEnd = Math.min(end, line+BATCH_LINE_COUNT);
+			try {
+				for (; line<batchEnd; line++) {
+					Element elem = root.getElement(line);
+					int startOffset = elem.getStartOffset();
+					doc.getText(startOffset,
+							elem.getEndOffset()-1-startOffset, text);
+					state = tokenMaker.getLastTokenTypeOnLine(text, state);
+					if (converge && states[line-first]==state) {
+						done = true;
+						return;
+					}
+					states[line-first] = state;
+				}
+			} catch (BadLocationException ble) { // Never happens
+				ble.printStackTrace();
+				cancelled = true;
+			}
+			done = line==end;
+
+		}
+
+	}
+
+
+	/**
+	 * Tokenizes one chunk of lines.
+	 */
+	private class Chunk extends RecursiveAction {
+
+		private int start;
+		private int end;
+		private int state;
+		private TokenMaker tokenMaker;
+
+		private static final long serialVersionUID = 1L;
+
+		Chunk(int start, int end, int state, TokenMaker tokenMaker) {
+			this.start = start;
+			this.end = end;
+			this.state = state;
+			this.tokenMaker = tokenMaker;
+		}
+
+		@Override
+		protected void compute() {
+			lex(start, end, state, false, tokenMaker);
+		}
+
+	}
+
+
+}
@@ -34,6 +34,7 @@ import javax.swing.text.Document;
 import javax.swing.text.Element;
 import javax.swing.text.Position;
 
+import org.fife.ui.rsyntaxtextarea.parser.IncrementalParser;
 import org.fife.ui.rsyntaxtextarea.parser.ParseResult;
 import org.fife.ui.rsyntaxtextarea.parser.Parser;
 import org.fife.ui.rsyntaxtextarea.parser.ParserNotice;
@@ -160,7 +161,14 @@ class ParserManager implements DocumentListener, ActionListener,
 			for (int i=0; i<parserCount; i++) {
 				Parser parser = getParser(i);
 				if (parser.isEnabled()) {
-					ParseResult res = parser.parse(doc, style);
+					ParseResult res;
+					if (parser instanceof IncrementalParser) {
+						res = ((IncrementalParser)parser).parse(doc, style,
+								firstLine, lastLine);
+					}
+					else {
+						res = parser.parse(doc, style);
+					}
 					addParserNoticeHighlights(res);
 				}
 				else {
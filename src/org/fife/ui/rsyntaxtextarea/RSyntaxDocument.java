@@ -10,11 +10,16 @@
 package org.fife.ui.rsyntaxtextarea;
 
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.swing.Action;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.DocumentEvent;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Element;
@@ -43,7 +48,18 @@ import org.fife.util.DynamicIntArray;
  * type <code>CHANGE</code> use their offset and length values to represent the
  * first and last lines, respectively, that have had their syntax coloring
  * change.  This is really a hack to increase the speed of the painting code
- * and should really be corrected, but oh well.
+ * and should really be corrected, but oh well.<p>
+ *
+ * By default, syntax state is computed lazily: when the syntax style
+ * changes, or many lines are inserted at once (such as when a file is
+ * loaded), lines are only tokenized as far down as something (usually the
+ * view, when painting) asks for them.  The rest of the document is
+ * tokenized a few milliseconds at a time on the EDT, so the UI stays
+ * responsive.  See {@link #setLazySyntaxState(boolean)}.<p>
+ *
+ * Lines longer than a threshold, such as those in minified files, are
+ * tokenized and painted a segment at a time rather than all at once.  See
+ * {@link #setLongLineThreshold(int)}.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -76,18 +92,131 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	 */
 	protected transient DynamicIntArray lastTokensOnLines;
 
-	private transient int lastLine = -1;
-	private transient Token cachedTokenList;
-	private transient int useCacheCount;
-	private transient int tokenRetrievalCount;
+	/**
+	 * The number of lines, from the top of the document, whose values in
+	 * <code>lastTokensOnLines</code> are up to date.  Values for lines below
+	 * this are "dirty", and are only computed when needed, or by
+	 * <code>syntaxStateTimer</code>.
+	 */
+	private transient int validLineCount;
+
+	/**
+	 * Dirty lines before this one still hold the states they had before
+	 * the edit that made them dirty, each computed from the one before it.
+	 * So as soon as one of them is re-tokenized and its state hasn't
+	 * changed, all of them are valid again.  An edit that opens and then
+	 * closes a multi-line comment thus only re-tokenizes the lines between.
+	 * This is meaningless if it isn't greater than
+	 * <code>validLineCount</code>.
+	 */
+	private transient int convergeLineCount;
+
+	/**
+	 * Whether dirty lines are allowed (i.e., whether syntax state is
+	 * computed lazily).
+	 */
+	private boolean lazySyntaxState;
+
+	/**
+	 * Whether the syntax state of many lines may be computed on several
+	 * cores.  This is <code>false</code> for snapshot documents, which are
+	 * tokenized off the EDT, where {@link ParallelTokenizer}s can't be
+	 * created.
+	 */
+	private boolean parallelSyntaxState = true;
+
+	/**
+	 * Tokenizes dirty lines in the background.  This is only created when
+	 * there are dirty lines.
+	 */
+	private transient Timer syntaxStateTimer;
+
+	/**
+	 * Incremented whenever the text or syntax style changes, so background
+	 * syntax state computations know when their results are stale.
+	 */
+	private transient volatile int changeCount;
+
+	/**
+	 * The most recently started background computation of dirty lines on
+	 * several cores, or <code>null</code> if there is none.
+	 */
+	private transient ParallelTokenizer parallelTokenizer;
+
+	/**
+	 * Token lists for recently used lines.
+	 */
+	private transient TokenListCache tokenListCache;
+
+	/**
+	 * Whether lines with the same text and initial state share token lists.
+	 */
+	private boolean tokenListInterning;
+
+	/**
+	 * Shares token lists between identical lines, or <code>null</code> if
+	 * <code>tokenListInterning</code> is <code>false</code>.
+	 */
+	private transient TokenListInternTable tokenListInternTable;
+
+	/**
+	 * Lines at least this long are tokenized a segment at a time.
+	 */
+	private int longLineThreshold;
+
+	/**
+	 * Recently used lines at least <code>longLineThreshold</code> long.
+	 */
+	private transient Map<Element, LongLine> longLines;
 
 	private transient Segment s;
 
 	/**
-	 * If this is set to <code>true</code>, debug information about how much
-	 * token caching is helping is printed to stdout.
+	 * The maximum number of tokens kept in <code>tokenListCache</code>.
+	 */
+	private static final int MAX_CACHED_TOKEN_COUNT = 20000;
+
+	/**
+	 * The maximum number of tokens kept in
+	 * <code>tokenListInternTable</code>.
+	 */
+	private static final int MAX_INTERNED_TOKEN_COUNT = 50000;
+
+	/**
+	 * The default value of <code>longLineThreshold</code>.
 	 */
-	private static final boolean DEBUG_TOKEN_CACHING = false;
+	private static final int DEFAULT_LONG_LINE_THRESHOLD = 10000;
+
+	/**
+	 * The maximum number of entries kept in <code>longLines</code>.
+	 */
+	private static final int MAX_LONG_LINE_COUNT = 8;
+
+	/**
+	 * The maximum number of lines an edit will tokenize immediately when
+	 * computing syntax state lazily.  Lines past this are left dirty.
+	 */
+	private static final int MAX_EAGER_LINE_COUNT = 1000;
+
+	/**
+	 * The maximum time an edit will spend tokenizing lines immediately when
+	 * computing syntax state lazily, in nanoseconds.  Lines past this are
+	 * left dirty, even if there are fewer than
+	 * <code>MAX_EAGER_LINE_COUNT</code> of them.
+	 */
+	private static final long MAX_EAGER_TIME = 2000000L;
+
+	/**
+	 * The delay between runs of the background syntax state computation,
+	 * in milliseconds.
+	 */
+	private static final int SYNTAX_STATE_TIMER_DELAY = 50;
+
+	/**
+	 * The maximum time a single run of the background syntax state
+	 * computation takes, in nanoseconds.
+	 */
+	private static final long SYNTAX_STATE_TIME_SLICE = 10000000L;
 
 
 	/**
@@ -110,15 +239,106 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	 * @param syntaxStyle The syntax highlighting scheme to use.
 	 */
 	public RSyntaxDocument(TokenMakerFactory tmf, String syntaxStyle) {
+		super();
+		init(tmf, syntaxStyle);
+	}
+
+
+	/**
+	 * Constructs a document that stores its text in something other than
+	 * the default gap buffer, such as a
+	 * {@link org.fife.ui.rtextarea.PieceTableContent}.
+	 *
+	 * @param content The document's content.
+	 * @param tmf The <code>TokenMakerFactory</code> for this document.  If
+	 *        this is <code>null</code>, a default factory is used.
+	 * @param syntaxStyle The syntax highlighting scheme to use.
+	 */
+	public RSyntaxDocument(Content content, TokenMakerFactory tmf,
+			String syntaxStyle) {
+		super(content);
+		init(tmf, syntaxStyle);
+	}
+
+
+	private void init(TokenMakerFactory tmf, String syntaxStyle) {
 		putProperty(tabSizeAttribute, 5);
 		lastTokensOnLines = new DynamicIntArray(400);
 		lastTokensOnLines.add(Token.NULL); // Initial (empty) line.
+		validLineCount = 1;
+		lazySyntaxState = true;
+		tokenListCache = new TokenListCache(MAX_CACHED_TOKEN_COUNT);
+		setTokenListInterning(true);
+		longLineThreshold = DEFAULT_LONG_LINE_THRESHOLD;
+		longLines = new LinkedHashMap<>(MAX_LONG_LINE_COUNT, 0.75f, true);
 		s = new Segment();
 		setTokenMakerFactory(tmf);
 		setSyntaxStyle(syntaxStyle);
 	}
 
 
+	/**
+	 * Returns an empty document that tokenizes text exactly as this one
+	 * does.  A copy of this document's text inserted into it can be
+	 * analyzed on another thread while this document continues to be
+	 * edited.  Its syntax state is computed eagerly and on the thread
+	 * using it, so it never schedules work on the EDT or waits on the
+	 * pool shared by {@link ParallelTokenizer}s.<p>
+	 *
+	 * This creates a token maker, so it should be called on the thread that
+	 * owns this document's <code>TokenMakerFactory</code>, typically the
+	 * EDT.
+	 *
+	 * @return The document, or <code>null</code> if this document's token
+	 *         maker was set directly and can't be recreated.
+	 * @see #setSyntaxStyle(TokenMaker)
+	 */
+	public RSyntaxDocument createSnapshotDocument() {
+		if (!tokenMakerFactory.keySet().contains(syntaxStyle)) {
+			return null;
+		}
+		RSyntaxDocument doc = new RSyntaxDocument(tokenMakerFactory,
+				syntaxStyle);
+		doc.parallelSyntaxState = false;
+		doc.setLazySyntaxState(false);
+		return doc;
+	}
+
+
+	/**
+	 * Discards the cached token lists for the lines changed by an insertion
+	 * or removal.
+	 *
+	 * @param change The change to the line elements, or <code>null</code>
+	 *        if text was only changed on a single line.
+	 * @param line The line containing the change's offset.
+	 * @param offs The offset of the change.
+	 */
+	private void discardCachedTokenLists(DocumentEvent.ElementChange change,
+			int line, int offs) {
+		if (change!=null) {
+			Element[] removed = change.getChildrenRemoved();
+			Element[] added = change.getChildrenAdded();
+			tokenListCache.linesReplaced(change.getIndex(),
+					removed==null ? 0 : removed.length,
+					added==null ? 0 : added.length);
+			if (removed!=null) {
+				for (Element elem : removed) {
+					longLines.remove(elem);
+				}
+			}
+		}
+		else {
+			tokenListCache.linesReplaced(line, 1, 1);
+			LongLine longLine = longLines.get(
+					getDefaultRootElement().getElement(line));
+			if (longLine!=null) {
+				longLine.discardFrom(offs);
+			}
+		}
+	}
+
+
 	/**
 	 * Alerts all listeners to this document of an insertion.  This is
 	 * overridden so we can update our syntax highlighting stuff.<p>
@@ -131,7 +351,7 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	@Override
 	protected void fireInsertUpdate(DocumentEvent e) {
 
-		cachedTokenList = null;
+		changeCount++;
 
 		/*
 		 * Now that the text is actually inserted into the content and
@@ -145,6 +365,7 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 
 		int numLines = lineMap.getElementCount();
 		int line = lineMap.getElementIndex(e.getOffset());
+		discardCachedTokenLists(change, line, e.getOffset());
 		int previousLine = line - 1;
 		int previousTokenType = (previousLine>-1 ?
 					lastTokensOnLines.get(previousLine) : Token.NULL);
@@ -158,6 +379,22 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 			int endBefore = line + added.length - numRemoved;
 			//System.err.println("... adding lines: " + line + " - " + (endBefore-1));
 			//System.err.println("... ... added: " + added.length + ", removed:" + numRemoved);
+
+			// If the lines were added in a region that is already dirty,
+			// or there are too many of them to tokenize right now (e.g. a
+			// file is being loaded), just mark them dirty.  The view
+			// repaints everything when lines are added, and will ask for
+			// whatever is visible.
+			if (line>=validLineCount ||
+					(lazySyntaxState && endBefore-line>MAX_EAGER_LINE_COUNT)) {
+				lastTokensOnLines.insertRange(line, endBefore-line, Token.NULL);
+				setDirty(line);
+				super.fireInsertUpdate(e);
+				return;
+			}
+
+			validLineCount += endBefore - line;
+			convergeLineCount += endBefore - line;
 			for (int i=line; i<endBefore; i++) {
 
 				setSharedSegment(i); // Loads line i's text into s.
@@ -176,13 +413,18 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 		} // End of if (added!=null && added.length>0).
 
 		// Otherwise, text was inserted on a single line...
-		else {
+		else if (line<validLineCount) {
 
 			// Update last tokens for lines below until they stop changing.
 			updateLastTokensBelow(line, numLines, previousTokenType);
 
 		} // End of else.
 
+		// The line is dirty, so only those before it may converge.
+		else {
+			convergeLineCount = Math.min(convergeLineCount, line);
+		}
+
 		// Let all listeners know about the insertion.
 		super.fireInsertUpdate(e);
 
@@ -206,12 +448,15 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	@Override
 	protected void fireRemoveUpdate(DocumentEvent chng) {
 
-		cachedTokenList =  null;
+		changeCount++;
+
 		Element lineMap = getDefaultRootElement();
 		int numLines = lineMap.getElementCount();
 
 		DocumentEvent.ElementChange change = chng.getChange(lineMap);
 		Element[] removed = change==null ? null : change.getChildrenRemoved();
+		discardCachedTokenLists(change,
+				lineMap.getElementIndex(chng.getOffset()), chng.getOffset());
 
 		// If entire lines were removed...
 		if (removed!=null && removed.length>0) {
@@ -232,8 +477,22 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 			lastTokensOnLines.removeRange(line, endBefore); // Removing values for lines [line-(endBefore-1)].
 			//System.err.println("--------- lastTokensOnLines.size() == " + lastTokensOnLines.getSize());
 
-			// Update last tokens for lines below until they've stopped changing.
-			updateLastTokensBelow(line, numLines, previousTokenType);
+			// Update last tokens for lines below until they've stopped
+			// changing, unless the change is in a dirty region.
+			if (line<validLineCount) {
+				if (endBefore<=validLineCount) {
+					convergeLineCount -= endBefore - line;
+				}
+				else { // Dirty lines were removed too
+					convergeLineCount = line;
+				}
+				validLineCount = Math.max(line,
+						validLineCount - (endBefore-line));
+				updateLastTokensBelow(line, numLines, previousTokenType);
+			}
+			else {
+				convergeLineCount = Math.min(convergeLineCount, line);
+			}
 
 		} // End of if (removed!=null && removed.size()>0).
 
@@ -250,7 +509,12 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 					lastTokensOnLines.get(previousLine) : Token.NULL);
 			//System.err.println("previousTokenType for line : " + previousLine + " is " + previousTokenType);
 			// Update last tokens for lines below until they've stopped changing.
-			updateLastTokensBelow(line, numLines, previousTokenType);
+			if (line<validLineCount) {
+				updateLastTokensBelow(line, numLines, previousTokenType);
+			}
+			else {
+				convergeLineCount = Math.min(convergeLineCount, line);
+			}
 
 		}
 
@@ -314,6 +578,17 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	}
 
 
+	/**
+	 * Returns a number that changes whenever the text or syntax style of
+	 * this document changes.
+	 *
+	 * @return The change count.
+	 */
+	int getChangeCount() {
+		return changeCount;
+	}
+
+
 	/**
 	 * Returns the token type of the last token on the given line.
 	 *
@@ -322,10 +597,59 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	 *         the line is invalid, an exception is thrown.
 	 */
 	public int getLastTokenTypeOnLine(int line) {
+		if (line>=validLineCount) {
+			updateDirtyLines(line + 1);
+		}
 		return lastTokensOnLines.get(line);
 	}
 
 
+	/**
+	 * Returns a line, tokenized a segment at a time, if it is at least
+	 * {@link #getLongLineThreshold()} characters long.
+	 *
+	 * @param line The line number, &gt;= 0.
+	 * @return The line, or <code>null</code> if it is shorter than the
+	 *         threshold.  In that case, use
+	 *         {@link #getTokenArrayForLine(int)}.
+	 */
+	LongLine getLongLine(int line) {
+
+		Element elem = getDefaultRootElement().getElement(line);
+		if (elem.getEndOffset()-1-elem.getStartOffset()<longLineThreshold) {
+			return null;
+		}
+
+		int initialTokenType = line==0 ? Token.NULL :
+								getLastTokenTypeOnLine(line-1);
+		LongLine longLine = longLines.get(elem);
+		if (longLine==null ||
+				longLine.getInitialTokenType()!=initialTokenType) {
+			longLine = new LongLine(this, tokenMaker, elem, initialTokenType);
+			longLines.put(elem, longLine);
+			if (longLines.size()>MAX_LONG_LINE_COUNT) {
+				Iterator<LongLine> i = longLines.values().iterator();
+				i.next();
+				i.remove();
+			}
+		}
+		return longLine;
+
+	}
+
+
+	/**
+	 * Returns the length at which lines are tokenized and painted a
+	 * segment at a time.
+	 *
+	 * @return The length, in characters.
+	 * @see #setLongLineThreshold(int)
+	 */
+	public int getLongLineThreshold() {
+		return longLineThreshold;
+	}
+
+
 	/**
 	 * Returns the text to place at the beginning and end of a
 	 * line to "comment" it in this programming language.
@@ -392,31 +716,95 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 
 
 	/**
-	 * Returns a token list for the specified segment of text representing
-	 * the specified line number.  This method is basically a wrapper for
-	 * <code>tokenMaker.getTokenList</code> that takes into account the last
-	 * token on the previous line to assure token accuracy.
+	 * Returns the number of times a line's tokens were shared with another
+	 * line with the same text, rather than being lexed.
 	 *
-	 * @param line The line number of <code>text</code> in the document,
-	 *        &gt;= 0.
-	 * @return A token list representing the specified line.
+	 * @return The hit count.
+	 * @see #getTokenListInternMissCount()
+	 * @see #setTokenListInterning(boolean)
 	 */
-	public Token getTokenListForLine(int line) {
+	public int getTokenListInternHitCount() {
+		return tokenListInternTable!=null ?
+				tokenListInternTable.getHitCount() : 0;
+	}
 
-		tokenRetrievalCount++;
-		if (line==lastLine && cachedTokenList!=null) {
-			if (DEBUG_TOKEN_CACHING) {
-				useCacheCount++;
-				System.err.println("--- Using cached line; ratio now: " +
-						useCacheCount + "/" + tokenRetrievalCount);
-			}
-			return cachedTokenList;
-		}
-		lastLine = line;
+
+	/**
+	 * Returns the number of times a line's tokens were looked for in this
+	 * document's token list intern table and not found, so the line was
+	 * lexed.
+	 *
+	 * @return The miss count.
+	 * @see #getTokenListInternHitCount()
+	 * @see #setTokenListInterning(boolean)
+	 */
+	public int getTokenListInternMissCount() {
+		return tokenListInternTable!=null ?
+				tokenListInternTable.getMissCount() : 0;
+	}
+
+
+	/**
+	 * Returns whether lines with the same text share token lists.
+	 *
+	 * @return Whether token lists are interned.
+	 * @see #setTokenListInterning(boolean)
+	 */
+	public boolean isTokenListInterning() {
+		return tokenListInterning;
+	}
+
+
+	/**
+	 * Returns whether the syntax state of a number of lines should be
+	 * computed on several cores.
+	 *
+	 * @param lineCount The number of lines.
+	 * @return Whether to use a {@link ParallelTokenizer}.
+	 */
+	private boolean isParallelizable(int lineCount) {
+		// Custom token makers can't be copied for each thread.
+		return parallelSyntaxState &&
+				lineCount>=ParallelTokenizer.MIN_LINE_COUNT &&
+				ParallelTokenizer.getParallelism()>1 &&
+				tokenMakerFactory.keySet().contains(syntaxStyle);
+	}
+
+
+	/**
+	 * Returns whether syntax state is computed lazily.
+	 *
+	 * @return Whether syntax state is computed lazily.
+	 * @see #setLazySyntaxState(boolean)
+	 */
+	public boolean isLazySyntaxState() {
+		return lazySyntaxState;
+	}
+
+
+	/**
+	 * Returns the tokens for a line, stored in parallel arrays.  Views use
+	 * this when painting and measuring lines, as it does not require a
+	 * <code>Token</code> object per token.
+	 *
+	 * @param line The line number, &gt;= 0.
+	 * @return The tokens, or <code>null</code> if an error occurs.
+	 * @see #getTokenListForLine(int)
+	 */
+	TokenArray getTokenArrayForLine(int line) {
+
+		int initialTokenType = line==0 ? Token.NULL :
+								getLastTokenTypeOnLine(line-1);
 
 		Element map = getDefaultRootElement();
 		Element elem = map.getElement(line);
 		int startOffset = elem.getStartOffset();
+		TokenArray tokens = tokenListCache.get(line, startOffset,
+				initialTokenType);
+		if (tokens!=null) {
+			return tokens;
+		}
+
 		//int endOffset = (line==map.getElementCount()-1 ? elem.getEndOffset() - 1:
 		//									elem.getEndOffset() - 1);
 		int endOffset = elem.getEndOffset() - 1; // Why always "-1"?
@@ -426,13 +814,66 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 			ble.printStackTrace();
 			return null;
 		}
-		int initialTokenType = line==0 ? Token.NULL :
-								getLastTokenTypeOnLine(line-1);
 
-		//return tokenMaker.getTokenList(s, initialTokenType, startOffset);
-		cachedTokenList = tokenMaker.getTokenList(s, initialTokenType, startOffset);
-		return cachedTokenList;
+		if (tokenListInternTable!=null) {
+			tokens = tokenListInternTable.get(s, initialTokenType,
+					startOffset);
+			if (tokens==null) {
+				Token tokenList = tokenMaker.getTokenList(s,
+						initialTokenType, startOffset);
+				tokens = new TokenArray(tokenList, s, startOffset);
+				tokenListInternTable.put(initialTokenType, tokens);
+			}
+			return tokenListCache.put(line, initialTokenType, tokens);
+		}
+
+		Token tokenList = tokenMaker.getTokenList(s, initialTokenType,
+				startOffset);
+		return tokenListCache.put(line, startOffset, initialTokenType,
+				tokenList, s);
+
+	}
+
+
+	/**
+	 * Returns a token list for the specified segment of text representing
+	 * the specified line number.  This method is basically a wrapper for
+	 * <code>tokenMaker.getTokenList</code> that takes into account the last
+	 * token on the previous line to assure token accuracy.
+	 *
+	 * @param line The line number of <code>text</code> in the document,
+	 *        &gt;= 0.
+	 * @return A token list representing the specified line.
+	 */
+	public Token getTokenListForLine(int line) {
+		TokenArray tokens = getTokenArrayForLine(line);
+		return tokens!=null ? tokens.getTokenList() : null;
+	}
+
+
+	/**
+	 * Returns the number of times a line's tokens have been found in this
+	 * document's token list cache, rather than being re-lexed.
+	 *
+	 * @return The hit count.
+	 * @see #getTokenListCacheMissCount()
+	 * @see #getTokenListForLine(int)
+	 */
+	public int getTokenListCacheHitCount() {
+		return tokenListCache.getHitCount();
+	}
+
 
+	/**
+	 * Returns the number of times a line has been re-lexed because its
+	 * tokens were not in this document's token list cache.
+	 *
+	 * @return The miss count.
+	 * @see #getTokenListCacheHitCount()
+	 * @see #getTokenListForLine(int)
+	 */
+	public int getTokenListCacheMissCount() {
+		return tokenListCache.getMissCount();
 	}
 
 
@@ -495,13 +936,156 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 
 		// Handle other transient stuff
 		this.s = new Segment();
+		tokenListCache = new TokenListCache(MAX_CACHED_TOKEN_COUNT);
+		if (tokenListInterning) {
+			tokenListInternTable = new TokenListInternTable(
+					MAX_INTERNED_TOKEN_COUNT);
+		}
+		longLines = new LinkedHashMap<>(MAX_LONG_LINE_COUNT, 0.75f, true);
 		int lineCount = getDefaultRootElement().getElementCount();
 		lastTokensOnLines = new DynamicIntArray(lineCount);
+		lastTokensOnLines.insertRange(0, lineCount, Token.NULL);
 		setSyntaxStyle(syntaxStyle); // Actually install (transient) TokenMaker
 
 	}
 
 
+	/**
+	 * Marks the syntax state of all lines from a given line on as dirty,
+	 * and starts computing it in the background.  If there are only a few
+	 * such lines, they are simply computed now.  If there are very many,
+	 * they are computed on several cores.
+	 *
+	 * @param line The first dirty line.
+	 * @see #setDirty(int, int)
+	 */
+	private void setDirty(int line) {
+		setDirty(line, line);
+	}
+
+
+	/**
+	 * Marks the syntax state of all lines from a given line on as dirty,
+	 * and starts computing it in the background.  If there are only a few
+	 * such lines, they are simply computed now.  If there are very many,
+	 * they are computed on several cores, unless re-tokenizing a few of
+	 * them may be enough to show that the rest haven't changed.
+	 *
+	 * @param line The first dirty line.
+	 * @param convergeEnd The line after the last one whose state is still
+	 *        what it was computed to be from the state of the line before
+	 *        it.  See <code>convergeLineCount</code>.
+	 */
+	private void setDirty(int line, int convergeEnd) {
+		if (line<=validLineCount) {
+			validLineCount = line;
+			convergeLineCount = Math.max(line, convergeEnd);
+		}
+		else { // Already dirty from an earlier line
+			convergeLineCount = Math.min(convergeLineCount, line);
+		}
+		int numLines = lastTokensOnLines.getSize();
+		if (!lazySyntaxState ||
+				numLines-validLineCount<=MAX_EAGER_LINE_COUNT) {
+			updateDirtyLines(numLines);
+			return;
+		}
+		if (isParallelizable(numLines-validLineCount) &&
+				validLineCount>=convergeLineCount) {
+			if (syntaxStateTimer!=null) {
+				syntaxStateTimer.stop();
+			}
+			updateDirtyLinesInParallel();
+			return;
+		}
+		restartSyntaxStateTimer();
+	}
+
+
+	/**
+	 * Starts (or restarts) computing the state of dirty lines on the EDT, a
+	 * little at a time.
+	 */
+	private void restartSyntaxStateTimer() {
+		if (syntaxStateTimer==null) {
+			syntaxStateTimer = new Timer(SYNTAX_STATE_TIMER_DELAY,
+					new ActionListener() {
+				@Override
+				public void actionPerformed(ActionEvent e) {
+					updateDirtyLinesInBackground();
+				}
+			});
+		}
+		syntaxStateTimer.restart();
+	}
+
+
+	/**
+	 * Sets whether syntax state is computed lazily.  If it is, then when
+	 * the syntax style changes or many lines are added at once, only those
+	 * lines needed (typically the ones visible) are tokenized right away,
+	 * and the rest are done in the background.  This keeps loading large
+	 * files and switching languages quick.  If it isn't, all lines are
+	 * tokenized immediately.  The default value is <code>true</code>.
+	 *
+	 * @param lazy Whether syntax state should be computed lazily.
+	 * @see #isLazySyntaxState()
+	 */
+	public void setLazySyntaxState(boolean lazy) {
+		lazySyntaxState = lazy;
+		if (!lazy) {
+			updateDirtyLines(lastTokensOnLines.getSize());
+		}
+	}
+
+
+	/**
+	 * Sets the length at which lines are tokenized and painted a segment
+	 * at a time.  Lines this long, typically in minified files, would
+	 * otherwise produce hundreds of thousands of tokens whenever they're
+	 * painted, even though only a screenful of them is visible.  The
+	 * trade-off is that syntax highlighting may be wrong around the
+	 * boundaries between segments, and the width of such lines is only
+	 * estimated.  The default value is <code>10000</code>.
+	 *
+	 * @param threshold The length, in characters.  Use
+	 *        <code>Integer.MAX_VALUE</code> to always tokenize lines all at
+	 *        once.
+	 * @throws IllegalArgumentException If <code>threshold</code> is less
+	 *         than <code>1</code>.
+	 * @see #getLongLineThreshold()
+	 */
+	public void setLongLineThreshold(int threshold) {
+		if (threshold<1) {
+			throw new IllegalArgumentException(
+					"threshold must be positive: " + threshold);
+		}
+		longLineThreshold = threshold;
+		longLines.clear();
+	}
+
+
+	/**
+	 * Sets whether lines with the same text, starting in the same state,
+	 * share token lists.  Only the first such line is lexed; the others
+	 * share its tokens, and only their offsets are adjusted.  This saves
+	 * memory and time for files with many repeated lines, such as
+	 * generated code, logs and CSV files.  The default value is
+	 * <code>true</code>.
+	 *
+	 * @param interning Whether to intern token lists.
+	 * @see #isTokenListInterning()
+	 * @see #getTokenListInternHitCount()
+	 */
+	public void setTokenListInterning(boolean interning) {
+		if (interning!=tokenListInterning) {
+			tokenListInterning = interning;
+			tokenListInternTable = interning ?
+				new TokenListInternTable(MAX_INTERNED_TOKEN_COUNT) : null;
+		}
+	}
+
+
 	/**
 	 * Makes our private <code>Segment s</code> point to the text in our
 	 * document referenced by the specified element.  Note that
@@ -547,8 +1131,8 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	 */
 	public void setSyntaxStyle(String styleKey) {
 		tokenMaker = tokenMakerFactory.getTokenMaker(styleKey);
-		updateSyntaxHighlightingInformation();
 		this.syntaxStyle = styleKey;
+		updateSyntaxHighlightingInformation();
 	}
 
 
@@ -563,8 +1147,8 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	 */
 	public void setSyntaxStyle(TokenMaker tokenMaker) {
 		this.tokenMaker = tokenMaker;
-		updateSyntaxHighlightingInformation();
 		this.syntaxStyle = "text/unknown"; // TODO: Make me public?
+		updateSyntaxHighlightingInformation();
 	}
 
 
@@ -580,6 +1164,202 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	}
 
 
+	/**
+	 * Computes the "last token" values of dirty lines, from the first dirty
+	 * line up to a specified line.
+	 *
+	 * @param end The line after the last one to compute.  If this isn't
+	 *        past the first dirty line, nothing happens.
+	 */
+	private void updateDirtyLines(int end) {
+
+		end = Math.min(end, lastTokensOnLines.getSize());
+		if (validLineCount>=end) {
+			return;
+		}
+
+		// Re-tokenizing a few lines may be enough to show the rest haven't
+		// changed.
+		if (validLineCount<convergeLineCount) {
+			lexDirtyLines(Math.min(end, validLineCount+MAX_EAGER_LINE_COUNT));
+			if (validLineCount>=end) {
+				return;
+			}
+		}
+
+		int line = validLineCount;
+		int previousTokenType = line>0 ?
+				lastTokensOnLines.get(line-1) : Token.NULL;
+
+		// The pool's threads may be waiting for the read lock, e.g. in a
+		// computation started by updateDirtyLinesInParallel(), so the thread
+		// holding the write lock must never wait on the pool.
+		if (isParallelizable(end-line) &&
+				getCurrentWriter()!=Thread.currentThread()) {
+			ParallelTokenizer pt = new ParallelTokenizer(this,
+					tokenMakerFactory, syntaxStyle, line, end,
+					previousTokenType);
+			ParallelTokenizer.getTokenizerPool().invoke(pt);
+			int[] states = pt.getLastTokenTypes();
+			if (states!=null) {
+				for (int i=0; i<states.length; i++) {
+					lastTokensOnLines.setUnsafe(line+i, states[i]);
+				}
+				validLineCount = end;
+				return;
+			}
+			// Another thread modified the document; do it ourselves
+		}
+
+		lexDirtyLines(end);
+
+	}
+
+
+	/**
+	 * Computes the "last token" values of dirty lines on this thread, from
+	 * the first dirty line up to a specified line, or further if the lines
+	 * converge (see <code>convergeLineCount</code>).
+	 *
+	 * @param end The line after the last one to compute.  This must be a
+	 *        valid line index, past the first dirty line.
+	 */
+	private void lexDirtyLines(int end) {
+
+		int line = validLineCount;
+		int previousTokenType = line>0 ?
+				lastTokensOnLines.get(line-1) : Token.NULL;
+
+		while (line<end) {
+			setSharedSegment(line);
+			int tokenType = tokenMaker.getLastTokenTypeOnLine(s,
+					previousTokenType);
+			if (line<convergeLineCount &&
+					lastTokensOnLines.get(line)==tokenType) {
+				// The following lines' states were computed from this one
+				line = convergeLineCount;
+				previousTokenType = lastTokensOnLines.get(line-1);
+				continue;
+			}
+			lastTokensOnLines.setUnsafe(line, tokenType);
+			previousTokenType = tokenType;
+			line++;
+		}
+		validLineCount = line;
+
+	}
+
+
+	/**
+	 * Starts computing the state of all dirty lines on several cores, in the
+	 * background.  When done, the results are stored on the EDT, unless the
+	 * document has been modified in the meantime.
+	 */
+	private void updateDirtyLinesInParallel() {
+
+		int first = validLineCount;
+		int end = lastTokensOnLines.getSize();
+		int previousTokenType = first>0 ?
+				lastTokensOnLines.get(first-1) : Token.NULL;
+		final ParallelTokenizer pt = new ParallelTokenizer(this,
+				tokenMakerFactory, syntaxStyle, first, end,
+				previousTokenType);
+		parallelTokenizer = pt;
+
+		ParallelTokenizer.getTokenizerPool().execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					pt.invoke();
+				} catch (RuntimeException re) {
+					re.printStackTrace();
+				}
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						parallelTokenizerDone(pt);
+					}
+				});
+			}
+		});
+
+	}
+
+
+	/**
+	 * Stores the results of a background computation started by
+	 * {@link #updateDirtyLinesInParallel()}.  Called on the EDT.
+	 *
+	 * @param pt The computation.
+	 */
+	private void parallelTokenizerDone(ParallelTokenizer pt) {
+
+		if (pt!=parallelTokenizer) {
+			return; // A later computation has been started
+		}
+		parallelTokenizer = null;
+
+		boolean dirty = validLineCount<lastTokensOnLines.getSize();
+		if (pt.isCompletedAbnormally()) {
+			// A TokenMaker failed; don't keep retrying on several cores
+			if (dirty) {
+				restartSyntaxStateTimer();
+			}
+			return;
+		}
+		int[] states = pt.getLastTokenTypes();
+		if (states==null || pt.getChangeCount()!=changeCount) {
+			// Edited since; start over with what's still dirty
+			if (dirty) {
+				setDirty(validLineCount, convergeLineCount);
+			}
+			return;
+		}
+
+		// Lines before validLineCount may have been computed while we ran
+		readLock();
+		try {
+			int first = pt.getFirst();
+			int end = first + states.length;
+			for (int line=validLineCount; line<end; line++) {
+				lastTokensOnLines.setUnsafe(line, states[line-first]);
+			}
+			validLineCount = Math.max(validLineCount, end);
+		} finally {
+			readUnlock();
+		}
+
+	}
+
+
+	/**
+	 * Computes the state of dirty lines for a short period of time.  This is
+	 * called periodically on the EDT until there are no dirty lines left.
+	 */
+	private void updateDirtyLinesInBackground() {
+		readLock();
+		try {
+			long deadline = System.nanoTime() + SYNTAX_STATE_TIME_SLICE;
+			int numLines = lastTokensOnLines.getSize();
+			while (validLineCount<numLines && System.nanoTime()<deadline) {
+				updateDirtyLines(validLineCount + 256);
+			}
+			if (validLineCount>=numLines) {
+				syntaxStateTimer.stop();
+			}
+			else if (isParallelizable(numLines-validLineCount) &&
+					parallelTokenizer==null) {
+				// The lines didn't converge quickly; do the rest on
+				// several cores.
+				syntaxStateTimer.stop();
+				updateDirtyLinesInParallel();
+			}
+		} finally {
+			readUnlock();
+		}
+	}
+
+
 	/**
 	 * Loops through the last-tokens-on-lines array from a specified point
 	 * onward, updating last-token values until they stop changing.  This
@@ -595,15 +1375,31 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	private int updateLastTokensBelow(int line, int numLines, int previousTokenType) {
 
 		int firstLine = line;
+		long deadline = System.nanoTime() + MAX_EAGER_TIME;
 
 		// Loop through all lines past our starting point.  Update even the last
 		// line's info, even though there aren't any lines after it that depend
 		// on it changing for them to be changed, as its state may be used
 		// elsewhere in the library.
-		int end = numLines;
+		// Lines that are already dirty will be updated when needed.
+		int end = Math.min(numLines, validLineCount);
 		//System.err.println("--- end==" + end + " (numLines==" + numLines + ")");
 		while (line<end) {
 
+			// Something like an unclosed multi-line comment may change the
+			// state of every line below.  Rather than tokenize them all now,
+			// mark them dirty, and repaint them since they may have been
+			// painted with their old state.  Their old states are kept, so
+			// if the edit is soon undone (e.g. the comment is closed), the
+			// background computation can stop as soon as they're reached.
+			if (lazySyntaxState && (line-firstLine>=MAX_EAGER_LINE_COUNT ||
+					System.nanoTime()>deadline)) {
+				setDirty(line, end);
+				fireChangedUpdate(new DefaultDocumentEvent(firstLine,
+						numLines-1, DocumentEvent.EventType.CHANGE));
+				return numLines - 1;
+			}
+
 			setSharedSegment(line); // Sets s's text to that of line 'line' in the document.
 
 			int oldTokenType = lastTokensOnLines.get(line);
@@ -659,19 +1455,19 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 
 		// Reinitialize the "last token on each line" array.  Note that since
 		// the actual text in the document isn't changing, the number of lines
-		// is the same.
+		// is the same.  All lines are marked dirty, so only those that are
+		// painted are tokenized right away.
 		Element map = getDefaultRootElement();
 		int numLines = map.getElementCount();
-		int lastTokenType = Token.NULL;
-		for (int i=0; i<numLines; i++) {
-			setSharedSegment(i);
-			lastTokenType = tokenMaker.getLastTokenTypeOnLine(s, lastTokenType);
-			lastTokensOnLines.set(i, lastTokenType);
-		}
+		changeCount++;
+		setDirty(0);
 
 		// Clear our token cache to force re-painting
-		lastLine = -1;
-		cachedTokenList = null;
+		tokenListCache.clear();
+		if (tokenListInternTable!=null) {
+			tokenListInternTable.clear();
+		}
+		longLines.clear();
 
 		// Let everybody know that syntax styles have (probably) changed.
 		fireChangedUpdate(new DefaultDocumentEvent(
@@ -139,6 +139,7 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	public static final String SYNTAX_STYLE_PROPERTY					= "RSTA.syntaxStyle";
 	public static final String TAB_LINE_COLOR_PROPERTY					= "RSTA.tabLineColor";
 	public static final String TAB_LINES_PROPERTY						= "RSTA.tabLines";
+	public static final String TILE_CACHE_PROPERTY						= "RSTA.tileCache";
 	public static final String USE_SELECTED_TEXT_COLOR_PROPERTY			= "RSTA.useSelectedTextColor";
 	public static final String VISIBLE_WHITESPACE_PROPERTY				= "RSTA.visibleWhitespace";
 
@@ -276,6 +277,9 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	/** Whether a border should be painted around marked occurrences. */
 	private boolean paintMarkOccurrencesBorder;
 
+	/** Whether painting is cached in off-screen tiles. */
+	private boolean tileCacheEnabled;
+
 	/** Metrics of the text area's font. */
 	private FontMetrics defaultFontMetrics;
 
@@ -2121,6 +2125,17 @@ private boolean fractionalFontMetricsEnabled;
 	}
 
 
+	/**
+	 * Returns whether painting is cached in off-screen tiles.
+	 *
+	 * @return Whether the tile cache is enabled.
+	 * @see #setTileCacheEnabled(boolean)
+	 */
+	public boolean isTileCacheEnabled() {
+		return tileCacheEnabled;
+	}
+
+
 	/**
 	 * Returns whether whitespace (spaces and tabs) is visible.
 	 *
@@ -2259,6 +2274,20 @@ private boolean fractionalFontMetricsEnabled;
 	}
 
 
+	/**
+	 * Overridden to let the tile cache know what needs to be re-rendered,
+	 * if it is enabled.
+	 */
+	@Override
+	public void repaint(long tm, int x, int y, int width, int height) {
+		if (tileCacheEnabled && getUI() instanceof RSyntaxTextAreaUI) {
+			((RSyntaxTextAreaUI)getUI()).repaintRequested(x, y, width,
+					height);
+		}
+		super.repaint(tm, x, y, width, height);
+	}
+
+
 	/**
 	 * Sets the colors used for syntax highlighting to their defaults.
 	 *
@@ -3190,6 +3219,28 @@ private boolean fractionalFontMetricsEnabled;
 	}
 
 
+	/**
+	 * Sets whether painting is cached in off-screen tiles.  If it is, the
+	 * text area is rendered into images covering the visible area, and
+	 * regions that haven't changed since, such as those repainted when the
+	 * caret blinks, are copied from them rather than re-drawn.  This trades
+	 * memory for less painting.  The cache isn't used when printing, or
+	 * when the graphics context is scaled, as on HiDPI screens.  This
+	 * method fires a property change event of type
+	 * {@link #TILE_CACHE_PROPERTY}.  The default value is
+	 * <code>false</code>.
+	 *
+	 * @param enabled Whether to cache painting in tiles.
+	 * @see #isTileCacheEnabled()
+	 */
+	public void setTileCacheEnabled(boolean enabled) {
+		if (enabled!=tileCacheEnabled) {
+			tileCacheEnabled = enabled;
+			firePropertyChange(TILE_CACHE_PROPERTY, !enabled, enabled);
+		}
+	}
+
+
 	/**
 	 * Sets whether "focusable" tool tips are used instead of standard ones.
 	 * Focusable tool tips are tool tips that the user can click on,
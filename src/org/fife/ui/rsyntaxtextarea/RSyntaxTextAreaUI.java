@@ -10,6 +10,7 @@ package org.fife.ui.rsyntaxtextarea;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.beans.PropertyChangeEvent;
 
@@ -19,6 +20,7 @@ import javax.swing.UIManager;
 import javax.swing.plaf.ComponentUI;
 import javax.swing.plaf.InputMapUIResource;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Caret;
 import javax.swing.text.EditorKit;
 import javax.swing.text.Element;
 import javax.swing.text.Highlighter;
@@ -42,6 +44,13 @@ public class RSyntaxTextAreaUI extends RTextAreaUI {
 	private static final String SHARED_INPUT_MAP_NAME		= "RSyntaxTextAreaUI.inputMap";
 	private static final EditorKit DEFAULT_KIT			= new RSyntaxTextAreaEditorKit();
 
+	/**
+	 * Caches what's painted, if enabled.
+	 *
+	 * @see RSyntaxTextArea#setTileCacheEnabled(boolean)
+	 */
+	private TileCache tileCache;
+
 
 	/**
 	 * Creates and returns an instance of this UI.
@@ -202,6 +211,49 @@ public class RSyntaxTextAreaUI extends RTextAreaUI {
 	}
 
 
+	/**
+	 * Overridden to paint from the tile cache, if it is enabled.
+	 *
+	 * @param g The graphics context.
+	 */
+	@Override
+	protected void paintSafely(Graphics g) {
+		RSyntaxTextArea rsta = (RSyntaxTextArea)textArea;
+		if (rsta.isTileCacheEnabled()) {
+			if (tileCache==null) {
+				tileCache = new TileCache(this, rsta);
+			}
+			if (tileCache.paint((Graphics2D)g)) {
+				Caret caret = textArea.getCaret();
+				if (caret!=null) {
+					caret.paint(g);
+				}
+				return;
+			}
+		}
+		super.paintSafely(g);
+	}
+
+
+	/**
+	 * Paints everything {@link #paintSafely(Graphics)} does except the
+	 * caret.  This is used to render the tile cache.
+	 *
+	 * @param g The graphics context.
+	 */
+	void paintUncached(Graphics g) {
+		paintBackground(g);
+		Highlighter highlighter = textArea.getHighlighter();
+		if (highlighter!=null) {
+			highlighter.paint(g);
+		}
+		Rectangle alloc = getVisibleEditorRect();
+		if (alloc!=null) {
+			getRootView(textArea).paint(g, alloc);
+		}
+	}
+
+
 	/**
 	 * Gets called whenever a bound property is changed on this UI's
 	 * <code>RSyntaxTextArea</code>.
@@ -219,6 +271,13 @@ public class RSyntaxTextAreaUI extends RTextAreaUI {
 			modelChanged();
 		}
 
+		else if (name.equals(RSyntaxTextArea.TILE_CACHE_PROPERTY)) {
+			if (tileCache!=null) {
+				tileCache.clear();
+				tileCache = null;
+			}
+		}
+
 		// Everything else is general to all RTextAreas.
 		else {
 			super.propertyChange(e);
@@ -236,6 +295,33 @@ public class RSyntaxTextAreaUI extends RTextAreaUI {
 	}
 
 
+	/**
+	 * Called by the text area when part of it is to be repainted, so the
+	 * tile cache can mark that part as dirty.
+	 *
+	 * @param x The x-coordinate of the region to repaint.
+	 * @param y The y-coordinate of the region to repaint.
+	 * @param width The width of the region.
+	 * @param height The height of the region.
+	 */
+	void repaintRequested(int x, int y, int width, int height) {
+		TileCache cache = tileCache;
+		if (cache!=null) {
+			cache.repaintRequested(x, y, width, height);
+		}
+	}
+
+
+	@Override
+	public void uninstallUI(JComponent c) {
+		if (tileCache!=null) {
+			tileCache.clear();
+			tileCache = null;
+		}
+		super.uninstallUI(c);
+	}
+
+
 	/**
 	 * Returns the y-coordinate of the specified line.<p>
 	 *
@@ -1210,6 +1210,30 @@ return c.getLineStartOffset(line);
 	}
 
 
+	/**
+	 * Determines the width of the given tokens taking tabs into
+	 * consideration.  This is equivalent to calling
+	 * {@link #getTokenListWidth(Token, RSyntaxTextArea, TabExpander, float)}
+	 * on their token list, but does not create any <code>Token</code>s.
+	 *
+	 * @param tokens The tokens representing the text.
+	 * @param textArea The text area in which the tokens reside.
+	 * @param e The tab expander.  This value cannot be <code>null</code>.
+	 * @param x0 The x-pixel coordinate of the start of the tokens.
+	 * @return The width of the tokens, in pixels.
+	 */
+	static float getTokenListWidth(TokenArray tokens,
+									RSyntaxTextArea textArea,
+									TabExpander e, float x0) {
+		float width = x0;
+		int count = tokens.getPaintableCount();
+		for (int i=0; i<count; i++) {
+			width += tokens.getWidth(i, textArea, e, width);
+		}
+		return width - x0;
+	}
+
+
 	/**
 	 * Determines the width of the given token list taking tabs into
 	 * consideration and only up to the given index in the document
@@ -78,6 +78,18 @@ public class SyntaxView extends View implements TabExpander,
 	 */
 	private TokenImpl tempToken;
 
+	/**
+	 * Used to iterate over the tokens of the line being painted.
+	 */
+	private TokenArray.Cursor cursor;
+
+	/**
+	 * Identifies the font, tab size and syntax scheme the segments of long
+	 * lines were measured with.  Replaced whenever one of them changes.
+	 */
+	private Object checkpointKey;
+	private SyntaxScheme checkpointScheme;
+
 
 	/**
 	 * Constructs a new <code>SyntaxView</code> wrapped around an element.
@@ -87,6 +99,7 @@ public class SyntaxView extends View implements TabExpander,
 	public SyntaxView(Element elem) {
 		super(elem);
 		tempToken = new TokenImpl();
+		cursor = new TokenArray.Cursor();
 	}
 
 
@@ -103,7 +116,17 @@ public class SyntaxView extends View implements TabExpander,
 		font = c.getFont();
 		metrics = c.getFontMetrics(font);
 		tabSize = getTabSize() * metrics.charWidth(' ');
+		checkpointKey = null;
 		Element lines = getElement();
+		Document doc = lines.getDocument();
+		if (doc instanceof LargeFileDocument) {
+			// Measuring every line would page in the entire file, so
+			// estimate from the longest line's length instead.
+			int len = ((LargeFileDocument)doc).getLongestLineLength();
+			longLineWidth = (float)len * metrics.charWidth('m');
+			longLine = null;
+			return;
+		}
 		int n = lines.getElementCount();
 		for (int i=0; i<n; i++) {
 			Element line = lines.getElement(i);
@@ -157,6 +180,24 @@ public class SyntaxView extends View implements TabExpander,
 	}
 
 
+	/**
+	 * Draws the end-of-line marker, if they are visible.
+	 *
+	 * @param g The graphics context in which to draw.
+	 * @param x The x-coordinate of the end of the line.
+	 * @param y The y-coordinate at which to draw.
+	 */
+	private void drawEOLMarker(Graphics2D g, float x, float y) {
+		// NOTE: We should re-use code from Token (paintBackground()) here,
+		// but don't because I'm just too lazy.
+		if (host.getEOLMarkersVisible() && x<clipEnd) {
+			g.setColor(host.getForegroundForTokenType(Token.WHITESPACE));
+			g.setFont(host.getFontForTokenType(Token.WHITESPACE));
+			g.drawString("\u00B6", x, y);
+		}
+	}
+
+
 	/**
 	 * Draws the passed-in text using syntax highlighting for the current
 	 * language.  It is assumed that the entire line is either not in a
@@ -164,33 +205,69 @@ public class SyntaxView extends View implements TabExpander,
 	 * off.
 	 *
 	 * @param painter The painter to render the tokens.
-	 * @param token The list of tokens to draw.
+	 * @param tokens The tokens to draw.
 	 * @param g The graphics context in which to draw.
 	 * @param x The x-coordinate at which to draw.
 	 * @param y The y-coordinate at which to draw.
 	 * @return The x-coordinate representing the end of the painted text.
 	 */
-	private float drawLine(TokenPainter painter, Token token, Graphics2D g,
-			float x, float y, int line) {
+	private float drawLine(TokenPainter painter, TokenArray tokens,
+			Graphics2D g, float x, float y, int line) {
 
 		float nextX = x;	// The x-value at the end of our text.
 		boolean paintBG = host.getPaintTokenBackgrounds(line, y);
 
-		while (token!=null && token.isPaintable() && nextX<clipEnd) {
+		int count = tokens!=null ? tokens.getPaintableCount() : 0;
+		for (int i=0; i<count && nextX<clipEnd; i++) {
+			Token token = cursor.load(tokens, i);
 			nextX = painter.paint(token, g, nextX,y, host, this, clipStart,
 					paintBG);
-			token = token.getNextToken();
 		}
 
-		// NOTE: We should re-use code from Token (paintBackground()) here,
-		// but don't because I'm just too lazy.
-		if (host.getEOLMarkersVisible()) {
-			g.setColor(host.getForegroundForTokenType(Token.WHITESPACE));
-			g.setFont(host.getFontForTokenType(Token.WHITESPACE));
-			g.drawString("\u00B6", nextX, y);
+		// Return the x-coordinate at the end of the painted text.
+		return nextX;
+
+	}
+
+
+	/**
+	 * Draws the part of a long line within the clip bounds, a segment at a
+	 * time.  Segments before the clip bounds are only measured, and only
+	 * the first time they're painted past.
+	 *
+	 * @param painter The painter to render the tokens.
+	 * @param longLine The line to draw.
+	 * @param g The graphics context in which to draw.
+	 * @param x The x-coordinate at which to draw.
+	 * @param y The y-coordinate at which to draw.
+	 * @param line The line number.
+	 * @param selStart The start of the selection.
+	 * @param selEnd The end of the selection.
+	 * @return The x-coordinate representing the end of the painted text.
+	 */
+	private float drawLongLine(TokenPainter painter, LongLine longLine,
+			Graphics2D g, float x, float y, int line, int selStart,
+			int selEnd) {
+
+		Element elem = longLine.getElement();
+		boolean selected = selStart!=selEnd &&
+				elem.getStartOffset()<selEnd &&
+				elem.getEndOffset()-1>=selStart;
+		float nextX = x;
+
+		for (int segment=getSegmentAtX(longLine, clipStart-x);
+				nextX<clipEnd && longLine.hasSegment(segment); segment++) {
+			TokenArray tokens = longLine.getTokens(segment);
+			nextX = x + getSegmentX(longLine, segment);
+			if (selected) {
+				nextX = drawLineWithSelection(painter, tokens, g, nextX,y,
+						selStart, selEnd);
+			}
+			else {
+				nextX = drawLine(painter, tokens, g, nextX,y, line);
+			}
 		}
 
-		// Return the x-coordinate at the end of the painted text.
 		return nextX;
 
 	}
@@ -202,7 +279,7 @@ public class SyntaxView extends View implements TabExpander,
 	 * rendered appropriately if they are.
 	 *
 	 * @param painter The painter to render the tokens.
-	 * @param token The list of tokens to draw.
+	 * @param tokens The tokens to draw.
 	 * @param g The graphics context in which to draw.
 	 * @param x The x-coordinate at which to draw.
 	 * @param y The y-coordinate at which to draw.
@@ -210,13 +287,17 @@ public class SyntaxView extends View implements TabExpander,
 	 * @param selEnd The end of the selection.
 	 * @return The x-coordinate representing the end of the painted text.
 	 */
-	private float drawLineWithSelection(TokenPainter painter, Token token,
-			Graphics2D g, float x, float y, int selStart, int selEnd) {
+	private float drawLineWithSelection(TokenPainter painter,
+			TokenArray tokens, Graphics2D g, float x, float y, int selStart,
+			int selEnd) {
 
 		float nextX = x;	// The x-value at the end of our text.
 		boolean useSTC = host.getUseSelectedTextColor();
 
-		while (token!=null && token.isPaintable() && nextX<clipEnd) {
+		int count = tokens!=null ? tokens.getPaintableCount() : 0;
+		for (int i=0; i<count && nextX<clipEnd; i++) {
+
+			Token token = cursor.load(tokens, i);
 
 			// Selection starts in this token
 			if (token.containsPosition(selStart)) {
@@ -276,16 +357,6 @@ public class SyntaxView extends View implements TabExpander,
 				nextX = painter.paint(token, g, nextX,y, host, this, clipStart);
 			}
 
-			token = token.getNextToken();
-
-		}
-
-		// NOTE: We should re-use code from Token (paintBackground()) here,
-		// but don't because I'm just too lazy.
-		if (host.getEOLMarkersVisible()) {
-			g.setColor(host.getForegroundForTokenType(Token.WHITESPACE));
-			g.setFont(host.getFontForTokenType(Token.WHITESPACE));
-			g.drawString("\u00B6", nextX, y);
 		}
 
 		// Return the x-coordinate at the end of the painted text.
@@ -301,11 +372,75 @@ public class SyntaxView extends View implements TabExpander,
 	 * @return The width of the line.
 	 */
 	private float getLineWidth(int lineNumber) {
-		Token tokenList = ((RSyntaxDocument)getDocument()).
-									getTokenListForLine(lineNumber);
-		return RSyntaxUtilities.getTokenListWidth(tokenList,
+		RSyntaxDocument doc = (RSyntaxDocument)getDocument();
+		if (doc.getLongLine(lineNumber)!=null) {
+			// Too expensive to measure, so estimate from the length.
+			Element line = getElement().getElement(lineNumber);
+			int len = line.getEndOffset() - 1 - line.getStartOffset();
+			return (float)len * metrics.charWidth('m');
+		}
+		TokenArray tokens = doc.getTokenArrayForLine(lineNumber);
+		if (tokens==null) {
+			return 0;
+		}
+		return RSyntaxUtilities.getTokenListWidth(tokens,
 								(RSyntaxTextArea)getContainer(),
-								this);
+								this, 0);
+	}
+
+
+	/**
+	 * Returns the segment of a long line that contains an x-offset.
+	 *
+	 * @param longLine The line.
+	 * @param x The x-offset from the start of the line.
+	 * @return The segment.  If <code>x</code> is past the end of the line,
+	 *         this is the last segment.
+	 */
+	private int getSegmentAtX(LongLine longLine, float x) {
+		int segment = 0;
+		while (longLine.hasSegment(segment+1) &&
+				getSegmentX(longLine, segment+1)<=x) {
+			segment++;
+		}
+		return segment;
+	}
+
+
+	/**
+	 * Returns the x-offset of a segment of a long line from the start of
+	 * the line, measuring any segments before it that haven't been
+	 * measured yet.
+	 *
+	 * @param longLine The line.
+	 * @param segment The segment.  This must exist.
+	 * @return The x-offset.
+	 */
+	private float getSegmentX(LongLine longLine, int segment) {
+
+		SyntaxScheme scheme = host.getSyntaxScheme();
+		if (checkpointKey==null || scheme!=checkpointScheme) {
+			checkpointKey = new Object();
+			checkpointScheme = scheme;
+		}
+
+		int count = longLine.getCheckpointCount(checkpointKey);
+		if (count==0) {
+			longLine.addCheckpoint(0);
+			count++;
+		}
+
+		// Segments start on whole pixels so that they are painted where
+		// modelToView() says they are.
+		for (; count<=segment; count++) {
+			float x0 = longLine.getCheckpoint(count-1);
+			float width = RSyntaxUtilities.getTokenListWidth(
+					longLine.getTokens(count-1), host, this, tabBase+x0);
+			longLine.addCheckpoint((float)Math.ceil(x0 + width));
+		}
+
+		return longLine.getCheckpoint(segment);
+
 	}
 
 
@@ -505,6 +640,9 @@ public class SyntaxView extends View implements TabExpander,
 			lineHeight = host!=null ? host.getLineHeight() : lineHeight;
 			if (host != null && host.isCodeFoldingEnabled()) {
 				FoldManager fm = host.getFoldManager();
+				if (fm.isLineHidden(line)) { // Use the collapsed fold's line
+					line = fm.getVisibleLineAbove(line);
+				}
 				int hiddenCount = fm.getHiddenLineCountAbove(line);
 				line -= hiddenCount;
 			}
@@ -534,10 +672,20 @@ public class SyntaxView extends View implements TabExpander,
 		Element map = getElement();
 		RSyntaxDocument doc = (RSyntaxDocument)getDocument();
 		int lineIndex = map.getElementIndex(pos);
-		Token tokenList = doc.getTokenListForLine(lineIndex);
 		Rectangle lineArea = lineToRect(a, lineIndex);
 		tabBase = lineArea.x; // Used by listOffsetToView().
 
+		LongLine longLine = doc.getLongLine(lineIndex);
+		if (longLine!=null) {
+			int segment = longLine.getSegmentAt(pos);
+			int x0 = tabBase + (int)getSegmentX(longLine, segment);
+			Token tokenList = longLine.getTokens(segment).getTokenList();
+			return tokenList.listOffsetToView(host, this, pos, x0,
+					lineArea);
+		}
+
+		Token tokenList = doc.getTokenListForLine(lineIndex);
+
 		//int x = (int)RSyntaxUtilities.getTokenListWidthUpTo(tokenList,
 		//							(RSyntaxTextArea)getContainer(),
 		//							this, 0, pos);
@@ -613,8 +761,10 @@ public class SyntaxView extends View implements TabExpander,
 		}
 		Rectangle r0 = s0 instanceof Rectangle ? (Rectangle)s0 : s0.getBounds();
 		Rectangle r1 = s1 instanceof Rectangle ? (Rectangle)s1 : s1.getBounds();
-		if (r0.y != r1.y) {
-			// If it spans lines, force it to be the width of the view.
+		Element map = getElement();
+		if (map.getElementIndex(p0) != map.getElementIndex(p1)) {
+			// If it spans lines, force it to be the width of the view.  The
+			// lines may share a y-coordinate if some are in a collapsed fold.
 			Rectangle alloc = (a instanceof Rectangle) ? (Rectangle)a :
 								a.getBounds();
 			r0.x = alloc.x;
@@ -703,10 +853,11 @@ public class SyntaxView extends View implements TabExpander,
 					(RSyntaxTextAreaHighlighter)host.getHighlighter();
 
 		Graphics2D g2d = (Graphics2D)g;
-		Token token;
+		TokenArray tokens;
 		//System.err.println("Painting lines: " + linesAbove + " to " + (endLine-1));
 
 		TokenPainter painter = host.getTokenPainter();
+		boolean foldingEnabled = host.isCodeFoldingEnabled();
 		int line = linesAbove;
 		//int count = 0;
 		while (y<clip.y+clip.height+ascent && line<lineCount) {
@@ -721,15 +872,25 @@ public class SyntaxView extends View implements TabExpander,
 								a, host, this);
 
 			// Paint a line of text.
-			token = document.getTokenListForLine(line);
-			if (selStart==selEnd || startOffset>=selEnd ||
-					endOffset<selStart) {
-				drawLine(painter, token, g2d, x,y, line);
+			float nextX;
+			LongLine longLine = document.getLongLine(line);
+			if (longLine!=null) {
+				nextX = drawLongLine(painter, longLine, g2d, x,y, line,
+						selStart, selEnd);
 			}
 			else {
-				//System.out.println("Drawing line with selection: " + line);
-				drawLineWithSelection(painter,token,g2d, x,y, selStart, selEnd);
+				tokens = document.getTokenArrayForLine(line);
+				if (selStart==selEnd || startOffset>=selEnd ||
+						endOffset<selStart) {
+					nextX = drawLine(painter, tokens, g2d, x,y, line);
+				}
+				else {
+					//System.out.println("Drawing line with selection: " + line);
+					nextX = drawLineWithSelection(painter,tokens,g2d, x,y,
+							selStart, selEnd);
+				}
 			}
+			drawEOLMarker(g2d, nextX, y);
 
 			// Paint parser highlights (typically squiggle-underlines) after
 			// text and selection
@@ -746,24 +907,23 @@ public class SyntaxView extends View implements TabExpander,
 							host.getWidth(),y+lineHeight-ascent-1);
 				}
 
-				// Skip to next line to paint, taking extra care for lines with
-				// block ends and begins together, e.g. "} else {"
-				do {
-					int hiddenLineCount = fold.getLineCount();
-					if (hiddenLineCount==0) {
-						// Fold parser identified a zero-line fold region.
-						// This is really a bug, but we'll be graceful here
-						// and avoid an infinite loop.
-						break;
-					}
-					line += hiddenLineCount;
-					fold = fm.getFoldForLine(line);
-				} while (fold!=null && fold.isCollapsed());
+			}
 
+			// Skip to next line to paint, taking extra care for lines with
+			// block ends and begins together, e.g. "} else {".  This is done
+			// the same way the first line was found, so a region is painted
+			// the same whether or not the lines above it are.
+			if (foldingEnabled) {
+				line = fm.getVisibleLineBelow(line);
+				if (line==-1) {
+					break;
+				}
+			}
+			else {
+				line++;
 			}
 
 			y += lineHeight;
-			line++;
 			//count++;
 
 		}
@@ -969,8 +1129,17 @@ public class SyntaxView extends View implements TabExpander,
 			else {
 				// Determine the offset into the text
 				int p0 = line.getStartOffset();
-				Token tokenList = doc.getTokenListForLine(lineIndex);
 				tabBase = alloc.x;
+				LongLine longLine = doc.getLongLine(lineIndex);
+				if (longLine!=null) {
+					int segment = getSegmentAtX(longLine, x-tabBase);
+					float x0 = tabBase + getSegmentX(longLine, segment);
+					Token tokenList = longLine.getTokens(segment).
+											getTokenList();
+					int offs = tokenList.getListOffset(host, this, x0, x);
+					return offs!=-1 ? offs : p0;
+				}
+				Token tokenList = doc.getTokenListForLine(lineIndex);
 				int offs = tokenList.getListOffset(
 									(RSyntaxTextArea)getContainer(),
 									this, tabBase, x);
@@ -0,0 +1,369 @@
+/*
+ * 10/18/2026
+ *
+ * TileCache.java - Caches an RSyntaxTextArea's rendering in off-screen tiles.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+import javax.swing.SwingUtilities;
+import javax.swing.text.Caret;
+
+
+/**
+ * Caches everything an {@link RSyntaxTextAreaUI} paints except the caret:
+ * the background, current line highlight, highlights and text.  This is
+ * kept in off-screen images ("tiles") covering the visible area, each
+ * {@link #TILE_LINES} lines high and {@link #TILE_WIDTH} pixels wide.  When
+ * nothing under it has changed, a region is painted by copying it from its
+ * tiles rather than by re-drawing its text.  This is the case for the
+ * repaints done each time the caret blinks.<p>
+ *
+ * Anything that changes what the text area looks like repaints the affected
+ * region, e.g. document changes repaint the lines modified, and highlighter
+ * changes the highlighted range.  So rather than listening for such changes
+ * itself, this cache marks the parts of the tiles covered by every repaint
+ * request as dirty, except for those made by the caret.  Dirty parts of a
+ * tile are re-rendered the next time it is painted.<p>
+ *
+ * Some of what is painted, such as the current line highlight, depends on
+ * the visible rectangle, so tiles are discarded whenever the text area is
+ * scrolled or resized.  The cache isn't used when the text area isn't
+ * opaque, while printing or dragging, or when the graphics context is
+ * scaled, as on HiDPI screens, since a tile would then be blurrier than
+ * the text painted directly.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see RSyntaxTextArea#setTileCacheEnabled(boolean)
+ */
+final class TileCache {
+
+	/**
+	 * The width of a tile, in pixels.
+	 */
+	static final int TILE_WIDTH = 512;
+
+	/**
+	 * The height of a tile, in lines.
+	 */
+	static final int TILE_LINES = 16;
+
+	/**
+	 * The maximum number of times tiles are rendered in a single paint.
+	 */
+	private static final int MAX_RENDER_PASSES = 3;
+
+	private RSyntaxTextAreaUI ui;
+	private RSyntaxTextArea textArea;
+
+	/**
+	 * The visible rectangle and tile height the tiles were laid out for.
+	 */
+	private Rectangle visibleRect;
+	private int tileHeight;
+
+	/**
+	 * The tiles, row by row, created as they are needed.
+	 */
+	private Tile[] tiles;
+	private int columnCount;
+
+	/**
+	 * Whether the text area has been painted normally since the tiles were
+	 * last discarded.  <code>BasicTextUI</code> doesn't map between the
+	 * model and the view until it has been painted by its own
+	 * <code>paintSafely()</code>, so that is always done once first.
+	 */
+	private boolean primed;
+
+	/**
+	 * Set when a repaint is requested off the EDT, so the tiles are
+	 * discarded the next time they're painted.
+	 */
+	private volatile boolean clearRequested;
+
+
+	TileCache(RSyntaxTextAreaUI ui, RSyntaxTextArea textArea) {
+		this.ui = ui;
+		this.textArea = textArea;
+	}
+
+
+	/**
+	 * Returns whether a graphics context can be painted from tiles.
+	 *
+	 * @param g The graphics context.
+	 * @return Whether tiles can be used.
+	 */
+	private boolean canUseTiles(Graphics2D g) {
+		if (!textArea.isOpaque() || textArea.isPaintingForPrint() ||
+				textArea.getDropLocation()!=null) {
+			return false;
+		}
+		AffineTransform tx = g.getTransform();
+		return (tx.getType() & ~AffineTransform.TYPE_TRANSLATION)==0 &&
+				tx.getTranslateX()==Math.rint(tx.getTranslateX()) &&
+				tx.getTranslateY()==Math.rint(tx.getTranslateY());
+	}
+
+
+	/**
+	 * Discards all tiles.
+	 */
+	void clear() {
+		if (tiles!=null) {
+			for (Tile tile : tiles) {
+				if (tile!=null && tile.image!=null) {
+					tile.image.flush();
+				}
+			}
+			tiles = null;
+		}
+		visibleRect = null;
+		primed = false;
+		clearRequested = false;
+	}
+
+
+	/**
+	 * Returns a tile, creating it if necessary.
+	 *
+	 * @param row The tile's row, relative to the top of the visible area.
+	 * @param col The tile's column, relative to the left of the visible
+	 *        area.
+	 * @return The tile.
+	 */
+	private Tile getTile(int row, int col) {
+		int index = row*columnCount + col;
+		Tile tile = tiles[index];
+		if (tile==null) {
+			int x = visibleRect.x + col*TILE_WIDTH;
+			int y = visibleRect.y + row*tileHeight;
+			int w = Math.min(TILE_WIDTH, visibleRect.x+visibleRect.width-x);
+			int h = Math.min(tileHeight, visibleRect.y+visibleRect.height-y);
+			tile = new Tile(new Rectangle(x, y, w, h));
+			tiles[index] = tile;
+		}
+		return tile;
+	}
+
+
+	/**
+	 * Paints the region of a graphics context's clip from tiles, rendering
+	 * any parts of them that are dirty first.  The caret isn't painted.
+	 *
+	 * @param g The graphics context.
+	 * @return Whether the region was painted.  If this is
+	 *         <code>false</code>, the caller should paint it normally.
+	 */
+	boolean paint(Graphics2D g) {
+
+		if (clearRequested) {
+			clear();
+		}
+
+		Rectangle clip = g.getClipBounds();
+		if (clip==null || !canUseTiles(g)) {
+			clear();
+			return false;
+		}
+
+		// Tiles are laid out over the visible area, so start over if it
+		// has changed.
+		Rectangle visible = textArea.getVisibleRect();
+		int height = textArea.getLineHeight() * TILE_LINES;
+		if (!visible.equals(visibleRect) || height!=tileHeight) {
+			clear();
+			visibleRect = visible;
+			tileHeight = height;
+		}
+		if (!primed || visible.isEmpty()) {
+			primed = true;
+			return false;
+		}
+		if (!visibleRect.contains(clip)) {
+			return false;
+		}
+
+		if (tiles==null) {
+			columnCount = (visibleRect.width+TILE_WIDTH-1) / TILE_WIDTH;
+			int rowCount = (visibleRect.height+tileHeight-1) / tileHeight;
+			tiles = new Tile[rowCount * columnCount];
+		}
+
+		int col0 = (clip.x-visibleRect.x) / TILE_WIDTH;
+		int col1 = (clip.x+clip.width-1-visibleRect.x) / TILE_WIDTH;
+		int row0 = (clip.y-visibleRect.y) / tileHeight;
+		int row1 = (clip.y+clip.height-1-visibleRect.y) / tileHeight;
+
+		// Rendering a tile can dirty others, e.g. when the lines it paints
+		// are re-tokenized and the ones after them found to be in a new
+		// syntax state, so all are rendered before any are copied.
+		boolean rendered = true;
+		for (int pass=0; rendered && pass<MAX_RENDER_PASSES; pass++) {
+			rendered = false;
+			for (int row=row0; row<=row1; row++) {
+				for (int col=col0; col<=col1; col++) {
+					rendered |= getTile(row, col).render(g);
+				}
+			}
+		}
+
+		for (int row=row0; row<=row1; row++) {
+			for (int col=col0; col<=col1; col++) {
+				getTile(row, col).paint(g);
+			}
+		}
+		return true;
+
+	}
+
+
+	/**
+	 * Called when part of the text area is to be repainted.  The parts of
+	 * tiles it covers are marked as dirty, unless the repaint is for the
+	 * caret.
+	 *
+	 * @param x The x-coordinate of the region to repaint.
+	 * @param y The y-coordinate of the region to repaint.
+	 * @param width The width of the region.
+	 * @param height The height of the region.
+	 */
+	void repaintRequested(int x, int y, int width, int height) {
+
+		if (!SwingUtilities.isEventDispatchThread()) {
+			clearRequested = true;
+			return;
+		}
+		if (visibleRect==null) {
+			return;
+		}
+
+		// DefaultCaret is its own damaged region, and repaints exactly that
+		Caret caret = textArea.getCaret();
+		if (caret instanceof Rectangle) {
+			Rectangle r = (Rectangle)caret;
+			if (r.x==x && r.y==y && r.width==width && r.height==height) {
+				return;
+			}
+		}
+
+		// Outlines, such as the matched bracket's, are drawn a pixel to the
+		// right of and below the regions repainted for them.
+		Rectangle r = new Rectangle(x, y, width+1, height+1);
+		if (r.contains(visibleRect)) {
+			clear(); // e.g. from setView(), which must be painted normally
+			return;
+		}
+		if (tiles!=null) {
+			for (Tile tile : tiles) {
+				if (tile!=null && tile.bounds.intersects(r)) {
+					Rectangle dirty = tile.bounds.intersection(r);
+					if (tile.dirty!=null) {
+						dirty.add(tile.dirty);
+					}
+					tile.dirty = dirty;
+				}
+			}
+		}
+
+	}
+
+
+	/**
+	 * A tile, and the part of it that needs to be re-rendered.
+	 */
+	private final class Tile {
+
+		private Rectangle bounds;
+		private Image image;
+		private Rectangle dirty;
+
+		private Tile(Rectangle bounds) {
+			this.bounds = bounds;
+		}
+
+		private void createImage() {
+			image = textArea.createVolatileImage(bounds.width, bounds.height);
+			if (image==null) { // Not displayable, e.g. headless
+				image = new BufferedImage(bounds.width, bounds.height,
+						BufferedImage.TYPE_INT_RGB);
+			}
+			dirty = new Rectangle(bounds);
+		}
+
+		private void paint(Graphics2D g) {
+			do {
+				render(g);
+				g.drawImage(image, bounds.x, bounds.y, null);
+			} while (image instanceof VolatileImage &&
+					((VolatileImage)image).contentsLost());
+		}
+
+		/**
+		 * Renders the dirty part of this tile, if any.
+		 *
+		 * @param g The graphics context being painted, whose settings are
+		 *        copied.
+		 * @return Whether anything was rendered.
+		 */
+		private boolean render(Graphics2D g) {
+
+			validate();
+			Rectangle r = dirty;
+			if (r==null) {
+				return false;
+			}
+
+			dirty = null; // Anything repainted while rendering stays dirty
+			Graphics2D g2d = (Graphics2D)image.getGraphics();
+			try {
+				g2d.setRenderingHints(g.getRenderingHints());
+				g2d.setFont(g.getFont());
+				g2d.setColor(g.getColor());
+				g2d.translate(-bounds.x, -bounds.y);
+				g2d.clipRect(r.x, r.y, r.width, r.height);
+				ui.paintUncached(g2d);
+			} finally {
+				g2d.dispose();
+			}
+			return true;
+
+		}
+
+		/**
+		 * Creates this tile's image, or re-creates it if its contents were
+		 * lost, as can happen to a <code>VolatileImage</code>.
+		 */
+		private void validate() {
+			if (image==null) {
+				createImage();
+			}
+			else if (image instanceof VolatileImage) {
+				GraphicsConfiguration gc = textArea.getGraphicsConfiguration();
+				int rc = ((VolatileImage)image).validate(gc);
+				if (rc==VolatileImage.IMAGE_INCOMPATIBLE) {
+					image.flush();
+					createImage();
+				}
+				else if (rc==VolatileImage.IMAGE_RESTORED) {
+					dirty = new Rectangle(bounds);
+				}
+			}
+		}
+
+	}
+
+
+}
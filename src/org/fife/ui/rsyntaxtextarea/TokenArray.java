@@ -0,0 +1,348 @@
+/*
+ * 10/18/2026
+ *
+ * TokenArray.java - The tokens for a line, stored in parallel arrays.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.awt.FontMetrics;
+
+import javax.swing.text.Segment;
+import javax.swing.text.TabExpander;
+
+
+/**
+ * The tokens for a single line, stored as parallel arrays of types, offsets,
+ * lengths and language indices over a private copy of the line's text,
+ * rather than as a linked list of {@link TokenImpl}s.  This is how
+ * {@link RSyntaxDocument} caches token lists; views iterate it by index
+ * when painting and measuring lines, so that they don't chase a pointer per
+ * token.<p>
+ *
+ * Code that needs <code>Token</code>s can either load them into a
+ * {@link Cursor}, a flyweight that is reused from line to line, or call
+ * {@link #getTokenList()}, which creates a real linked list the first time
+ * it is called.<p>
+ *
+ * Token offsets are stored relative to the start of the line, so a line
+ * that has merely moved in the document can be updated by calling
+ * {@link #setStartOffset(int)}.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class TokenArray {
+
+	private char[] text;
+	private int startOffset;
+	private int count;
+	private int paintableCount;
+	private int[] types;
+	private int[] offsets;
+	private int[] textOffsets;
+	private int[] lengths;
+	private int[] languageIndices;
+
+	/**
+	 * Whether each token is a hyperlink, or <code>null</code> if none are.
+	 */
+	private boolean[] hyperlinks;
+
+	/**
+	 * The text of tokens whose text isn't part of the line, or
+	 * <code>null</code> if there are none.  Besides the "null" token ending
+	 * a line, this is rare; most token makers only create tokens from the
+	 * line they are given.
+	 */
+	private char[][] otherTexts;
+
+	/**
+	 * The linked list version of these tokens, created on demand.
+	 */
+	private Token tokenList;
+
+	/**
+	 * Stored in <code>offsets</code> for tokens with offset <code>-1</code>,
+	 * such as the "null" token ending most lines, so they aren't moved by
+	 * {@link #setStartOffset(int)}.
+	 */
+	private static final int NO_OFFSET = Integer.MIN_VALUE;
+
+	/**
+	 * Stored in <code>otherTexts</code> for tokens with no text.
+	 */
+	private static final char[] NO_TEXT = new char[0];
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param tokens A token list, as returned by a <code>TokenMaker</code>.
+	 *        It is not modified or referenced after this constructor
+	 *        returns.
+	 * @param line The text the tokens were created from.
+	 * @param startOffset The offset of the line in the document.
+	 */
+	TokenArray(Token tokens, Segment line, int startOffset) {
+
+		this.startOffset = startOffset;
+		text = new char[line.count];
+		System.arraycopy(line.array,line.offset, text,0, line.count);
+
+		for (Token t=tokens; t!=null; t=t.getNextToken()) {
+			count++;
+		}
+		types = new int[count];
+		offsets = new int[count];
+		textOffsets = new int[count];
+		lengths = new int[count];
+		languageIndices = new int[count];
+		paintableCount = count;
+
+		int i = 0;
+		for (Token t=tokens; t!=null; t=t.getNextToken(), i++) {
+			types[i] = t.getType();
+			offsets[i] = t.getOffset()==-1 ? NO_OFFSET :
+					t.getOffset() - startOffset;
+			lengths[i] = t.length();
+			languageIndices[i] = t.getLanguageIndex();
+			char[] array = t.getTextArray();
+			if (array==line.array) {
+				textOffsets[i] = t.getTextOffset() - line.offset;
+			}
+			else {
+				if (otherTexts==null) {
+					otherTexts = new char[count][];
+				}
+				otherTexts[i] = array!=null ? array : NO_TEXT;
+				textOffsets[i] = t.getTextOffset();
+			}
+			if (t.isHyperlink()) {
+				if (hyperlinks==null) {
+					hyperlinks = new boolean[count];
+				}
+				hyperlinks[i] = true;
+			}
+			if (!t.isPaintable() && paintableCount==count) {
+				paintableCount = i;
+			}
+		}
+
+	}
+
+
+	/**
+	 * Constructor.  This creates tokens for another line with the same text
+	 * and initial token type, sharing everything with an existing
+	 * <code>TokenArray</code> but its start offset.  Nothing but the start
+	 * offset is ever modified after construction, so this is safe.
+	 *
+	 * @param tokens The tokens to share.
+	 * @param startOffset The offset of the line in the document.
+	 * @see TokenListInternTable
+	 */
+	TokenArray(TokenArray tokens, int startOffset) {
+		this.startOffset = startOffset;
+		text = tokens.text;
+		count = tokens.count;
+		paintableCount = tokens.paintableCount;
+		types = tokens.types;
+		offsets = tokens.offsets;
+		textOffsets = tokens.textOffsets;
+		lengths = tokens.lengths;
+		languageIndices = tokens.languageIndices;
+		hyperlinks = tokens.hyperlinks;
+		otherTexts = tokens.otherTexts;
+	}
+
+
+	/**
+	 * Returns the number of tokens.
+	 *
+	 * @return The number of tokens, including any non-paintable ones at the
+	 *         end of the line.
+	 * @see #getPaintableCount()
+	 */
+	int getCount() {
+		return count;
+	}
+
+
+	/**
+	 * Returns the number of tokens before the first one that isn't
+	 * paintable.
+	 *
+	 * @return The number of paintable tokens.
+	 * @see #getCount()
+	 */
+	int getPaintableCount() {
+		return paintableCount;
+	}
+
+
+	/**
+	 * Returns the copy of the line's text these tokens refer to.  This
+	 * must not be modified.
+	 *
+	 * @return The text.
+	 */
+	char[] getLineText() {
+		return text;
+	}
+
+
+	/**
+	 * Returns the offset of the line in the document.
+	 *
+	 * @return The offset.
+	 * @see #setStartOffset(int)
+	 */
+	int getStartOffset() {
+		return startOffset;
+	}
+
+
+	/**
+	 * Returns these tokens as a linked list.  The list is created the first
+	 * time this method is called, and must not be modified.
+	 *
+	 * @return The token list.
+	 */
+	Token getTokenList() {
+		if (tokenList==null) {
+			TokenImpl last = null;
+			for (int i=0; i<count; i++) {
+				TokenImpl t = new TokenImpl();
+				load(i, t);
+				if (last==null) {
+					tokenList = t;
+				}
+				else {
+					last.setNextToken(t);
+				}
+				last = t;
+			}
+		}
+		return tokenList;
+	}
+
+
+	/**
+	 * Returns the width of a token.  This is equivalent to calling
+	 * {@link Token#getWidth(RSyntaxTextArea, TabExpander, float)} on it.
+	 *
+	 * @param index The index of the token.
+	 * @param textArea The text area in which the token resides.
+	 * @param e The tab expander.
+	 * @param x0 The x-pixel coordinate of the start of the token.
+	 * @return The width of the token, in pixels.
+	 */
+	float getWidth(int index, RSyntaxTextArea textArea, TabExpander e,
+			float x0) {
+		FontMetrics fm = textArea.getFontMetricsForTokenType(types[index]);
+		if (fm==null) {
+			return 0;
+		}
+		return TokenImpl.getWidthUpTo(getTextArray(index), textOffsets[index],
+				lengths[index], fm, e, x0);
+	}
+
+
+	/**
+	 * Returns the array containing a token's text.
+	 */
+	private char[] getTextArray(int index) {
+		if (otherTexts==null || otherTexts[index]==null) {
+			return text;
+		}
+		return otherTexts[index]!=NO_TEXT ? otherTexts[index] : null;
+	}
+
+
+	/**
+	 * Copies a token's values into a <code>TokenImpl</code>.
+	 */
+	private void load(int index, TokenImpl token) {
+		int offs = offsets[index];
+		token.text = getTextArray(index);
+		token.textOffset = textOffsets[index];
+		token.textCount = lengths[index];
+		token.setOffset(offs==NO_OFFSET ? -1 : startOffset+offs);
+		token.setType(types[index]);
+		token.setLanguageIndex(languageIndices[index]);
+		token.setHyperlink(hyperlinks!=null && hyperlinks[index]);
+		token.setNextToken(null);
+	}
+
+
+	/**
+	 * Sets the offset of the line in the document, moving all tokens.
+	 *
+	 * @param startOffset The new offset.
+	 * @see #getStartOffset()
+	 */
+	void setStartOffset(int startOffset) {
+		int delta = startOffset - this.startOffset;
+		if (delta!=0) {
+			this.startOffset = startOffset;
+			for (Token t=tokenList; t!=null; t=t.getNextToken()) {
+				if (t.getOffset()!=-1) {
+					((TokenImpl)t).setOffset(t.getOffset() + delta);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * A reusable, read-only view of one token in a <code>TokenArray</code>.
+	 * A cursor's "next token" is another cursor, created the first time it's
+	 * needed and reloaded every time it's fetched, so a cursor can be passed
+	 * to any code that walks a token list forward.  Walking the list does
+	 * not change the cursors already visited.<p>
+	 *
+	 * A cursor is only valid until it is loaded again, and it must only be
+	 * used by one thread.
+	 */
+	static final class Cursor extends TokenImpl {
+
+		private TokenArray tokens;
+		private int index;
+		private Cursor next;
+
+		/**
+		 * Points this cursor at a token.
+		 *
+		 * @param tokens The tokens.
+		 * @param index The index of the token.
+		 * @return This cursor, or <code>null</code> if <code>index</code>
+		 *         is past the last token.
+		 */
+		Cursor load(TokenArray tokens, int index) {
+			if (index>=tokens.count) {
+				return null;
+			}
+			this.tokens = tokens;
+			this.index = index;
+			tokens.load(index, this);
+			return this;
+		}
+
+		@Override
+		public Token getNextToken() {
+			if (tokens==null) {
+				return null;
+			}
+			if (next==null) {
+				next = new Cursor();
+			}
+			return next.load(tokens, index+1);
+		}
+
+	}
+
+
+}
@@ -574,32 +574,51 @@ public class TokenImpl implements Token {
 	@Override
 	public float getWidthUpTo(int numChars, RSyntaxTextArea textArea,
 			TabExpander e, float x0) {
-		float width = x0;
 		FontMetrics fm = textArea.getFontMetricsForTokenType(getType());
-		if (fm != null) {
-			int w;
-			int currentStart = textOffset;
-			int endBefore = textOffset + numChars;
-			for (int i = currentStart; i < endBefore; i++) {
-				if (text[i] == '\t') {
-					// Since TokenMaker implementations usually group all
-					// adjacent whitespace into a single token, there
-					// aren't usually any characters to compute a width
-					// for here, so we check before calling.
-					w = i - currentStart;
-					if (w > 0) {
-						width += fm.charsWidth(text, currentStart, w);
-					}
-					currentStart = i + 1;
-					width = e.nextTabStop(width, 0);
+		if (fm == null) {
+			return 0;
+		}
+		return getWidthUpTo(text, textOffset, numChars, fm, e, x0);
+	}
+
+
+	/**
+	 * Returns the width of some token text, taking tabs into consideration.
+	 *
+	 * @param text The array containing the text.
+	 * @param textOffset The offset of the text in the array.
+	 * @param numChars The number of characters to measure.
+	 * @param fm The font metrics for the token's type.
+	 * @param e The tab expander.
+	 * @param x0 The x-pixel coordinate of the start of the text.
+	 * @return The width of the text, in pixels.
+	 * @see TokenArray#getWidth(int, RSyntaxTextArea, TabExpander, float)
+	 */
+	static float getWidthUpTo(char[] text, int textOffset, int numChars,
+			FontMetrics fm, TabExpander e, float x0) {
+		float width = x0;
+		int w;
+		int currentStart = textOffset;
+		int endBefore = textOffset + numChars;
+		for (int i = currentStart; i < endBefore; i++) {
+			if (text[i] == '\t') {
+				// Since TokenMaker implementations usually group all
+				// adjacent whitespace into a single token, there
+				// aren't usually any characters to compute a width
+				// for here, so we check before calling.
+				w = i - currentStart;
+				if (w > 0) {
+					width += fm.charsWidth(text, currentStart, w);
 				}
+				currentStart = i + 1;
+				width = e.nextTabStop(width, 0);
 			}
-			// Most (non-whitespace) tokens will have characters at this
-			// point to get the widths for, so we don't check for w>0 (mini-
-			// optimization).
-			w = endBefore - currentStart;
-			width += fm.charsWidth(text, currentStart, w);
 		}
+		// Most (non-whitespace) tokens will have characters at this
+		// point to get the widths for, so we don't check for w>0 (mini-
+		// optimization).
+		w = endBefore - currentStart;
+		width += fm.charsWidth(text, currentStart, w);
 		return width - x0;
 	}
 
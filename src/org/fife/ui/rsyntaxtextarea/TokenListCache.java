@@ -0,0 +1,239 @@
+/*
+ * 10/18/2026
+ *
+ * TokenListCache.java - Caches token lists for lines in an RSyntaxDocument.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.text.Segment;
+
+
+/**
+ * A bounded cache of the token lists for lines in an
+ * {@link RSyntaxDocument}.  Painting, bracket matching, "mark occurrences"
+ * and fold parsing all ask for the tokens on the same lines over and over;
+ * this lets them share a single tokenization.<p>
+ *
+ * Token lists are cached as {@link TokenArray}s, which own a copy of their
+ * text, so they are unaffected by later changes to the document or reuse of
+ * tokens by the <code>TokenMaker</code>.  An entry remembers the token type
+ * its line was tokenized with; if the line has merely moved, its tokens'
+ * offsets are adjusted when it is next fetched, and if the previous line's
+ * state has changed it is discarded.  The document only needs to tell this
+ * cache which lines were actually edited.<p>
+ *
+ * Entries are evicted least-recently-used first once the total number of
+ * cached tokens passes a limit.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class TokenListCache {
+
+	private Map<Integer, Entry> entries;
+	private int maxTokenCount;
+	private int tokenCount;
+	private int hitCount;
+	private int missCount;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxTokenCount The maximum number of tokens to cache.
+	 */
+	TokenListCache(int maxTokenCount) {
+		this.maxTokenCount = maxTokenCount;
+		entries = new LinkedHashMap<>(64, 0.75f, true);
+	}
+
+
+	/**
+	 * Removes all cached token lists.
+	 */
+	void clear() {
+		entries.clear();
+		tokenCount = 0;
+	}
+
+
+	/**
+	 * Returns the cached token list for a line.
+	 *
+	 * @param line The line.
+	 * @param startOffset The current start offset of the line.
+	 * @param initialTokenType The last token type of the previous line.
+	 * @return The token list, or <code>null</code> if it isn't cached.
+	 */
+	TokenArray get(int line, int startOffset, int initialTokenType) {
+
+		Entry entry = entries.get(line);
+		if (entry==null) {
+			missCount++;
+			return null;
+		}
+
+		// Text on a previous line changed how this line starts.
+		if (entry.initialTokenType!=initialTokenType) {
+			remove(line);
+			missCount++;
+			return null;
+		}
+
+		// Text may have been inserted or removed on a previous line.
+		entry.tokens.setStartOffset(startOffset);
+
+		hitCount++;
+		return entry.tokens;
+
+	}
+
+
+	/**
+	 * Returns the number of times a line's tokens were found in this cache.
+	 *
+	 * @return The hit count.
+	 * @see #getMissCount()
+	 */
+	int getHitCount() {
+		return hitCount;
+	}
+
+
+	/**
+	 * Returns the number of times a line's tokens were not found in this
+	 * cache.
+	 *
+	 * @return The miss count.
+	 * @see #getHitCount()
+	 */
+	int getMissCount() {
+		return missCount;
+	}
+
+
+	/**
+	 * Updates this cache for a change in the document.  Some lines have been
+	 * replaced with (possibly a different number of) new lines; the cached
+	 * token lists for the old lines are discarded, and the lines below are
+	 * renumbered.
+	 *
+	 * @param line The first line replaced.
+	 * @param removed The number of lines replaced.
+	 * @param added The number of lines they were replaced with.
+	 */
+	void linesReplaced(int line, int removed, int added) {
+
+		if (entries.isEmpty()) {
+			return;
+		}
+
+		int delta = added - removed;
+		if (delta==0 && removed<=entries.size()) {
+			for (int i=0; i<removed; i++) {
+				remove(line + i);
+			}
+			return;
+		}
+
+		// Renumber the lines below, keeping them in LRU order
+		int end = line + removed;
+		Map<Integer, Entry> old = entries;
+		entries = new LinkedHashMap<>(Math.max(64, old.size()*2), 0.75f,
+				true);
+		for (Entry entry : old.values()) {
+			if (entry.line<line) {
+				entries.put(entry.line, entry);
+			}
+			else if (entry.line>=end) {
+				entry.line += delta;
+				entries.put(entry.line, entry);
+			}
+			else {
+				tokenCount -= entry.tokens.getCount();
+			}
+		}
+
+	}
+
+
+	/**
+	 * Caches a line's token list.
+	 *
+	 * @param line The line.
+	 * @param startOffset The start offset of the line.
+	 * @param initialTokenType The last token type of the previous line.
+	 * @param tokens The line's tokens, as returned by a
+	 *        <code>TokenMaker</code>.
+	 * @param text The text the tokens were created from.
+	 * @return The cached tokens.  These should be used in place of
+	 *         <code>tokens</code>.
+	 */
+	TokenArray put(int line, int startOffset, int initialTokenType,
+			Token tokens, Segment text) {
+		return put(line, initialTokenType,
+				new TokenArray(tokens, text, startOffset));
+	}
+
+
+	/**
+	 * Caches a line's token list.
+	 *
+	 * @param line The line.
+	 * @param initialTokenType The last token type of the previous line.
+	 * @param tokens The line's tokens.
+	 * @return The cached tokens, which are <code>tokens</code>.
+	 */
+	TokenArray put(int line, int initialTokenType, TokenArray tokens) {
+
+		remove(line);
+
+		Entry entry = new Entry();
+		entry.line = line;
+		entry.initialTokenType = initialTokenType;
+		entry.tokens = tokens;
+
+		entries.put(line, entry);
+		tokenCount += entry.tokens.getCount();
+
+		// Evict the least recently used lines, but always keep this one
+		Iterator<Entry> i = entries.values().iterator();
+		while (tokenCount>maxTokenCount && entries.size()>1) {
+			Entry eldest = i.next();
+			i.remove();
+			tokenCount -= eldest.tokens.getCount();
+		}
+
+		return entry.tokens;
+
+	}
+
+
+	private void remove(int line) {
+		Entry entry = entries.remove(line);
+		if (entry!=null) {
+			tokenCount -= entry.tokens.getCount();
+		}
+	}
+
+
+	/**
+	 * A cached token list.
+	 */
+	private static class Entry {
+
+		private int line;
+		private int initialTokenType;
+		private TokenArray tokens;
+
+	}
+
+
+}
@@ -0,0 +1,216 @@
+/*
+ * 10/18/2026
+ *
+ * TokenListInternTable.java - Shares token lists between identical lines.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.text.Segment;
+
+
+/**
+ * Shares the token lists of lines in an {@link RSyntaxDocument} that have
+ * the same text and start in the same state.  Generated code, CSV files,
+ * logs and data files often contain many such lines, and a
+ * <code>TokenMaker</code> always splits them into the same tokens, so only
+ * the first needs to be tokenized.  The others get a {@link TokenArray}
+ * that shares its arrays, with only its start offset being different.<p>
+ *
+ * The syntax style isn't part of the key, so this table must be cleared
+ * whenever the document's syntax style changes.<p>
+ *
+ * A line is only interned the second time its text is seen, so that files
+ * with few repeated lines don't pay for churning the table.  Entries are
+ * evicted least-recently-used first once the total number of interned
+ * tokens passes a limit.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class TokenListInternTable {
+
+	private Map<Key, TokenArray> entries;
+	private Key probe;
+
+	/**
+	 * The hashes of recently missed lines, indexed by hash.
+	 */
+	private int[] missedHashes;
+
+	/**
+	 * Whether the last line missed had been missed before, and so is worth
+	 * interning.
+	 */
+	private boolean repeatMiss;
+	private int maxTokenCount;
+	private int tokenCount;
+	private int hitCount;
+	private int missCount;
+
+	/**
+	 * The size of <code>missedHashes</code>.  This must be a power of 2.
+	 */
+	private static final int MISSED_HASH_COUNT = 4096;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxTokenCount The maximum number of tokens to intern.
+	 */
+	TokenListInternTable(int maxTokenCount) {
+		this.maxTokenCount = maxTokenCount;
+		entries = new LinkedHashMap<>(256, 0.75f, true);
+		probe = new Key();
+		missedHashes = new int[MISSED_HASH_COUNT];
+	}
+
+
+	/**
+	 * Removes all interned token lists.
+	 */
+	void clear() {
+		entries.clear();
+		tokenCount = 0;
+	}
+
+
+	/**
+	 * Returns the tokens for a line, if a line with the same text and
+	 * initial token type has been interned.
+	 *
+	 * @param text The line's text.
+	 * @param initialTokenType The last token type of the previous line.
+	 * @param startOffset The start offset of the line.
+	 * @return The tokens, or <code>null</code> if there are none.
+	 */
+	TokenArray get(Segment text, int initialTokenType, int startOffset) {
+		probe.set(text.array, text.offset, text.count, initialTokenType);
+		TokenArray tokens = entries.get(probe);
+		probe.array = null; // Don't hold onto the document's text
+		if (tokens==null) {
+			int hash = probe.hash;
+			int index = (hash ^ (hash>>>12)) & (MISSED_HASH_COUNT-1);
+			repeatMiss = missedHashes[index]==hash;
+			missedHashes[index] = hash;
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return new TokenArray(tokens, startOffset);
+	}
+
+
+	/**
+	 * Returns the number of times a line's tokens were shared with another
+	 * line.
+	 *
+	 * @return The hit count.
+	 * @see #getMissCount()
+	 */
+	int getHitCount() {
+		return hitCount;
+	}
+
+
+	/**
+	 * Returns the number of times a line's tokens could not be shared with
+	 * another line.
+	 *
+	 * @return The miss count.
+	 * @see #getHitCount()
+	 */
+	int getMissCount() {
+		return missCount;
+	}
+
+
+	/**
+	 * Interns a line's tokens, if a line like it has been seen before.
+	 * This should be called right after {@link #get} returns
+	 * <code>null</code> for the line.
+	 *
+	 * @param initialTokenType The last token type of the previous line.
+	 * @param tokens The line's tokens.
+	 */
+	void put(int initialTokenType, TokenArray tokens) {
+
+		if (!repeatMiss) {
+			return;
+		}
+
+		char[] text = tokens.getLineText();
+		Key key = new Key();
+		key.set(text, 0, text.length, initialTokenType);
+		if (entries.put(key, tokens)==null) {
+			tokenCount += tokens.getCount();
+		}
+
+		// Evict the least recently used lines, but always keep this one
+		Iterator<TokenArray> i = entries.values().iterator();
+		while (tokenCount>maxTokenCount && entries.size()>1) {
+			TokenArray eldest = i.next();
+			i.remove();
+			tokenCount -= eldest.getCount();
+		}
+
+	}
+
+
+	/**
+	 * The text and initial token type of a line.
+	 */
+	private static final class Key {
+
+		private char[] array;
+		private int offset;
+		private int count;
+		private int initialTokenType;
+		private int hash;
+
+		void set(char[] array, int offset, int count, int initialTokenType) {
+			this.array = array;
+			this.offset = offset;
+			this.count = count;
+			this.initialTokenType = initialTokenType;
+			int h = initialTokenType;
+			for (int i=offset; i<offset+count; i++) {
+				h = 31*h + array[i];
+			}
+			hash = h;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key k2 = (Key)o;
+			if (hash!=k2.hash || count!=k2.count ||
+					initialTokenType!=k2.initialTokenType) {
+				return false;
+			}
+			for (int i=0; i<count; i++) {
+				if (array[offset+i]!=k2.array[k2.offset+i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+	}
+
+
+}
@@ -9,6 +9,11 @@
  */
 package org.fife.ui.rsyntaxtextarea;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javax.swing.text.Segment;
 
 
@@ -23,17 +28,52 @@ import javax.swing.text.Segment;
  * containing all reserved words, data types, and all other words that need to
  * be syntax-highlighted for that particular language.  When the token maker
  * parses a line and identifies an individual token, it is looked up in the
- * <code>TokenMap</code> to see if it should be syntax-highlighted.
+ * <code>TokenMap</code> to see if it should be syntax-highlighted.<p>
+ *
+ * The first lookup after words are added builds a perfect hash table over
+ * them (using the "hash and displace" technique), with the words' text
+ * packed into a single array.  After that, every lookup hashes the text
+ * once, reads one displacement value, and compares against at most one
+ * word, regardless of how many words there are or how alike they are.
+ * Lookups allocate nothing.
  *
  * @author Robert Futrell
  * @version 0.6
  */
 public class TokenMap {
 
-	private int size;
-	private TokenMapToken[] tokenMap;
 	private boolean ignoreCase;
 
+	/**
+	 * The words added, in the order they were added, and their token types.
+	 */
+	private char[][] words;
+	private int[] wordTypes;
+	private int wordCount;
+
+	/**
+	 * Whether the lookup table below must be rebuilt before it's used.
+	 */
+	private boolean dirty;
+
+	/**
+	 * Displacement values, one per bucket of words with the same hash.
+	 */
+	private int[] displacements;
+
+	/**
+	 * The lookup table.  For each slot, the offset of its word in
+	 * <code>chars</code>, its length (<code>-1</code> if the slot is empty)
+	 * and its token type.
+	 */
+	private int[] slotOffsets;
+	private int[] slotLengths;
+	private int[] slotTypes;
+	private char[] chars;
+	private int slotMask;
+	private int minLength;
+	private int maxLength;
+
 	private static final int DEFAULT_TOKEN_MAP_SIZE = 52;
 
 
@@ -48,7 +88,8 @@ public class TokenMap {
 	/**
 	 * Constructs a new token map that is case-sensitive.
 	 *
-	 * @param size The size of the token map.
+	 * @param size The expected number of words in the map.  This is only a
+	 *        hint.
 	 */
 	public TokenMap(int size) {
 		this(size, false);
@@ -69,27 +110,70 @@ public class TokenMap {
 	/**
 	 * Constructs a new token map.
 	 *
-	 * @param size The size of the token map.
+	 * @param size The expected number of words in the map.  This is only a
+	 *        hint.
 	 * @param ignoreCase Whether this token map should ignore case
 	 *        when comparing tokens.
 	 */
 	public TokenMap(int size, boolean ignoreCase) {
-		this.size = size;
-		tokenMap = new TokenMapToken[size];
+		words = new char[Math.max(size, 1)][];
+		wordTypes = new int[words.length];
 		this.ignoreCase = ignoreCase;
+		dirty = true;
 	}
 
 
 	/**
-	 * Adds a token to a specified bucket in the token map.
-	 *
-	 * @param bucket The bucket in which to add the token.
-	 * @param token The token to add.
+	 * Builds the perfect hash table used for lookups.  Words are grouped
+	 * into buckets by their hash; then, largest bucket first, each bucket
+	 * is given a displacement value that, mixed into its words' hashes,
+	 * sends each of them to an empty slot.
 	 */
-	private void addTokenToBucket(int bucket, TokenMapToken token) {
-		TokenMapToken old = tokenMap[bucket];
-		token.nextToken = old;
-		tokenMap[bucket] = token;
+	private void buildLookupTable() {
+
+		// Later additions of the same word replace earlier ones
+		Map<String, Integer> unique = new LinkedHashMap<>();
+		for (int i=0; i<wordCount; i++) {
+			String word = new String(words[i]);
+			unique.remove(word);
+			unique.put(word, wordTypes[i]);
+		}
+		int count = unique.size();
+
+		String[] keys = unique.keySet().toArray(new String[count]);
+		int[] hashes = new int[count];
+		int totalLength = 0;
+		minLength = Integer.MAX_VALUE;
+		maxLength = 0;
+		for (int i=0; i<count; i++) {
+			char[] word = keys[i].toCharArray();
+			hashes[i] = getHashCode(word, 0, word.length);
+			totalLength += word.length;
+			minLength = Math.min(minLength, word.length);
+			maxLength = Math.max(maxLength, word.length);
+		}
+
+		chars = new char[totalLength];
+		int bucketCount = Math.max(1, count/2);
+		int slotCount = Integer.highestOneBit(Math.max(1, count)*2-1);
+
+		while (!placeWords(keys, hashes, bucketCount, slotCount)) {
+			slotCount <<= 1;
+		}
+
+		int offset = 0;
+		for (int slot=0; slot<slotCount; slot++) {
+			if (slotLengths[slot]>-1) {
+				String word = keys[slotOffsets[slot]];
+				word.getChars(0, word.length(), chars, offset);
+				slotOffsets[slot] = offset;
+				slotTypes[slot] = unique.get(word);
+				offset += word.length();
+			}
+		}
+
+		dirty = false;
+
 	}
 
 
@@ -120,15 +204,23 @@ public class TokenMap {
 	 */
 	public int get(char[] array1, int start, int end) {
 
+		if (dirty) {
+			buildLookupTable();
+		}
+
 		int length1 = end - start + 1;
+		if (length1<minLength || length1>maxLength) {
+			return -1;
+		}
 
 		int hash = getHashCode(array1, start, length1);
-		TokenMapToken token = tokenMap[hash];
+		int bucket = (hash & 0x7fffffff) % displacements.length;
+		int slot = getSlot(hash, displacements[bucket]);
+		if (slotLengths[slot]!=length1) {
+			return -1;
+		}
 
-		char[] array2;
-		int offset2;
-		int offset1;
-		int length;
+		int offset2 = slotOffsets[slot];
 
 		/* We check whether to ignore case before doing any looping to
 		 * minimize the number of extraneous comparisons we do.  This makes
@@ -137,70 +229,68 @@ public class TokenMap {
 
 		// If matches are case-sensitive (C, C++, Java, etc.)...
 		if (!ignoreCase) {
-
-		mainLoop:
-			while (token!=null) {
-				if (token.length==length1) {
-					array2  = token.text;
-					offset2 = token.offset;
-					offset1 = start;
-					length  = length1;
-					while (length-- > 0) {
-						if (array1[offset1++]!=array2[offset2++]) {
-							token = token.nextToken;
-							continue mainLoop;
-						}
-					}
-					return token.tokenType;
+			for (int i=0; i<length1; i++) {
+				if (array1[start+i]!=chars[offset2+i]) {
+					return -1;
 				}
-				token = token.nextToken;
 			}
-
 		}
 
 		// If matches are NOT case-sensitive (HTML)...
 		// Note that all tokens saved in this map were converted to
 		// lower-case already.
 		else {
-
-		mainLoop2:
-			while (token!=null) {
-				if (token.length==length1) {
-					array2  = token.text;
-					offset2 = token.offset;
-					offset1 = start;
-					length  = length1;
-					while (length-- > 0) {
-						if (RSyntaxUtilities.toLowerCase(
-							array1[offset1++]) != array2[offset2++]) {
-							token = token.nextToken;
-							continue mainLoop2;
-						}
-					}
-					return token.tokenType;
+			for (int i=0; i<length1; i++) {
+				if (RSyntaxUtilities.toLowerCase(array1[start+i]) !=
+						chars[offset2+i]) {
+					return -1;
 				}
-				token = token.nextToken;
 			}
-
 		}
 
-		// Didn't match any of the tokens in the bucket.
-		return -1;
+		return slotTypes[slot];
 
 	}
 
 
 	/**
-	 * Returns the hash code for a given string.
+	 * Returns the hash code for a given string.  All characters are hashed,
+	 * along with the length.
 	 *
 	 * @param text The text to hash.
 	 * @param offset The offset into the text at which to start hashing.
-	 * @param length The last character in the text to hash.
+	 * @param length The number of characters to hash.
 	 * @return The hash code.
 	 */
 	private int getHashCode(char[] text, int offset, int length) {
-		return (RSyntaxUtilities.toLowerCase(text[offset]) +
-				RSyntaxUtilities.toLowerCase(text[offset+length-1])) % size;
+		int hash = length;
+		if (ignoreCase) {
+			for (int i=0; i<length; i++) {
+				hash = 31*hash + RSyntaxUtilities.toLowerCase(text[offset+i]);
+			}
+		}
+		else {
+			for (int i=0; i<length; i++) {
+				hash = 31*hash + text[offset+i];
+			}
+		}
+		return hash;
+	}
+
+
+	/**
+	 * Returns the slot for a word, given its hash and the displacement
+	 * value of its bucket.
+	 */
+	private int getSlot(int hash, int displacement) {
+		// The "fmix32" finalizer from MurmurHash3
+		int h = hash ^ (displacement * 0x9e3779b9);
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h & slotMask;
 	}
 
 
@@ -216,6 +306,78 @@ public class TokenMap {
 	}
 
 
+	/**
+	 * Tries to place all words into a table with a given number of slots.
+	 *
+	 * @param keys The words.
+	 * @param hashes The words' hash codes.
+	 * @param bucketCount The number of buckets to group the words into.
+	 * @param slotCount The number of slots.  This is a power of two.
+	 * @return Whether all words were placed.  On success,
+	 *         <code>slotOffsets</code> temporarily holds each slot's index
+	 *         into <code>keys</code>.
+	 */
+	private boolean placeWords(String[] keys, int[] hashes, int bucketCount,
+			int slotCount) {
+
+		// Group the words into buckets, largest bucket first
+		int[][] buckets = new int[bucketCount][];
+		int[] bucketSizes = new int[bucketCount];
+		for (int hash : hashes) {
+			bucketSizes[(hash & 0x7fffffff) % bucketCount]++;
+		}
+		for (int b=0; b<bucketCount; b++) {
+			buckets[b] = new int[bucketSizes[b]];
+			bucketSizes[b] = 0;
+		}
+		for (int i=0; i<hashes.length; i++) {
+			int b = (hashes[i] & 0x7fffffff) % bucketCount;
+			buckets[b][bucketSizes[b]++] = i;
+		}
+		Integer[] order = new Integer[bucketCount];
+		for (int b=0; b<bucketCount; b++) {
+			order[b] = b;
+		}
+		final int[] sizes = bucketSizes;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer b1, Integer b2) {
+				return sizes[b2] - sizes[b1];
+			}
+		});
+
+		slotMask = slotCount - 1;
+		displacements = new int[bucketCount];
+		slotOffsets = new int[slotCount];
+		slotLengths = new int[slotCount];
+		slotTypes = new int[slotCount];
+		Arrays.fill(slotLengths, -1);
+		int[] slots = new int[hashes.length];
+
+		for (int b : order) {
+			int[] bucket = buckets[b];
+			if (bucket.length==0) {
+				break;
+			}
+			int displacement = 0;
+			while (!tryDisplacement(bucket, hashes, displacement, slots)) {
+				if (++displacement==10000) {
+					return false;
+				}
+			}
+			displacements[b] = displacement;
+			for (int i=0; i<bucket.length; i++) {
+				int word = bucket[i];
+				slotOffsets[slots[i]] = word;
+				slotLengths[slots[i]] = keys[word].length();
+			}
+		}
+
+		return true;
+
+	}
+
+
 	/**
 	 * Adds a string to this token map.
 	 *
@@ -243,36 +405,44 @@ public class TokenMap {
 	 * @param tokenType The type of token the string is.
 	 */
 	private void put(char[] string, int tokenType) {
-		int hashCode = getHashCode(string, 0, string.length);
-		addTokenToBucket(hashCode, new TokenMapToken(string, tokenType));
+		if (string.length==0) {
+			return; // Never matched; get() is always given >= 1 char
+		}
+		if (wordCount==words.length) {
+			words = Arrays.copyOf(words, wordCount*2);
+			wordTypes = Arrays.copyOf(wordTypes, wordCount*2);
+		}
+		words[wordCount] = string;
+		wordTypes[wordCount++] = tokenType;
+		dirty = true;
 	}
 
 
 	/**
-	 * The "token" used by a token map.  Note that this isn't the same thing
-	 * as the {@link Token} class, but it's basically a 1-1 correspondence
-	 * for reserved words, etc.
+	 * Checks whether a displacement value sends all words in a bucket to
+	 * distinct, empty slots.
+	 *
+	 * @param bucket The indices of the words in the bucket.
+	 * @param hashes The words' hash codes.
+	 * @param displacement The displacement value to try.
+	 * @param slots Receives the slot for each word in the bucket.
+	 * @return Whether the displacement value works.
 	 */
-	private static final class TokenMapToken {
-
-		private char[] text;
-		private int offset;
-		private int length;
-		private int tokenType;
-		private TokenMapToken nextToken;
-
-		private TokenMapToken(char[] text, int tokenType) {
-			this.text = text;
-			this.offset = 0;
-			this.length = text.length;
-			this.tokenType = tokenType;
-		}
-
-		@Override
-		public String toString() {
-			return "[TokenMapToken: " + new String(text,offset,length) + "]";
+	private boolean tryDisplacement(int[] bucket, int[] hashes,
+			int displacement, int[] slots) {
+		for (int i=0; i<bucket.length; i++) {
+			int slot = getSlot(hashes[bucket[i]], displacement);
+			if (slotLengths[slot]>-1) {
+				return false;
+			}
+			for (int j=0; j<i; j++) {
+				if (slots[j]==slot) {
+					return false;
+				}
+			}
+			slots[i] = slot;
 		}
-
+		return true;
 	}
 
 
@@ -73,6 +73,12 @@ public class WrappedSyntaxView extends BoxView implements TabExpander,
 	private TokenImpl tempToken;
 	private TokenImpl lineCountTempToken;
 
+	/**
+	 * Used to iterate over the tokens of lines being painted and measured.
+	 */
+	private TokenArray.Cursor cursor;
+	private TokenArray.Cursor lineCountCursor;
+
 	/**
 	 * The width of this view cannot be below this amount, as if the width
 	 * is ever 0 (really a bug), we'll go into an infinite loop.
@@ -93,6 +99,8 @@ public class WrappedSyntaxView extends BoxView implements TabExpander,
 		drawSeg = new Segment();
 		tempRect = new Rectangle();
 		lineCountTempToken = new TokenImpl();
+		cursor = new TokenArray.Cursor();
+		lineCountCursor = new TokenArray.Cursor();
 	}
 
 
@@ -230,7 +238,8 @@ public class WrappedSyntaxView extends BoxView implements TabExpander,
 		setSegment(p0,p1-1, document, drawSeg);
 		//System.err.println("drawSeg=='" + drawSeg + "' (p0/p1==" + p0 + "/" + p1 + ")");
 		int start = p0 - drawSeg.offset;
-		Token token = document.getTokenListForLine(lineNumber);
+		TokenArray tokens = document.getTokenArrayForLine(lineNumber);
+		Token token = tokens!=null ? cursor.load(tokens, 0) : null;
 
 		// If this line is an empty line, then the token list is simply a
 		// null token.  In this case, the line highlight will be skipped in
@@ -320,7 +329,8 @@ public class WrappedSyntaxView extends BoxView implements TabExpander,
 		setSegment(p0,p1-1, document, drawSeg);
 		//System.err.println("drawSeg=='" + drawSeg + "' (p0/p1==" + p0 + "/" + p1 + ")");
 		int start = p0 - drawSeg.offset;
-		Token token = document.getTokenListForLine(lineNumber);
+		TokenArray tokens = document.getTokenArrayForLine(lineNumber);
+		Token token = tokens!=null ? cursor.load(tokens, 0) : null;
 
 		// If this line is an empty line, then the token list is simply a
 		// null token.  In this case, the line highlight will be skipped in
@@ -1177,7 +1187,9 @@ public class WrappedSyntaxView extends BoxView implements TabExpander,
 			RSyntaxDocument doc = (RSyntaxDocument)getDocument();
 			Element map = doc.getDefaultRootElement();
 			int line = map.getElementIndex(startOffset);
-			Token tokenList = doc.getTokenListForLine(line);
+			TokenArray tokens = doc.getTokenArrayForLine(line);
+			Token tokenList = tokens!=null ? lineCountCursor.load(tokens, 0) :
+					null;
 			float x0 = 0;// FIXME:  should be alloc.x!! alloc.x;//0;
 
 
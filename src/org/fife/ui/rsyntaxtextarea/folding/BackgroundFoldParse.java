@@ -0,0 +1,268 @@
+/*
+ * 10/18/2026
+ *
+ * BackgroundFoldParse.java - Finds folds in a snapshot of a document.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea.folding;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+
+
+/**
+ * Runs a {@link BackgroundFoldParser} on a worker thread.  The document's
+ * text is copied into a snapshot document, which is tokenized and parsed
+ * without blocking the EDT.  The text is copied a chunk at a time, each
+ * under the document's read lock, so edits are never held up for long.
+ * The folds found are handed back to the {@link DefaultFoldManager} on the
+ * EDT, which applies them only if the document hasn't changed since the
+ * text was copied.<p>
+ *
+ * Each parse has its own snapshot, and its own stand-in text area to pass
+ * to the parser, so parses share no state and any number of them can run
+ * at once.<p>
+ *
+ * A parse is dropped as soon as it is known to be stale, either because the
+ * document was modified or because a newer parse was started.  The fold
+ * manager starts a new one after the edit, just as it does for parsers run
+ * on the EDT.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class BackgroundFoldParse implements Runnable {
+
+	private DefaultFoldManager foldManager;
+	private RSyntaxDocument doc;
+	private RSyntaxDocument snapshot;
+	private SnapshotTextArea snapshotTextArea;
+	private FoldParser parser;
+	private int modCount;
+	private volatile boolean cancelled;
+
+	/**
+	 * The number of chars copied from the document at a time.
+	 */
+	private static final int COPY_CHUNK_SIZE = 64 * 1024;
+
+	private static ExecutorService executor;
+
+
+	private BackgroundFoldParse(DefaultFoldManager foldManager,
+			RSyntaxDocument doc, RSyntaxDocument snapshot, FoldParser parser,
+			int modCount) {
+		this.foldManager = foldManager;
+		this.doc = doc;
+		this.snapshot = snapshot;
+		this.snapshotTextArea = new SnapshotTextArea(snapshot);
+		this.parser = parser;
+		this.modCount = modCount;
+	}
+
+
+	/**
+	 * Stops this parse, if it hasn't finished yet.  Its folds won't be
+	 * handed back to the fold manager.
+	 */
+	void cancel() {
+		cancelled = true;
+	}
+
+
+	/**
+	 * Copies the document's text into the snapshot.
+	 *
+	 * @return Whether the text was copied.  This is <code>false</code> if
+	 *         this parse is stale.
+	 */
+	private boolean copyText() {
+		try {
+			snapshot.insert(0, new DocumentReader(), COPY_CHUNK_SIZE);
+		} catch (IOException | BadLocationException e) { // Never happens
+			e.printStackTrace();
+			return false;
+		}
+		return !isStale();
+	}
+
+
+	/**
+	 * Returns the executor parses run on.
+	 *
+	 * @return The executor.
+	 */
+	private static synchronized ExecutorService getExecutor() {
+		if (executor==null) {
+			executor = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "Fold parser");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return executor;
+	}
+
+
+	/**
+	 * Returns the fold manager's modification count when this parse was
+	 * started.
+	 *
+	 * @return The modification count.
+	 */
+	int getModCount() {
+		return modCount;
+	}
+
+
+	/**
+	 * Returns whether the document has been modified, or this parse
+	 * cancelled, since it was started.
+	 *
+	 * @return Whether this parse is stale.
+	 */
+	private boolean isStale() {
+		return cancelled || foldManager.getModCount()!=modCount;
+	}
+
+
+	@Override
+	public void run() {
+
+		List<Fold> folds = null;
+		try {
+			if (!isStale() && copyText()) {
+				folds = parser.getFolds(snapshotTextArea);
+			}
+		} catch (RuntimeException re) { // A bug in the fold parser
+			re.printStackTrace();
+		}
+		snapshot = null;
+		snapshotTextArea = null;
+
+		if (folds!=null && !isStale()) {
+			final List<Fold> result = folds;
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					foldManager.backgroundParseDone(
+							BackgroundFoldParse.this, result);
+				}
+			});
+		}
+
+	}
+
+
+	/**
+	 * Starts finding folds in a document on a worker thread.  This should
+	 * be called on the EDT.
+	 *
+	 * @param foldManager The fold manager to hand the folds back to.
+	 * @param doc The document.
+	 * @param parser The fold parser to use.
+	 * @param modCount The fold manager's current modification count.
+	 * @return The parse, or <code>null</code> if the document's syntax
+	 *         style can't be reproduced in a snapshot.  In that case, the
+	 *         caller should parse the document itself.
+	 */
+	static BackgroundFoldParse start(DefaultFoldManager foldManager,
+			RSyntaxDocument doc, BackgroundFoldParser parser, int modCount) {
+
+		RSyntaxDocument snapshot = doc.createSnapshotDocument();
+		if (snapshot==null) {
+			return null;
+		}
+
+		BackgroundFoldParse parse = new BackgroundFoldParse(foldManager, doc,
+				snapshot, parser, modCount);
+		getExecutor().execute(parse);
+		return parse;
+
+	}
+
+
+	/**
+	 * Reads the document's text a chunk at a time, each under the
+	 * document's read lock.  Reading stops early if this parse becomes
+	 * stale, since the text may then have changed between chunks.
+	 */
+	private final class DocumentReader extends Reader {
+
+		private int offs;
+		private Segment segment;
+
+		private DocumentReader() {
+			segment = new Segment();
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			doc.readLock();
+			try {
+				int count = Math.min(len, doc.getLength()-offs);
+				if (count<=0 || isStale()) {
+					return -1;
+				}
+				doc.getText(offs, count, segment);
+				// The segment may share the document's array, so copy it
+				// before releasing the lock.
+				System.arraycopy(segment.array, segment.offset, cbuf, off,
+						count);
+				offs += count;
+				return count;
+			} catch (BadLocationException ble) { // Never happens
+				throw new IOException(ble);
+			} finally {
+				doc.readUnlock();
+			}
+		}
+
+	}
+
+
+	/**
+	 * The text area passed to the fold parser.  Its document is the
+	 * snapshot, and it is never displayed, so it has no UI.  Each parse has
+	 * its own.
+	 */
+	private static final class SnapshotTextArea extends RSyntaxTextArea {
+
+		private final RSyntaxDocument snapshot;
+
+		private SnapshotTextArea(RSyntaxDocument snapshot) {
+			this.snapshot = snapshot;
+		}
+
+		@Override
+		public Document getDocument() {
+			// Called by our super constructor, before snapshot is set
+			return snapshot!=null ? snapshot : super.getDocument();
+		}
+
+		@Override
+		public void updateUI() {
+			// Never displayed, so don't install a UI
+		}
+
+	}
+
+
+}
@@ -0,0 +1,38 @@
+/*
+ * 10/18/2026
+ *
+ * BackgroundFoldParser.java - A fold parser that can run off the EDT.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea.folding;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+
+
+/**
+ * A fold parser that can be run on a background thread.  For large
+ * documents, {@link DefaultFoldManager} runs parsers implementing this
+ * interface on a worker thread, against a snapshot of the document, so that
+ * the EDT isn't blocked while they tokenize the whole file.  The folds found
+ * are only applied if the document hasn't been modified in the meantime;
+ * otherwise they are dropped, and the document is parsed again after the
+ * edit.<p>
+ *
+ * When run in the background, the text area passed to
+ * {@link #getFolds(RSyntaxTextArea)} is a stand-in whose document is the
+ * snapshot.  Implementations should only use that document, directly or via
+ * {@link RSyntaxTextArea#getLineCount()} and
+ * {@link RSyntaxTextArea#getTokenListForLine(int)}.  Since fold parser
+ * instances are shared by all text areas, they must also be safe to use on
+ * several threads at once, which is the case if they keep no state between
+ * calls.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see XmlFoldParser
+ * @see HtmlFoldParser
+ */
+public interface BackgroundFoldParser extends FoldParser {
+}
@@ -8,7 +8,6 @@
  */
 package org.fife.ui.rsyntaxtextarea.folding;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.text.BadLocationException;
@@ -35,14 +34,15 @@ import org.fife.ui.rsyntaxtextarea.Token;
  * different tokens than curly braces to denote foldable regions by overriding
  * those two methods.<p>
  *
- * Note also that this class may impose somewhat of a performance penalty on
- * large source files, since it reparses the entire document each time folds
- * are reevaluated.
+ * This parser is an {@link IncrementalFoldParser}, so after an edit only the
+ * region around it is re-parsed.  Subclasses that override
+ * {@link #getFolds(RSyntaxTextArea)} with a different algorithm should
+ * override {@link #getFolds(RSyntaxTextArea, FoldParseContext)} as well.
  *
  * @author Robert Futrell
  * @version 1.0
  */
-public class CurlyFoldParser implements FoldParser {
+public class CurlyFoldParser implements IncrementalFoldParser {
 
 	/**
 	 * Whether to scan for C-style multi-line comments and make them foldable.
@@ -102,10 +102,18 @@ public class CurlyFoldParser implements FoldParser {
 
 	@Override
 	public List<Fold> getFolds(RSyntaxTextArea textArea) {
+		FoldParseContext context = new FoldParseContext();
+		getFolds(textArea, context);
+		return context.getFolds();
+	}
+
+
+	@Override
+	public void getFolds(RSyntaxTextArea textArea, FoldParseContext context) {
 
-		List<Fold> folds = new ArrayList<>();
+		List<Fold> folds = context.getFolds();
 
-		Fold currentFold = null;
+		Fold currentFold = context.getOpenFold();
 		int lineCount = textArea.getLineCount();
 		boolean inMLC = false;
 		int mlcStart = 0;
@@ -118,7 +126,7 @@ public class CurlyFoldParser implements FoldParser {
 
 		try {
 
-			for (int line=0; line<lineCount; line++) {
+			for (int line=context.getStartLine(); line<lineCount; line++) {
 
 				Token t = textArea.getTokenListForLine(line);
 				while (t!=null && t.isPaintable()) {
@@ -284,14 +292,17 @@ public class CurlyFoldParser implements FoldParser {
 
 				}
 
+				if (context.lineParsed(line, currentFold,
+						!inMLC && importStartLine==-1)) {
+					break;
+				}
+
 			}
 
 		} catch (BadLocationException ble) { // Should never happen
 			ble.printStackTrace();
 		}
 
-		return folds;
-
 	}
 
 
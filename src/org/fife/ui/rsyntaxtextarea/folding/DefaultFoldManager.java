@@ -24,6 +24,7 @@ import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
 import org.fife.ui.rsyntaxtextarea.RSyntaxUtilities;
 import org.fife.ui.rsyntaxtextarea.parser.AbstractParser;
 import org.fife.ui.rsyntaxtextarea.parser.DefaultParseResult;
+import org.fife.ui.rsyntaxtextarea.parser.IncrementalParser;
 import org.fife.ui.rsyntaxtextarea.parser.ParseResult;
 import org.fife.ui.rsyntaxtextarea.parser.Parser;
 import org.fife.ui.rtextarea.RDocument;
@@ -40,6 +41,13 @@ import org.fife.ui.rtextarea.RDocument;
  *    <li>If the text area's {@link RSyntaxTextArea#SYNTAX_STYLE_PROPERTY}
  *        changes, the current fold parser is uninstalled, and one appropriate
  *        for the new language, if any, is installed.
+ *    <li>If the fold parser is an {@link IncrementalFoldParser}, only the
+ *        region around the lines modified since folds were last parsed is
+ *        re-parsed, and the result is spliced into the existing folds.
+ *    <li>If the fold parser is a {@link BackgroundFoldParser} and the
+ *        document is large, it is run on a worker thread against a snapshot
+ *        of the document.  The folds found are applied only if the document
+ *        hasn't been modified since the snapshot was taken.
  * </ul>
  *
  * The folding strategy to use is retrieved from {@link FoldParserManager}.
@@ -57,6 +65,31 @@ public class DefaultFoldManager implements FoldManager {
 	private PropertyChangeSupport support;
 	private Listener l;
 
+	/**
+	 * The lines an incremental fold parser can restart on, or
+	 * <code>null</code> if the current folds weren't found by one.
+	 */
+	private RestartLines restartLines;
+
+	/**
+	 * The lines hidden by collapsed folds.  This is rebuilt lazily.
+	 */
+	private HiddenLineIndex hiddenLines;
+
+	/**
+	 * The fold parse running on a worker thread, if any, and a count of
+	 * edits to the document, so it can tell when its results are stale.
+	 */
+	private BackgroundFoldParse backgroundParse;
+	private volatile int modCount;
+
+	/**
+	 * The length at which documents are parsed on a worker thread, if the
+	 * fold parser supports it.  Smaller ones are parsed on the EDT, which is
+	 * fast enough, and applies folds with no delay.
+	 */
+	static final int MIN_BACKGROUND_PARSE_LENGTH = 1024 * 1024;
+
 
 	/**
 	 * Constructor.
@@ -71,6 +104,7 @@ public class DefaultFoldManager implements FoldManager {
 		textArea.addPropertyChangeListener(RSyntaxTextArea.SYNTAX_STYLE_PROPERTY, l);
 		textArea.addPropertyChangeListener("document", l);
 		folds = new ArrayList<>();
+		hiddenLines = new HiddenLineIndex();
 		updateFoldParser();
 	}
 
@@ -81,9 +115,86 @@ public class DefaultFoldManager implements FoldManager {
 	}
 
 
+	/**
+	 * Applies the folds found by a fold parser on a worker thread, unless
+	 * the document has been modified since.  Called on the EDT.
+	 *
+	 * @param parse The background parse.
+	 * @param snapshotFolds The folds it found, in a snapshot of the
+	 *        document.
+	 */
+	void backgroundParseDone(BackgroundFoldParse parse,
+			List<Fold> snapshotFolds) {
+
+		if (parse!=backgroundParse) {
+			return; // Cancelled, or a newer parse has been started
+		}
+		backgroundParse = null;
+		if (parse.getModCount()!=modCount) {
+			return; // Stale; the document will be re-parsed after the edit
+		}
+
+		// The snapshot's text is the document's, so its folds' offsets are
+		// valid here as well.
+		List<Fold> newFolds = new ArrayList<>(snapshotFolds.size());
+		try {
+			for (Fold fold : snapshotFolds) {
+				newFolds.add(copyFold(fold, null));
+			}
+		} catch (BadLocationException ble) { // Never happens
+			ble.printStackTrace();
+			return;
+		}
+
+		restartLines = null;
+		setParsedFolds(newFolds);
+
+	}
+
+
+	/**
+	 * Cancels the fold parse running on a worker thread, if any.
+	 */
+	private void cancelBackgroundParse() {
+		if (backgroundParse!=null) {
+			backgroundParse.cancel();
+			backgroundParse = null;
+		}
+	}
+
+
 	@Override
 	public void clear() {
+		cancelBackgroundParse();
 		folds.clear();
+		restartLines = null;
+		hiddenLines.invalidate();
+	}
+
+
+	/**
+	 * Creates a fold in this text area's document at the same offsets as a
+	 * fold in another document with the same text.
+	 *
+	 * @param fold The fold to copy, along with its children.
+	 * @param parent The parent of the copy, or <code>null</code> for it to
+	 *        be a top-level fold.
+	 * @return The copy.
+	 * @throws BadLocationException If the fold isn't valid in this
+	 *         document.
+	 */
+	private Fold copyFold(Fold fold, Fold parent) throws BadLocationException {
+		int type = fold.getFoldType();
+		int startOffs = fold.getStartOffset();
+		Fold copy = parent==null ? new Fold(type, textArea, startOffs) :
+				parent.createChild(type, startOffs);
+		if (fold.getEndPosition()!=null) {
+			copy.setEndOffset(fold.getEndOffset());
+		}
+		for (int i=0; i<fold.getChildCount(); i++) {
+			copyFold(fold.getChild(i), copy);
+		}
+		return copy;
 	}
 
 
@@ -110,6 +221,16 @@ public class DefaultFoldManager implements FoldManager {
 	}
 
 
+	/**
+	 * Called by a fold when it is collapsed or expanded.
+	 *
+	 * @param fold The fold.
+	 */
+	void foldToggled(Fold fold) {
+		hiddenLines.invalidate();
+	}
+
+
 	@Override
 	public Fold getDeepestFoldContaining(int offs) {
 		Fold deepestFold = null;
@@ -200,11 +321,7 @@ private Fold getFoldForLineImpl(Fold parent, List<Fold> folds, int line) {
 
 	@Override
 	public int getHiddenLineCount() {
-		int count = 0;
-		for (Fold fold : folds) {
-			count += fold.getCollapsedLineCount();
-		}
-		return count;
+		return getHiddenLineIndex().getHiddenLineCount();
 	}
 
 
@@ -216,62 +333,22 @@ private Fold getFoldForLineImpl(Fold parent, List<Fold> folds, int line) {
 
 	@Override
 	public int getHiddenLineCountAbove(int line, boolean physical) {
-
-		int count = 0;
-
-		for (Fold fold : folds) {
-			int comp = physical ? line+count : line;
-			if (fold.getStartLine()>=comp) {
-				break;
-			}
-			count += getHiddenLineCountAboveImpl(fold, comp, physical);
-		}
-
-		return count;
-
+		return getHiddenLineIndex().getHiddenLineCountAbove(line, physical);
 	}
 
 
 	/**
-	 * Returns the number of lines "hidden" by collapsed folds above the
-	 * specified line.
+	 * Returns the lines hidden by collapsed folds, rebuilding the index of
+	 * them if necessary.
 	 *
-	 * @param fold The current fold in the recursive algorithm.  It and its
-	 *        children are examined.
-	 * @param line The line.
-	 * @param physical Whether <code>line</code> is the number of a physical
-	 *        line (i.e. visible, not code-folded), or a logical one (i.e. any
-	 *        line from the model).  If <code>line</code> was determined by a
-	 *        raw line calculation (i.e. <code>(visibleTopY / lineHeight)</code>),
-	 *        this value should be <code>true</code>.  It should be
-	 *        <code>false</code> when it was calculated from an offset in the
-	 *        document (for example).
-	 * @return The number of lines hidden in folds that are descendants of
-	 *         <code>fold</code>, or <code>fold</code> itself, above
-	 *         <code>line</code>.
+	 * @return The index.
 	 */
-	private int getHiddenLineCountAboveImpl(Fold fold, int line, boolean physical) {
-
-		int count = 0;
-
-		if (fold.getEndLine()<line ||
-				(fold.isCollapsed() && fold.getStartLine()<line)) {
-			count = fold.getCollapsedLineCount();
-		}
-		else {
-			int childCount = fold.getChildCount();
-			for (int i=0; i<childCount; i++) {
-				Fold child = fold.getChild(i);
-				int comp = physical ? line+count : line;
-				if (child.getStartLine()>=comp) {
-					break;
-				}
-				count += getHiddenLineCountAboveImpl(child, comp, physical);
-			}
+	private HiddenLineIndex getHiddenLineIndex() {
+		int lineCount = textArea.getLineCount();
+		if (!hiddenLines.isValid(lineCount)) {
+			hiddenLines.rebuild(folds, lineCount);
 		}
-
-		return count;
-
+		return hiddenLines;
 	}
 
 
@@ -311,6 +388,17 @@ private Fold getFoldForLineImpl(Fold parent, List<Fold> folds, int line) {
 	}
 
 
+	/**
+	 * Returns the number of times the document has been modified.  This may
+	 * be called on any thread.
+	 *
+	 * @return The modification count.
+	 */
+	int getModCount() {
+		return modCount;
+	}
+
+
 	@Override
 	public int getVisibleLineAbove(int line) {
 
@@ -318,9 +406,13 @@ private Fold getFoldForLineImpl(Fold parent, List<Fold> folds, int line) {
 			return -1;
 		}
 
-		do {
-			line--;
-		} while (line>=0 && isLineHidden(line));
+		// Skip over collapsed folds rather than line by line
+		HiddenLineIndex index = getHiddenLineIndex();
+		line--;
+		int fold;
+		while ((fold=index.getIndexHiding(line))>-1) {
+			line = index.getStartLine(fold);
+		}
 
 		return line;
 
@@ -335,11 +427,15 @@ private Fold getFoldForLineImpl(Fold parent, List<Fold> folds, int line) {
 			return -1;
 		}
 
-		do {
-			line++;
-		} while (line<lineCount && isLineHidden(line));
+		// Skip over collapsed folds rather than line by line
+		HiddenLineIndex index = getHiddenLineIndex();
+		line++;
+		int fold;
+		while ((fold=index.getIndexHiding(line))>-1) {
+			line = index.getEndLine(fold) + 1;
+		}
 
-		return line==lineCount ? -1 : line;
+		return line>=lineCount ? -1 : line;
 
 	}
 
@@ -364,33 +460,7 @@ private Fold getFoldForLineImpl(Fold parent, List<Fold> folds, int line) {
 
 	@Override
 	public boolean isLineHidden(int line) {
-		for (Fold fold : folds) {
-			if (fold.containsLine(line)) {
-				if (fold.isCollapsed()) {
-					return true;
-				}
-				else {
-					return isLineHiddenImpl(fold, line);
-				}
-			}
-		}
-		return false;
-	}
-
-
-	private boolean isLineHiddenImpl(Fold parent, int line) {
-		for (int i=0; i<parent.getChildCount(); i++) {
-			Fold child = parent.getChild(i);
-			if (child.containsLine(line)) {
-				if (child.isCollapsed()) {
-					return true;
-				}
-				else {
-					return isLineHiddenImpl(child, line);
-				}
-			}
-		}
-		return false;
+		return getHiddenLineIndex().getIndexHiding(line)>-1;
 	}
 
 
@@ -429,6 +499,29 @@ private Fold getFoldForLineImpl(Fold parent, List<Fold> folds, int line) {
 	}
 
 
+	/**
+	 * Updates what is kept about lines after lines are added or removed.
+	 *
+	 * @param e The document event.
+	 */
+	private void linesChanged(DocumentEvent e) {
+
+		Element root = e.getDocument().getDefaultRootElement();
+		DocumentEvent.ElementChange change = e.getChange(root);
+		if (change==null) {
+			return;
+		}
+
+		hiddenLines.invalidate();
+		if (restartLines!=null) {
+			int delta = change.getChildrenAdded().length -
+					change.getChildrenRemoved().length;
+			restartLines.linesChanged(change.getIndex(), delta);
+		}
+
+	}
+
+
 	@Override
 	public void removePropertyChangeListener(PropertyChangeListener l) {
 		support.removePropertyChangeListener(l);
@@ -438,27 +531,73 @@ private Fold getFoldForLineImpl(Fold parent, List<Fold> folds, int line) {
 	@Override
 	public void reparse() {
 
+		cancelBackgroundParse();
+
 		if (codeFoldingEnabled && foldParser!=null) {
 
+			// Parse large documents on a worker thread if possible
+			RSyntaxDocument doc = (RSyntaxDocument)textArea.getDocument();
+			if (foldParser instanceof BackgroundFoldParser &&
+					doc.getLength()>=MIN_BACKGROUND_PARSE_LENGTH) {
+				backgroundParse = BackgroundFoldParse.start(this, doc,
+						(BackgroundFoldParser)foldParser, modCount);
+				if (backgroundParse!=null) {
+					return;
+				}
+			}
+
 			// Re-calculate folds.  Keep the fold state of folds that are
 			// still around.
-			List<Fold> newFolds = foldParser.getFolds(textArea);
-			if (newFolds==null) {
-				newFolds = Collections.emptyList();
+			List<Fold> newFolds;
+			if (foldParser instanceof IncrementalFoldParser) {
+				if (restartLines==null) {
+					restartLines = new RestartLines();
+				}
+				FoldParseContext context = new FoldParseContext(textArea,
+						restartLines);
+				((IncrementalFoldParser)foldParser).getFolds(textArea, context);
+				newFolds = context.getFolds();
 			}
 			else {
-				keepFoldStates(newFolds, folds);
+				restartLines = null;
+				newFolds = foldParser.getFolds(textArea);
 			}
-			folds = newFolds;
-
-			// Let folks (gutter, etc.) know that folds have been updated.
-			support.firePropertyChange(PROPERTY_FOLDS_UPDATED, null, folds);
-			textArea.repaint();
+			setParsedFolds(newFolds);
 
 		}
 		else {
-			folds.clear();
+			clear();
+		}
+
+	}
+
+
+	/**
+	 * Re-calculates folds after an edit.  If the fold parser supports it,
+	 * only the region around the modified lines is re-parsed.
+	 *
+	 * @param firstLine The first line modified since folds were last parsed.
+	 * @param lastLine The last line modified since folds were last parsed.
+	 */
+	private void reparse(int firstLine, int lastLine) {
+
+		if (!codeFoldingEnabled || restartLines==null ||
+				!(foldParser instanceof IncrementalFoldParser)) {
+			reparse();
+			return;
+		}
+
+		FoldParseContext context = new FoldParseContext(textArea, folds,
+				restartLines, firstLine, lastLine);
+		((IncrementalFoldParser)foldParser).getFolds(textArea, context);
+		if (!context.finish()) {
+			reparse();
+			return;
 		}
+		hiddenLines.invalidate();
+
+		support.firePropertyChange(PROPERTY_FOLDS_UPDATED, null, folds);
+		textArea.repaint();
 
 	}
 
@@ -471,19 +610,16 @@ private Fold getFoldForLineImpl(Fold parent, List<Fold> folds, int line) {
 				textArea.removeParser(rstaParser);
 			}
 			if (enabled) {
-				rstaParser = new AbstractParser() {
-					@Override
-					public ParseResult parse(RSyntaxDocument doc, String style) {
-						reparse();
-						return new DefaultParseResult(this);
-					}
-				};
+				rstaParser = new FoldReparser();
 				textArea.addParser(rstaParser);
 				support.firePropertyChange(PROPERTY_FOLDS_UPDATED, null, null);
 				//reparse();
 			}
 			else {
+				cancelBackgroundParse();
 				folds = Collections.emptyList();
+				restartLines = null;
+				hiddenLines.invalidate();
 				textArea.repaint();
 				support.firePropertyChange(PROPERTY_FOLDS_UPDATED, null, null);
 			}
@@ -493,7 +629,34 @@ private Fold getFoldForLineImpl(Fold parent, List<Fold> folds, int line) {
 
 	@Override
 	public void setFolds(List<Fold> folds) {
+		cancelBackgroundParse();
 		this.folds = folds;
+		restartLines = null;
+		hiddenLines.invalidate();
+	}
+
+
+	/**
+	 * Replaces the folds with ones found by the fold parser, keeping the
+	 * fold state of folds that are still around.
+	 *
+	 * @param newFolds The new folds.  This may be <code>null</code>.
+	 */
+	private void setParsedFolds(List<Fold> newFolds) {
+
+		if (newFolds==null) {
+			newFolds = Collections.emptyList();
+		}
+		else {
+			keepFoldStates(newFolds, folds);
+		}
+		folds = newFolds;
+		hiddenLines.invalidate();
+
+		// Let folks (gutter, etc.) know that folds have been updated.
+		support.firePropertyChange(PROPERTY_FOLDS_UPDATED, null, folds);
+		textArea.repaint();
+
 	}
 
 
@@ -507,6 +670,28 @@ private Fold getFoldForLineImpl(Fold parent, List<Fold> folds, int line) {
 	}
 
 
+	/**
+	 * Re-calculates folds when the text area's parsers are run.
+	 */
+	private class FoldReparser extends AbstractParser
+			implements IncrementalParser {
+
+		@Override
+		public ParseResult parse(RSyntaxDocument doc, String style) {
+			reparse();
+			return new DefaultParseResult(this);
+		}
+
+		@Override
+		public ParseResult parse(RSyntaxDocument doc, String style,
+				int firstLine, int lastLine) {
+			reparse(firstLine, lastLine);
+			return new DefaultParseResult(this);
+		}
+
+	}
+
+
 	/**
 	 * Listens for events in the text editor.
 	 */
@@ -518,6 +703,8 @@ private Fold getFoldForLineImpl(Fold parent, List<Fold> folds, int line) {
 
 		@Override
 		public void insertUpdate(DocumentEvent e) {
+			modCount++;
+			linesChanged(e);
 			// Adding text containing a newline to the visible line of a folded
 			// Fold causes that Fold to unfold.  Check only start offset of
 			// insertion since that's the line that was "modified".
@@ -563,6 +750,8 @@ private Fold getFoldForLineImpl(Fold parent, List<Fold> folds, int line) {
 
 		@Override
 		public void removeUpdate(DocumentEvent e) {
+			modCount++;
+			linesChanged(e);
 			// Removing text from the visible line of a folded Fold causes that
 			// Fold to unfold.  We only need to check the removal offset since
 			// that's the new caret position.
@@ -44,10 +44,7 @@ public class Fold implements Comparable<Fold> {
 	private boolean collapsed;
 	private int childCollapsedLineCount;
 
-	private int lastStartOffs = -1;
 	private int cachedStartLine;
-
-	private int lastEndOffs = -1;
 	private int cachedEndLine;
 
 
@@ -276,13 +273,7 @@ public class Fold implements Comparable<Fold> {
 	 * @see #getStartLine()
 	 */
 	public int getEndLine() {
-		int endOffs = getEndOffset();
-		if (lastEndOffs==endOffs) {
-			return cachedEndLine;
-		}
-		lastEndOffs = endOffs;
-		Element root = textArea.getDocument().getDefaultRootElement();
-		return cachedEndLine = root.getElementIndex(endOffs);
+		return cachedEndLine = getLine(getEndOffset(), cachedEndLine);
 	}
 
 
@@ -306,6 +297,18 @@ public class Fold implements Comparable<Fold> {
 	}
 
 
+	/**
+	 * Returns the end offset of this fold as a position.
+	 *
+	 * @return The end position, or <code>null</code> if this fold isn't
+	 *         closed.
+	 * @see #setEndPosition(Position)
+	 */
+	Position getEndPosition() {
+		return endOffs;
+	}
+
+
 	/**
 	 * Returns the type of fold this is.  This will be one of the values in
 	 * {@link FoldType}, or a user-defined value.
@@ -342,6 +345,29 @@ public class Fold implements Comparable<Fold> {
 	}
 
 
+	/**
+	 * Returns the line containing an offset.  Lines can be added or removed
+	 * before an offset without it changing, so the line it was last found
+	 * on is only a hint.
+	 *
+	 * @param offs The offset.
+	 * @param cachedLine The line the offset was last on.
+	 * @return The line.
+	 */
+	private int getLine(int offs, int cachedLine) {
+		Element root = textArea.getDocument().getDefaultRootElement();
+		int lineCount = root.getElementCount();
+		if (cachedLine<lineCount) {
+			Element line = root.getElement(cachedLine);
+			if (offs>=line.getStartOffset() &&
+					(offs<line.getEndOffset() || cachedLine==lineCount-1)) {
+				return cachedLine;
+			}
+		}
+		return root.getElementIndex(offs);
+	}
+
+
 	/**
 	 * Returns the number of lines that are hidden when this fold is
 	 * collapsed.
@@ -379,13 +405,7 @@ public class Fold implements Comparable<Fold> {
 	 * @see #getStartOffset()
 	 */
 	public int getStartLine() {
-		int startOffs = getStartOffset();
-		if (lastStartOffs==startOffs) {
-			return cachedStartLine;
-		}
-		lastStartOffs = startOffs;
-		Element root = textArea.getDocument().getDefaultRootElement();
-		return cachedStartLine = root.getElementIndex(startOffs);
+		return cachedStartLine = getLine(getStartOffset(), cachedStartLine);
 	}
 
 
@@ -438,6 +458,20 @@ public class Fold implements Comparable<Fold> {
 	}
 
 
+	/**
+	 * Recomputes the number of lines hidden by this fold's collapsed
+	 * descendants from its children.  This should be called after children
+	 * are added or removed other than by {@link #createChild(int, int)}.
+	 */
+	void recalculateChildCollapsedLineCount() {
+		int count = 0;
+		for (int i=0; i<getChildCount(); i++) {
+			count += getChild(i).getCollapsedLineCount();
+		}
+		childCollapsedLineCount = count;
+	}
+
+
 	/**
 	 * Removes this fold from its parent.  This should only be called by
 	 * {@link FoldParser} implementations if they determine that a fold is all
@@ -506,6 +540,10 @@ public class Fold implements Comparable<Fold> {
 				}
 			}
 
+			FoldManager fm = textArea.getFoldManager();
+			if (fm instanceof DefaultFoldManager) {
+				((DefaultFoldManager)fm).foldToggled(this);
+			}
 			textArea.foldToggled(this);
 
 		}
@@ -529,6 +567,18 @@ public class Fold implements Comparable<Fold> {
 	}
 
 
+	/**
+	 * Restores the end offset of this fold.
+	 *
+	 * @param endOffs The end position, or <code>null</code> for this fold
+	 *        to not be closed.
+	 * @see #getEndPosition()
+	 */
+	void setEndPosition(Position endOffs) {
+		this.endOffs = endOffs;
+	}
+
+
 	/**
 	 * Toggles the collapsed state of this fold.
 	 *
@@ -0,0 +1,597 @@
+/*
+ * 10/18/2026
+ *
+ * FoldParseContext.java - Drives an incremental fold parser.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea.folding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.text.Element;
+import javax.swing.text.Position;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+
+
+/**
+ * Tells an {@link IncrementalFoldParser} where to start parsing, where to
+ * add the folds it finds, and when to stop.<p>
+ *
+ * A context created with the public constructor parses a whole document.
+ * {@link DefaultFoldManager} also uses contexts to re-parse just the region
+ * around an edit.  For that, parsers report after each line whether their
+ * state is "clean", meaning parsing could restart on the next line knowing
+ * only which folds are open there; for example, a parser in the middle of a
+ * multi-line comment is not clean.  Every so often, such a line is
+ * remembered along with the number of folds open on it and the syntax state
+ * it starts in.  After an edit, parsing restarts on the last remembered line
+ * before it, inside the folds the existing fold tree has open there.  The old
+ * folds after that line are set aside, and the parser adds new ones in their
+ * place.  Once past the last modified line, when the parser reaches an old
+ * remembered line clean, in the same syntax state, and with the same folds
+ * open as the old tree had there, the rest of the old tree is known to be
+ * unchanged.  Parsing stops and the old folds after that point are put
+ * back.  The syntax state has to match too, since an edit can change how
+ * the unmodified lines after it are highlighted, say by opening a multi-line
+ * comment.<p>
+ *
+ * If the parser reaches the end of the document instead, the new folds
+ * replace everything after the restart line.  In the rare case where that
+ * can't be done exactly, the fold tree is left as it was and the manager
+ * re-parses the whole document.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public final class FoldParseContext {
+
+	private RSyntaxTextArea textArea;
+	private List<Fold> folds;
+	private int startLine;
+	private Fold openFold;
+
+	/**
+	 * Lines parsing can restart on, or <code>null</code> if not being
+	 * tracked.
+	 */
+	private RestartLines restartLines;
+	private int lastRestartLine;
+
+	/**
+	 * The last modified line.  Parsing can't stop before it.
+	 */
+	private int lastModifiedLine;
+
+	/**
+	 * The old folds open on the start line, outermost first, and where each
+	 * of them ended.  This is <code>null</code> when parsing a whole
+	 * document.
+	 */
+	private Fold[] ancestors;
+	private Position[] ancestorEnds;
+
+	/**
+	 * For each level of the fold tree being added to (the top-level folds,
+	 * then the children of each ancestor), the index old folds were removed
+	 * from, and the folds removed.
+	 */
+	private int[] removedIndexes;
+	private List<List<Fold>> removedFolds;
+
+	/**
+	 * The old restart lines after the start line, and the next one parsing
+	 * could stop before.
+	 */
+	private RestartLines removedRestartLines;
+	private int nextRemovedRestartLine;
+
+	private Fold lastOpenFold;
+	private int resyncLine;
+	private int resyncDepth;
+
+	/**
+	 * The minimum number of lines between remembered restart lines.
+	 */
+	static final int RESTART_LINE_INTERVAL = 32;
+
+
+	/**
+	 * Creates a context for parsing a whole document.
+	 */
+	public FoldParseContext() {
+		folds = new ArrayList<>();
+		lastModifiedLine = Integer.MAX_VALUE;
+		resyncLine = -1;
+	}
+
+
+	/**
+	 * Creates a context for parsing a whole document and remembering where
+	 * parsing could restart.
+	 *
+	 * @param textArea The text area.
+	 * @param restartLines Receives the lines parsing could restart on.
+	 */
+	FoldParseContext(RSyntaxTextArea textArea, RestartLines restartLines) {
+		this();
+		this.textArea = textArea;
+		this.restartLines = restartLines;
+		restartLines.clear();
+		restartLines.add(0, 0, 0);
+	}
+
+
+	/**
+	 * Creates a context for re-parsing the part of a document around an edit.
+	 * Until {@link #finish()} is called, old folds after the start line are
+	 * removed from <code>folds</code>.
+	 *
+	 * @param textArea The text area.
+	 * @param folds The folds found before the edit.  These are modified in
+	 *        place.
+	 * @param restartLines The lines parsing could restart on, as found
+	 *        when <code>folds</code> were.  These are updated in place.
+	 * @param firstLine The first modified line.
+	 * @param lastLine The last modified line.
+	 */
+	FoldParseContext(RSyntaxTextArea textArea, List<Fold> folds,
+			RestartLines restartLines, int firstLine, int lastLine) {
+
+		this.textArea = textArea;
+		this.folds = folds;
+		this.restartLines = restartLines;
+		lastModifiedLine = lastLine;
+		resyncLine = -1;
+
+		// Restart on the last restart line before the edit where the old
+		// fold tree has the expected number of folds open.  It may not if
+		// a fold was left open after being closed and reopened, as in an
+		// unclosed "} else {".  Line 0 always qualifies.
+		int restartIndex = restartLines.getIndexAfter(firstLine) - 1;
+		List<Fold> open = new ArrayList<>();
+		while (true) {
+			startLine = restartLines.getLine(restartIndex);
+			getOpenFolds(startLine, open);
+			if (open.size()==restartLines.getDepth(restartIndex)) {
+				break;
+			}
+			restartIndex--;
+		}
+
+		ancestors = open.toArray(new Fold[0]);
+		ancestorEnds = new Position[ancestors.length];
+		for (int i=0; i<ancestors.length; i++) {
+			ancestorEnds[i] = ancestors[i].getEndPosition();
+		}
+		openFold = ancestors.length==0 ? null : ancestors[ancestors.length-1];
+
+		// Set aside the old folds starting on or after the start line
+		int levelCount = ancestors.length + 1;
+		removedIndexes = new int[levelCount];
+		removedFolds = new ArrayList<>(levelCount);
+		for (int level=0; level<levelCount; level++) {
+			List<Fold> removed = new ArrayList<>();
+			List<Fold> list = getLevel(level);
+			if (list!=null) {
+				int index = getFirstFoldAfter(list, startLine-1);
+				List<Fold> tail = list.subList(index, list.size());
+				removed.addAll(tail);
+				tail.clear();
+				removedIndexes[level] = index;
+			}
+			removedFolds.add(removed);
+		}
+
+		removedRestartLines = new RestartLines();
+		for (int i=restartIndex+1; i<restartLines.getSize(); i++) {
+			removedRestartLines.add(restartLines.getLine(i),
+					restartLines.getDepth(i), restartLines.getState(i));
+		}
+		restartLines.remove(restartIndex+1, restartLines.getSize());
+		lastRestartLine = startLine;
+
+	}
+
+
+	/**
+	 * Puts back the old restart lines after a line.
+	 */
+	private void addRestartLinesAfter(int line) {
+		int count = removedRestartLines.getSize();
+		for (int i=removedRestartLines.getIndexAfter(line); i<count; i++) {
+			restartLines.add(removedRestartLines.getLine(i),
+					removedRestartLines.getDepth(i),
+					removedRestartLines.getState(i));
+		}
+	}
+
+
+	/**
+	 * Adds a fold and its descendants that are collapsed to a list.
+	 */
+	private static void addCollapsedFolds(Fold fold, List<Fold> collapsed) {
+		if (fold.isCollapsed()) {
+			collapsed.add(fold);
+		}
+		for (int i=0; i<fold.getChildCount(); i++) {
+			addCollapsedFolds(fold.getChild(i), collapsed);
+		}
+	}
+
+
+	/**
+	 * Finishes a re-parse started with the package-private constructor,
+	 * putting back the old folds that are still valid.  If the new folds
+	 * can't be reconciled with the old ones, the old fold tree is restored
+	 * instead, and the caller should re-parse the whole document.
+	 *
+	 * @return Whether the fold tree is up to date.
+	 */
+	boolean finish() {
+
+		if (ancestors==null) { // A whole document was parsed
+			return true;
+		}
+
+		int lastLine = resyncLine;
+		if (resyncLine==-1) {
+			// Parsing reached the end of the document.  An old fold still
+			// open there should end where it was last closed and reopened
+			// (e.g. "} else {") before the start line, if it was, and that
+			// isn't known.
+			for (Fold fold=lastOpenFold; fold!=null; fold=fold.getParent()) {
+				int i = indexOfAncestor(fold);
+				if (i>-1 && ancestorEnds[i]!=null &&
+						fold.getEndPosition()==ancestorEnds[i]) {
+					undo();
+					return false;
+				}
+			}
+			lastLine = Integer.MAX_VALUE;
+		}
+		else {
+			// Folds still open end where they did before.  Any end set while
+			// re-parsing came from closing and reopening them.
+			for (int i=0; i<=resyncDepth; i++) {
+				if (ancestorEnds[i]!=null) {
+					ancestors[i].setEndPosition(ancestorEnds[i]);
+				}
+			}
+		}
+
+		// Put back the old folds after the last line parsed.  Levels are
+		// visited deepest first so the replaced folds are in order.
+		List<Fold> oldCollapsed = new ArrayList<>();
+		int levelCount = removedIndexes.length;
+		int[] addedCounts = new int[levelCount];
+		for (int level=levelCount-1; level>=0; level--) {
+			List<Fold> removed = removedFolds.get(level);
+			int keep = getFirstFoldAfter(removed, lastLine);
+			for (int i=0; i<keep; i++) {
+				addCollapsedFolds(removed.get(i), oldCollapsed);
+			}
+			List<Fold> list = getLevel(level);
+			if (list!=null) {
+				addedCounts[level] = list.size() - removedIndexes[level];
+				list.addAll(removed.subList(keep, removed.size()));
+			}
+		}
+		recalculateCollapsedLineCounts();
+
+		// Keep the fold state of the new folds that replaced old ones
+		if (!oldCollapsed.isEmpty()) {
+			for (int level=0; level<levelCount; level++) {
+				List<Fold> list = getLevel(level);
+				int start = removedIndexes[level];
+				for (int i=start; i<start+addedCounts[level]; i++) {
+					keepFoldState(list.get(i), oldCollapsed);
+				}
+			}
+		}
+
+		if (resyncLine>-1) {
+			addRestartLinesAfter(Math.max(resyncLine, lastRestartLine));
+		}
+
+		return true;
+
+	}
+
+
+	/**
+	 * Returns the number of folds open, given the innermost one.
+	 */
+	private static int getDepth(Fold fold) {
+		int depth = 0;
+		for (; fold!=null; fold=fold.getParent()) {
+			depth++;
+		}
+		return depth;
+	}
+
+
+	/**
+	 * Returns the index of the first fold in a list starting after a line.
+	 */
+	private static int getFirstFoldAfter(List<Fold> list, int line) {
+		int low = 0;
+		int high = list.size();
+		while (low<high) {
+			int mid = (low + high) >>> 1;
+			if (list.get(mid).getStartLine()>line) {
+				high = mid;
+			}
+			else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+
+	/**
+	 * Returns the list of top-level folds.  Parsers should add top-level
+	 * folds they find to this list.
+	 *
+	 * @return The top-level folds.
+	 */
+	public List<Fold> getFolds() {
+		return folds;
+	}
+
+
+	/**
+	 * Returns the folds at a level of the fold tree being added to.
+	 */
+	private List<Fold> getLevel(int level) {
+		return level==0 ? folds : ancestors[level-1].getChildren();
+	}
+
+
+	/**
+	 * Returns the end of a fold, given its end position.
+	 */
+	private static int getOffset(Position pos) {
+		return pos!=null ? pos.getOffset() : Integer.MAX_VALUE;
+	}
+
+
+	/**
+	 * Returns the innermost fold open at the start of the start line.
+	 * Folds the parser finds before it closes this one should be added as
+	 * its children.
+	 *
+	 * @return The fold, or <code>null</code> if parsing starts at the top
+	 *         level.
+	 */
+	public Fold getOpenFold() {
+		return openFold;
+	}
+
+
+	/**
+	 * Gets the folds in the old tree open at the start of a line, that is,
+	 * those spanning the line and the one before it.
+	 */
+	private void getOpenFolds(int line, List<Fold> open) {
+		open.clear();
+		List<Fold> list = line>0 ? folds : null;
+		while (list!=null) {
+			int index = getFirstFoldAfter(list, line-1) - 1;
+			if (index<0) {
+				break;
+			}
+			Fold fold = list.get(index);
+			if (fold.getEndLine()<line) {
+				break;
+			}
+			open.add(fold);
+			list = fold.getChildren();
+		}
+	}
+
+
+	/**
+	 * Returns the syntax state the line after a line starts in.
+	 */
+	private int getNextLineState(int line) {
+		RSyntaxDocument doc = (RSyntaxDocument)textArea.getDocument();
+		return doc.getLastTokenTypeOnLine(line);
+	}
+
+
+	/**
+	 * Returns the line to start parsing on.
+	 *
+	 * @return The line.
+	 */
+	public int getStartLine() {
+		return startLine;
+	}
+
+
+	private int indexOfAncestor(Fold fold) {
+		for (int i=0; i<ancestors.length; i++) {
+			if (ancestors[i]==fold) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Returns whether an old fold, or any of its descendants, was still open
+	 * after a line.
+	 */
+	private static boolean isOpenAfter(Fold fold, int line) {
+		for (; fold!=null; fold=fold.getLastChild()) {
+			if (fold.getStartLine()>line || fold.getEndLine()>line) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Returns whether the new folds found through a line line up with the
+	 * old fold tree, so the old folds after it can be kept.
+	 */
+	private boolean isResynchronized(int line, Fold openFold) {
+
+		Element root = textArea.getDocument().getDefaultRootElement();
+		if (line+1>=root.getElementCount()) {
+			return false;
+		}
+		int nextLineStart = root.getElement(line+1).getStartOffset();
+
+		// The folds open must be old ones the old tree still had open, and
+		// any other old folds open at the start line must have been closed.
+		int depth = -1;
+		if (openFold!=null) {
+			depth = indexOfAncestor(openFold);
+			if (depth==-1) {
+				return false;
+			}
+		}
+		for (int i=0; i<=depth; i++) {
+			if (getOffset(ancestorEnds[i])<nextLineStart) {
+				return false;
+			}
+		}
+		if (depth+1<ancestors.length &&
+				getOffset(ancestorEnds[depth+1])>=nextLineStart) {
+			return false;
+		}
+
+		// No old fold set aside may still be open, and only those at the
+		// levels still open may come after the line.
+		for (int level=0; level<removedIndexes.length; level++) {
+			List<Fold> removed = removedFolds.get(level);
+			int index = getFirstFoldAfter(removed, line);
+			if (index>0 && isOpenAfter(removed.get(index-1), line)) {
+				return false;
+			}
+			if (level>depth+1 && index<removed.size()) {
+				return false;
+			}
+		}
+
+		resyncLine = line;
+		resyncDepth = depth;
+		return true;
+
+	}
+
+
+	/**
+	 * Copies the collapsed state of old folds to a new fold and its
+	 * descendants that start at the same offset.
+	 */
+	private static void keepFoldState(Fold newFold, List<Fold> oldCollapsed) {
+		if (Collections.binarySearch(oldCollapsed, newFold)>=0) {
+			newFold.setCollapsed(true);
+		}
+		for (int i=0; i<newFold.getChildCount(); i++) {
+			keepFoldState(newFold.getChild(i), oldCollapsed);
+		}
+	}
+
+
+	/**
+	 * Parsers call this method after parsing each line.
+	 *
+	 * @param line The line just parsed.
+	 * @param openFold The innermost fold open at the end of the line, or
+	 *        <code>null</code> if none is.
+	 * @param clean Whether parsing could restart on the next line knowing
+	 *        only which folds are open.  This should be <code>false</code>
+	 *        if, for example, the parser is in the middle of a multi-line
+	 *        comment.
+	 * @return Whether to stop parsing, because the rest of the fold tree is
+	 *         already known.
+	 */
+	public boolean lineParsed(int line, Fold openFold, boolean clean) {
+
+		lastOpenFold = openFold;
+		if (!clean) {
+			return false;
+		}
+
+		int nextLine = line + 1;
+		int state = -1;
+		if (restartLines!=null &&
+				nextLine-lastRestartLine>=RESTART_LINE_INTERVAL) {
+			state = getNextLineState(line);
+			restartLines.add(nextLine, getDepth(openFold), state);
+			lastRestartLine = nextLine;
+		}
+
+		// Parsing can only stop before an old restart line, where the old
+		// parse was known to be clean and in a known syntax state.
+		if (ancestors==null || line<lastModifiedLine) {
+			return false;
+		}
+		int count = removedRestartLines.getSize();
+		while (nextRemovedRestartLine<count &&
+				removedRestartLines.getLine(nextRemovedRestartLine)<nextLine) {
+			nextRemovedRestartLine++;
+		}
+		int i = nextRemovedRestartLine;
+		if (i==count || removedRestartLines.getLine(i)!=nextLine ||
+				removedRestartLines.getDepth(i)!=getDepth(openFold)) {
+			return false;
+		}
+		if (state==-1) {
+			state = getNextLineState(line);
+		}
+		return state==removedRestartLines.getState(i) &&
+				isResynchronized(line, openFold);
+
+	}
+
+
+	/**
+	 * Recomputes the lines hidden by collapsed descendants of the ancestor
+	 * folds, whose children have changed.
+	 */
+	private void recalculateCollapsedLineCounts() {
+		for (int i=ancestors.length-1; i>=0; i--) {
+			ancestors[i].recalculateChildCollapsedLineCount();
+		}
+	}
+
+
+	/**
+	 * Restores the fold tree and restart lines to what they were before
+	 * re-parsing.
+	 */
+	private void undo() {
+
+		for (int level=0; level<removedIndexes.length; level++) {
+			List<Fold> list = getLevel(level);
+			if (list!=null) {
+				list.subList(removedIndexes[level], list.size()).clear();
+				list.addAll(removedFolds.get(level));
+			}
+		}
+		for (int i=0; i<ancestors.length; i++) {
+			ancestors[i].setEndPosition(ancestorEnds[i]);
+		}
+		recalculateCollapsedLineCounts();
+
+		restartLines.remove(restartLines.getIndexAfter(startLine),
+				restartLines.getSize());
+		addRestartLinesAfter(startLine);
+
+	}
+
+
+}
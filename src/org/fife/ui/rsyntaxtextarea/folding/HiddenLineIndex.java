@@ -0,0 +1,230 @@
+/*
+ * 10/18/2026
+ *
+ * HiddenLineIndex.java - The lines hidden by collapsed folds.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea.folding;
+
+import java.util.List;
+
+
+/**
+ * The ranges of lines hidden by collapsed folds, so that questions like "how
+ * many lines are hidden above line <em>n</em>" can be answered with a binary
+ * search rather than by walking the fold tree.  These are asked many times
+ * each time the text area is painted.<p>
+ *
+ * The ranges come from the outermost collapsed folds, so they don't
+ * overlap, and are kept sorted along with a running total of the lines
+ * hidden before each.  Adding a line shifts every fold after it, so rather
+ * than being updated in place, the index is rebuilt the next time it is
+ * used after folds are collapsed, expanded or re-parsed, or the number of
+ * lines changes.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see DefaultFoldManager
+ */
+final class HiddenLineIndex {
+
+	/**
+	 * The start lines of the outermost collapsed folds, in order.
+	 */
+	private int[] startLines;
+
+	/**
+	 * The number of lines hidden by the folds before each one.  This has
+	 * one more element than there are folds, the last being the total.
+	 */
+	private int[] hiddenBefore;
+
+	private int size;
+	private boolean valid;
+	private int lineCount;
+
+
+	HiddenLineIndex() {
+		startLines = new int[16];
+		hiddenBefore = new int[17];
+	}
+
+
+	private void add(int startLine, int lineCount) {
+		if (size+1==hiddenBefore.length) {
+			int[] temp = new int[startLines.length*2];
+			System.arraycopy(startLines, 0, temp, 0, size);
+			startLines = temp;
+			temp = new int[temp.length + 1];
+			System.arraycopy(hiddenBefore, 0, temp, 0, size+1);
+			hiddenBefore = temp;
+		}
+		startLines[size] = startLine;
+		hiddenBefore[size+1] = hiddenBefore[size] + lineCount;
+		size++;
+	}
+
+
+	/**
+	 * Adds the outermost collapsed folds in a fold's subtree.  Lines outside
+	 * of an ancestor aren't considered part of a fold, as happens with an
+	 * unclosed "<code>} else {</code>" at the end of a file.
+	 *
+	 * @param fold The fold.
+	 * @param maxEndLine The last line of the fold's ancestors.
+	 */
+	private void addCollapsedFolds(Fold fold, int maxEndLine) {
+		int startLine = fold.getStartLine();
+		int endLine = Math.min(fold.getEndLine(), maxEndLine);
+		if (startLine>=endLine) {
+			return;
+		}
+		if (fold.isCollapsed()) {
+			add(startLine, endLine-startLine);
+		}
+		else {
+			int childCount = fold.getChildCount();
+			for (int i=0; i<childCount; i++) {
+				addCollapsedFolds(fold.getChild(i), endLine);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the last line hidden by a collapsed fold.
+	 *
+	 * @param index The index of the fold.
+	 * @return The fold's end line.
+	 */
+	int getEndLine(int index) {
+		return startLines[index] + hiddenBefore[index+1] - hiddenBefore[index];
+	}
+
+
+	/**
+	 * Returns the number of lines hidden by collapsed folds.
+	 *
+	 * @return The number of hidden lines.
+	 */
+	int getHiddenLineCount() {
+		return hiddenBefore[size];
+	}
+
+
+	/**
+	 * Returns the number of lines hidden by collapsed folds starting above
+	 * a line.  This has the same semantics as
+	 * {@link FoldManager#getHiddenLineCountAbove(int, boolean)}.
+	 *
+	 * @param line The line.
+	 * @param physical Whether <code>line</code> is a physical (visible)
+	 *        line, rather than a logical one.
+	 * @return The number of hidden lines.
+	 */
+	int getHiddenLineCountAbove(int line, boolean physical) {
+
+		// Count the folds starting above the line.  A fold's physical start
+		// line is its logical one, less the lines hidden before it.
+		int low = 0;
+		int high = size;
+		while (low<high) {
+			int mid = (low + high) >>> 1;
+			int start = startLines[mid];
+			if (physical) {
+				start -= hiddenBefore[mid];
+			}
+			if (start<line) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+
+		return hiddenBefore[low];
+
+	}
+
+
+	/**
+	 * Returns the index of the collapsed fold hiding a line.
+	 *
+	 * @param line The line.
+	 * @return The index of the fold, or <code>-1</code> if the line isn't
+	 *         hidden.
+	 * @see #getStartLine(int)
+	 * @see #getEndLine(int)
+	 */
+	int getIndexHiding(int line) {
+
+		// Find the last fold starting before the line
+		int low = 0;
+		int high = size;
+		while (low<high) {
+			int mid = (low + high) >>> 1;
+			if (startLines[mid]<line) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+
+		int index = low - 1;
+		return index>-1 && line<=getEndLine(index) ? index : -1;
+
+	}
+
+
+	/**
+	 * Returns the start line of a collapsed fold.  This line is not itself
+	 * hidden by the fold.
+	 *
+	 * @param index The index of the fold.
+	 * @return The fold's start line.
+	 */
+	int getStartLine(int index) {
+		return startLines[index];
+	}
+
+
+	/**
+	 * Marks this index as needing to be rebuilt.
+	 */
+	void invalidate() {
+		valid = false;
+	}
+
+
+	/**
+	 * Returns whether this index is up to date.
+	 *
+	 * @param lineCount The number of lines in the document.  If this has
+	 *        changed since the index was built, it is out of date.
+	 * @return Whether the index is up to date.
+	 */
+	boolean isValid(int lineCount) {
+		return valid && lineCount==this.lineCount;
+	}
+
+
+	/**
+	 * Rebuilds this index.
+	 *
+	 * @param folds The top-level folds.
+	 * @param lineCount The number of lines in the document.
+	 */
+	void rebuild(List<Fold> folds, int lineCount) {
+		size = 0;
+		for (Fold fold : folds) {
+			addCollapsedFolds(fold, Integer.MAX_VALUE);
+		}
+		this.lineCount = lineCount;
+		valid = true;
+	}
+
+
+}
@@ -30,7 +30,7 @@ import org.fife.ui.rsyntaxtextarea.Token;
  * @author Robert Futrell
  * @version 1.0
  */
-public class HtmlFoldParser implements FoldParser {
+public class HtmlFoldParser implements BackgroundFoldParser {
 
 	/**
 	 * Constant denoting we're folding HTML.
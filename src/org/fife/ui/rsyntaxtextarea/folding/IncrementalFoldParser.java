@@ -0,0 +1,49 @@
+/*
+ * 10/18/2026
+ *
+ * IncrementalFoldParser.java - A fold parser that can re-parse part of a
+ * document.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea.folding;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+
+
+/**
+ * A fold parser that can start parsing partway through a document, and stop
+ * as soon as the folds it finds line up with the ones found before an edit.
+ * {@link DefaultFoldManager} uses this to only re-parse the region around
+ * what was modified, so that updating folds after an edit costs about as
+ * much as the edit, not the size of the file.<p>
+ *
+ * Parsing is driven by a {@link FoldParseContext}.  The parser starts on
+ * {@link FoldParseContext#getStartLine()}, inside
+ * {@link FoldParseContext#getOpenFold()}, and adds folds it finds either as
+ * children of the folds it has open or to
+ * {@link FoldParseContext#getFolds()}, exactly as it would when parsing the
+ * whole document.  After each line, it calls
+ * {@link FoldParseContext#lineParsed(int, Fold, boolean)}, and stops when
+ * that returns <code>true</code>.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see CurlyFoldParser
+ */
+public interface IncrementalFoldParser extends FoldParser {
+
+
+	/**
+	 * Locates folds in a text area, starting and stopping as directed by a
+	 * context.
+	 *
+	 * @param textArea The text area whose contents should be analyzed.
+	 * @param context Where to start parsing and where to add the folds
+	 *        found.
+	 */
+	void getFolds(RSyntaxTextArea textArea, FoldParseContext context);
+
+
+}
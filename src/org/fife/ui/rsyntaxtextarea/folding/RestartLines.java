@@ -0,0 +1,138 @@
+/*
+ * 10/18/2026
+ *
+ * RestartLines.java - Lines a fold parser could restart parsing on.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea.folding;
+
+import org.fife.util.DynamicIntArray;
+
+
+/**
+ * The lines an {@link IncrementalFoldParser} could restart parsing on, in
+ * order.  For each line, the number of folds open at its start and the
+ * syntax state it starts in (the last token type of the line before it) are
+ * also kept.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see FoldParseContext
+ */
+final class RestartLines {
+
+	private DynamicIntArray lines;
+	private DynamicIntArray depths;
+	private DynamicIntArray states;
+
+
+	RestartLines() {
+		lines = new DynamicIntArray();
+		depths = new DynamicIntArray();
+		states = new DynamicIntArray();
+	}
+
+
+	void add(int line, int depth, int state) {
+		lines.add(line);
+		depths.add(depth);
+		states.add(state);
+	}
+
+
+	void clear() {
+		lines.clear();
+		depths.clear();
+		states.clear();
+	}
+
+
+	int getDepth(int index) {
+		return depths.get(index);
+	}
+
+
+	/**
+	 * Returns the index of the first restart line after a line.
+	 *
+	 * @param line The line.
+	 * @return The index, which is the size of this list if there is none.
+	 */
+	int getIndexAfter(int line) {
+		int low = 0;
+		int high = lines.getSize();
+		while (low<high) {
+			int mid = (low + high) >>> 1;
+			if (lines.get(mid)>line) {
+				high = mid;
+			}
+			else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+
+	int getLine(int index) {
+		return lines.get(index);
+	}
+
+
+	int getSize() {
+		return lines.getSize();
+	}
+
+
+	int getState(int index) {
+		return states.get(index);
+	}
+
+
+	/**
+	 * Updates restart lines after lines are added to or removed from the
+	 * document.
+	 *
+	 * @param line The line modified.
+	 * @param delta The number of lines added after it, or the negative of
+	 *        the number of lines after it joined with it.
+	 */
+	void linesChanged(int line, int delta) {
+
+		int index = getIndexAfter(line);
+		int size = lines.getSize();
+
+		// Lines joined with the modified line are gone
+		if (delta<0) {
+			int end = getIndexAfter(line-delta);
+			if (end>index) {
+				remove(index, end);
+				size -= end - index;
+			}
+		}
+
+		for (int i=index; i<size; i++) {
+			lines.setUnsafe(i, lines.getUnsafe(i)+delta);
+		}
+
+	}
+
+
+	/**
+	 * Removes a range of restart lines.
+	 *
+	 * @param from The first index to remove.
+	 * @param to The index after the last one to remove.
+	 */
+	void remove(int from, int to) {
+		if (from<to) {
+			lines.removeRange(from, to);
+			depths.removeRange(from, to);
+			states.removeRange(from, to);
+		}
+	}
+
+
+}
@@ -25,7 +25,7 @@ import org.fife.ui.rsyntaxtextarea.Token;
  * @author Robert Futrell
  * @version 1.0
  */
-public class XmlFoldParser implements FoldParser {
+public class XmlFoldParser implements BackgroundFoldParser {
 
 	private static final char[] MARKUP_CLOSING_TAG_START = { '<', '/' };
 	private static final char[] MARKUP_SHORT_TAG_END = { '/', '>' };
@@ -4980,6 +4980,18 @@ public class GroovyTokenMaker extends AbstractJFlexCTokenMaker {
 	}
 
 
+	/**
+	 * Returns <code>false</code>, since whether a '<code>/</code>' starts
+	 * one of the regular expressions depends on the tokens before it.
+	 *
+	 * @return <code>false</code> always.
+	 */
+	@Override
+	protected boolean isStateOnlyScanSupported() {
+		return false;
+	}
+
+
 	/**
 	 * Returns the first token in the linked list of tokens generated
 	 * from <code>text</code>.  This method must be implemented by
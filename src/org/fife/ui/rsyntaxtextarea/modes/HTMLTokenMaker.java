@@ -2112,6 +2112,18 @@ public class HTMLTokenMaker extends AbstractMarkupTokenMaker {
 	}
 
 
+	/**
+	 * Returns <code>false</code>, since whether a '<code>/</code>' starts
+	 * one of the JavaScript regular expressions depends on the tokens before it.
+	 *
+	 * @return <code>false</code> always.
+	 */
+	@Override
+	protected boolean isStateOnlyScanSupported() {
+		return false;
+	}
+
+
 	/**
 	 * Returns <code>TokenTypes.MARKUP_TAG_NAME</code>.
 	 *
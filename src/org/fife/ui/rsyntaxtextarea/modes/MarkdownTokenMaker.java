@@ -1078,6 +1078,18 @@ public class MarkdownTokenMaker extends AbstractMarkupTokenMaker {
 	}
 
 
+	/**
+	 * Returns <code>false</code>, since some constructs are only recognized
+	 * on lines whose tokens so far are all whitespace.
+	 *
+	 * @return <code>false</code> always.
+	 */
+	@Override
+	protected boolean isStateOnlyScanSupported() {
+		return false;
+	}
+
+
 	/**
 	 * Returns <code>TokenTypes.MARKUP_TAG_NAME</code>.
 	 *
@@ -24658,6 +24658,18 @@ public class PHPTokenMaker extends AbstractMarkupTokenMaker {
 	}
 
 
+	/**
+	 * Returns <code>false</code>, since whether a '<code>/</code>' starts
+	 * one of the JavaScript regular expressions depends on the tokens before it.
+	 *
+	 * @return <code>false</code> always.
+	 */
+	@Override
+	protected boolean isStateOnlyScanSupported() {
+		return false;
+	}
+
+
 	/**
 	 * {@inheritDoc}
 	 */
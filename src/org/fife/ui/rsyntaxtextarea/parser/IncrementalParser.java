@@ -0,0 +1,49 @@
+/*
+ * 10/18/2026
+ *
+ * IncrementalParser.java - A parser told which lines were modified.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea.parser;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+
+
+/**
+ * A {@link Parser} that can make use of the range of lines modified since
+ * parsers were last run, and only re-examine that part of the document.
+ * When parsing is triggered by an edit, the text area's parser manager calls
+ * {@link #parse(RSyntaxDocument, String, int, int)} instead of
+ * {@link #parse(RSyntaxDocument, String)}.  When it is forced, or nothing is
+ * known about what was modified, the latter is still called.<p>
+ *
+ * The range only covers edits made since the last time the parser manager
+ * ran its parsers.  An implementation that was disabled, or that parsed the
+ * document some other way in between, should re-examine everything it is
+ * unsure of.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public interface IncrementalParser extends Parser {
+
+
+	/**
+	 * Parses the document, given the lines modified since it was last
+	 * parsed.
+	 *
+	 * @param doc The document to parse.  This instance is currently locked
+	 *        for reading.
+	 * @param style The syntax style of the text.
+	 * @param firstLine The first modified line.
+	 * @param lastLine The last modified line.
+	 * @return The results of the parse.
+	 * @see #parse(RSyntaxDocument, String)
+	 */
+	ParseResult parse(RSyntaxDocument doc, String style, int firstLine,
+			int lastLine);
+
+
+}
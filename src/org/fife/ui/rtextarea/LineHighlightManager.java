@@ -111,7 +111,7 @@ class LineHighlightManager {
 					int offs = lhi.getOffset();
 					if (offs>=0 && offs<=docLen) {
 						int y = textArea.yForLineContaining(offs);
-						if (y>vr.y-lineHeight) {
+						if (y>-1 && y>vr.y-lineHeight) { // -1 => hidden by a fold
 							if (y<vr.y+vr.height) {
 								g.setColor(lhi.getColor());
 								g.fillRect(0,y, textArea.getWidth(),lineHeight);
@@ -18,6 +18,7 @@ import java.awt.Insets;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
+import java.awt.font.FontRenderContext;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.Map;
@@ -87,6 +88,21 @@ public class LineNumberList extends AbstractGutterComponent
 	 */
 	private Color currentLineNumberColor;
 
+	/**
+	 * The digits of the line number being painted, filled in from the end,
+	 * so line numbers can be painted without creating <code>String</code>s.
+	 */
+	private char[] digits;
+
+	/**
+	 * The advance of each digit, '0' through '9', in the font and render
+	 * context last painted with.  Line numbers are measured by adding these
+	 * up rather than by calling <code>stringWidth()</code> on each.
+	 */
+	private float[] digitAdvances;
+	private Font digitFont;
+	private FontRenderContext digitFrc;
+
 	public static final Color DEFAULT_LINE_NUMBER_COLOR = Color.GRAY;
 
 
@@ -185,6 +201,34 @@ public class LineNumberList extends AbstractGutterComponent
 	}
 
 
+	/**
+	 * Returns the advances of the digits '0' through '9' in a graphics
+	 * context's font, measuring them if the font or render context has
+	 * changed since the last paint.
+	 *
+	 * @param g The graphics context.
+	 * @return The advances of the digits.
+	 */
+	private float[] getDigitAdvances(Graphics g) {
+		Font font = g.getFont();
+		FontRenderContext frc = ((Graphics2D)g).getFontRenderContext();
+		if (digitAdvances==null || !font.equals(digitFont) ||
+				!frc.equals(digitFrc)) {
+			FontMetrics metrics = g.getFontMetrics();
+			char[] digit = new char[1];
+			digitAdvances = new float[10];
+			for (int i=0; i<10; i++) {
+				digit[0] = (char)('0' + i);
+				digitAdvances[i] = (float)metrics.getStringBounds(digit, 0, 1,
+						g).getWidth();
+			}
+			digitFont = font;
+			digitFrc = frc;
+		}
+		return digitAdvances;
+	}
+
+
 	/**
 	 * Returns the starting line's line number.  The default value is
 	 * <code>1</code>.
@@ -385,70 +429,79 @@ public class LineNumberList extends AbstractGutterComponent
 		}
 		*/
 
-		// Paint line numbers
+		// Paint line numbers.  Lines hidden by collapsed folds are skipped
+		// over using the fold manager, taking care of lines with block ends
+		// and begins together, e.g. "} else {".
 		boolean ltr = getComponentOrientation().isLeftToRight();
-		if (ltr) {
-			FontMetrics metrics = g.getFontMetrics();
-			int rhs = getWidth() - rhsBorderWidth;
-			int line = topLine + 1; // TODO: Simplify me
-			while (y<visibleRect.y+visibleRect.height+ascent && line<=textArea.getLineCount()) {
-				String number = Integer.toString(line + getLineNumberingStartIndex() - 1);
-				int width = metrics.stringWidth(number);
-				if (currentLine + 1 == line + getLineNumberingStartIndex() - 1) {
-					Color color = currentLineNumberColor != null ? currentLineNumberColor :
-						getForeground();
-					g.setColor(color);
-				}
-				else {
-					g.setColor(getForeground());
-				}
-				g.drawString(number, rhs-width,y);
-				y += cellHeight;
-				if (fm!=null) {
-					Fold fold = fm.getFoldForLine(line-1);
-					// Skip to next line to paint, taking extra care for lines with
-					// block ends and begins together, e.g. "} else {"
-					while (fold!=null && fold.isCollapsed()) {
-						int hiddenLineCount = fold.getLineCount();
-						if (hiddenLineCount==0) {
-							// Fold parser identified a 0-line fold region... This
-							// is really a bug, but we'll handle it gracefully.
-							break;
-						}
-						line += hiddenLineCount;
-						fold = fm.getFoldForLine(line-1);
-					}
+		int x = ltr ? getWidth() - rhsBorderWidth : rhsBorderWidth;
+		int lineCount = textArea.getLineCount();
+		int numberOffset = getLineNumberingStartIndex() - 1;
+		int line = topLine;
+		while (y<visibleRect.y+visibleRect.height+ascent && line<lineCount) {
+			int number = line + 1 + numberOffset;
+			if (currentLine + 1 == number && currentLineNumberColor!=null) {
+				g.setColor(currentLineNumberColor);
+			}
+			else {
+				g.setColor(getForeground());
+			}
+			paintLineNumber(g, number, x, y, ltr);
+			y += cellHeight;
+			if (fm!=null) {
+				line = fm.getVisibleLineBelow(line);
+				if (line==-1) {
+					break;
 				}
+			}
+			else {
 				line++;
 			}
 		}
-		else { // rtl
-			int line = topLine + 1;
-			while (y<visibleRect.y+visibleRect.height && line<textArea.getLineCount()) {
-				String number = Integer.toString(line + getLineNumberingStartIndex() - 1);
-				if (currentLine + 1 == line + getLineNumberingStartIndex() - 1) {
-					Color color = currentLineNumberColor != null ? currentLineNumberColor :
-						getForeground();
-					g.setColor(color);
-				}
-				else {
-					g.setColor(getForeground());
-				}
-				g.drawString(number, rhsBorderWidth, y);
-				y += cellHeight;
-				if (fm!=null) {
-					Fold fold = fm.getFoldForLine(line-1);
-					// Skip to next line to paint, taking extra care for lines with
-					// block ends and begins together, e.g. "} else {"
-					while (fold!=null && fold.isCollapsed()) {
-						line += fold.getLineCount();
-						fold = fm.getFoldForLine(line);
-					}
-				}
-				line++;
+
+	}
+
+
+	/**
+	 * Paints a line number without creating a <code>String</code>.
+	 *
+	 * @param g The graphics context.
+	 * @param number The line number.
+	 * @param x The x-coordinate of the number's right edge if
+	 *        <code>ltr</code> is <code>true</code>, otherwise of its left
+	 *        edge.
+	 * @param y The baseline to paint at.
+	 * @param ltr Whether the component orientation is left-to-right.
+	 */
+	private void paintLineNumber(Graphics g, int number, int x, int y,
+			boolean ltr) {
+
+		if (number<0) { // Only if the numbering start index is negative
+			String str = Integer.toString(number);
+			if (ltr) {
+				x -= g.getFontMetrics().stringWidth(str);
 			}
+			g.drawString(str, x, y);
+			return;
 		}
 
+		if (digits==null) {
+			digits = new char[10]; // Enough for Integer.MAX_VALUE
+		}
+		float[] advances = getDigitAdvances(g);
+		int offs = digits.length;
+		float width = 0;
+		do {
+			int digit = number % 10;
+			digits[--offs] = (char)('0' + digit);
+			width += advances[digit];
+			number /= 10;
+		} while (number>0);
+
+		if (ltr) {
+			x -= (int)(width + 0.5f);
+		}
+		g.drawChars(digits, offs, digits.length-offs, x, y);
+
 	}
 
 
@@ -524,7 +577,6 @@ public class LineNumberList extends AbstractGutterComponent
 			rhs = rhsBorderWidth;
 		}
 		int visibleBottom = visibleRect.y + visibleRect.height;
-		FontMetrics metrics = g.getFontMetrics();
 
 		// Keep painting lines until our y-coordinate is past the visible
 		// end of the text area.
@@ -547,7 +599,6 @@ public class LineNumberList extends AbstractGutterComponent
 
 			// Paint the line number.
 			int index = (topLine+1) + getLineNumberingStartIndex() - 1;
-			String number = Integer.toString(index);
 			if (caretLineNumber == index) {
 				Color color = currentLineNumberColor != null ? currentLineNumberColor :
 					getForeground();
@@ -556,14 +607,7 @@ public class LineNumberList extends AbstractGutterComponent
 			else {
 				g.setColor(getForeground());
 			}
-			if (ltr) {
-				int strWidth = metrics.stringWidth(number);
-				g.drawString(number, rhs-strWidth,y+ascent);
-			}
-			else {
-				int x = rhsBorderWidth;
-				g.drawString(number, x, y+ascent);
-			}
+			paintLineNumber(g, index, rhs, y+ascent, ltr);
 
 			// The next possible y-coordinate is just after the last line
 			// painted.
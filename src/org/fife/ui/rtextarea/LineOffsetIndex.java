@@ -0,0 +1,211 @@
+/*
+ * 10/18/2026
+ *
+ * LineOffsetIndex.java - A compact index of line start offsets.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rtextarea;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+
+/**
+ * An append-only index of the offsets at which lines start.  Offsets are
+ * kept in a single <code>int</code> array, so the index costs about four
+ * bytes per line, as opposed to the several objects per line of a
+ * <code>PlainDocument</code>'s element tree.  Looking up the line containing
+ * an offset is a binary search.<p>
+ *
+ * The first line always starts at offset <code>0</code>.  Offsets must be
+ * added in increasing order.  An index may be built on one thread and then
+ * handed to another, but is not otherwise thread safe.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public class LineOffsetIndex {
+
+	private static final long ONES = 0x0101010101010101L;
+	private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+	private static final long HIGH = 0x8080808080808080L;
+	private static final long NEWLINES = ONES * '\n';
+
+	private int[] starts;
+	private int size;
+
+
+	/**
+	 * Constructor.
+	 */
+	public LineOffsetIndex() {
+		starts = new int[1024];
+		size = 1; // The first line starts at offset 0.
+	}
+
+
+	/**
+	 * Adds the start offset of the next line.
+	 *
+	 * @param offset The offset.  This must be greater than the last offset
+	 *        added.
+	 */
+	public void add(int offset) {
+		if (size==starts.length) {
+			starts = Arrays.copyOf(starts, size + (size>>1));
+		}
+		starts[size++] = offset;
+	}
+
+
+	/**
+	 * Returns the number of lines in the index.
+	 *
+	 * @return The line count.  This is always at least <code>1</code>.
+	 */
+	public int getLineCount() {
+		return size;
+	}
+
+
+	/**
+	 * Returns the line containing the specified offset.
+	 *
+	 * @param offset The offset.
+	 * @return The line.  Offsets past the start of the last line are in the
+	 *         last line; negative offsets are in the first line.
+	 */
+	public int getLineOfOffset(int offset) {
+		int low = 0;
+		int high = size - 1;
+		while (low<high) {
+			int mid = (low+high+1) >>> 1;
+			if (starts[mid]<=offset) {
+				low = mid;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+
+	/**
+	 * Returns the offset at which a line starts.
+	 *
+	 * @param line The line.
+	 * @return The start offset.
+	 * @throws IndexOutOfBoundsException If <code>line</code> is invalid.
+	 */
+	public int getLineStartOffset(int line) {
+		if (line<0 || line>=size) {
+			throw new IndexOutOfBoundsException("Invalid line: " + line +
+					" (line count: " + size + ")");
+		}
+		return starts[line];
+	}
+
+
+	/**
+	 * Returns the length of the longest line, given the length of the text
+	 * being indexed.  Line lengths do not include the newline that ends
+	 * them.
+	 *
+	 * @param textLength The length of the text.
+	 * @return The length of the longest line.
+	 */
+	public int getLongestLineLength(int textLength) {
+		int longest = textLength - starts[size-1];
+		for (int i=1; i<size; i++) {
+			longest = Math.max(longest, starts[i]-starts[i-1]-1);
+		}
+		return longest;
+	}
+
+
+	/**
+	 * Scans bytes for line feeds, stopping at the first byte that is not
+	 * 7-bit ASCII.  Eight bytes are examined at a time, so runs of ASCII
+	 * text (the bulk of most large logs and data files) are indexed without
+	 * being decoded.  The start of each line found is added to this index.
+	 *
+	 * @param buf The bytes to scan, from index <code>0</code> to its limit.
+	 *        Its position and byte order are not changed.
+	 * @param base The offset in the text corresponding to the first byte of
+	 *        <code>buf</code>.
+	 * @return The number of leading ASCII bytes scanned.  This is the limit
+	 *         of <code>buf</code> if it is entirely ASCII.
+	 */
+	public int scanAscii(ByteBuffer buf, int base) {
+
+		ByteBuffer words = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int limit = words.limit();
+		int i = 0;
+
+		for (; i+8<=limit; i+=8) {
+			long w = words.getLong(i);
+			if ((w&HIGH)!=0) {
+				break; // Finish up this word byte by byte
+			}
+			// Set the high bit of each byte that is a '\n'.  Unlike the
+			// usual "has zero byte" trick, this doesn't produce false
+			// positives from borrows, so each bit found is a real match.
+			long x = w ^ NEWLINES;
+			long found = ~(((x&LOW7) + LOW7) | x | LOW7);
+			while (found!=0) {
+				add(base + i + (Long.numberOfTrailingZeros(found)>>>3) + 1);
+				found &= found - 1;
+			}
+		}
+
+		for (; i<limit; i++) {
+			byte b = words.get(i);
+			if (b<0) {
+				break;
+			}
+			if (b=='\n') {
+				add(base + i + 1);
+			}
+		}
+
+		return i;
+
+	}
+
+
+	/**
+	 * Scans characters for line feeds, adding the start of each line found
+	 * to this index.
+	 *
+	 * @param chars The characters to scan.
+	 * @param offs The offset into <code>chars</code> at which to start.
+	 * @param len The number of characters to scan.
+	 * @param base The offset in the text corresponding to
+	 *        <code>chars[offs]</code>.
+	 */
+	public void scan(char[] chars, int offs, int len, int base) {
+		int delta = base - offs + 1;
+		for (int i=offs; i<offs+len; i++) {
+			if (chars[i]=='\n') {
+				add(i + delta);
+			}
+		}
+	}
+
+
+	/**
+	 * Releases any unused capacity.  This should be called once the index
+	 * has been completely built.
+	 */
+	public void trimToSize() {
+		if (starts.length>size) {
+			starts = Arrays.copyOf(starts, size);
+		}
+	}
+
+
+}
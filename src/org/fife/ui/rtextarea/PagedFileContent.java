@@ -0,0 +1,626 @@
+/*
+ * 10/18/2026
+ *
+ * PagedFileContent.java - Read-only document content read from a file a
+ * page at a time.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rtextarea;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.UndoableEdit;
+
+
+
+/**
+ * Read-only document content that leaves its text in a file on disk.  The
+ * file is split into pages of a fixed number of bytes; only the pages that
+ * are actually asked for (typically those being painted) are read and
+ * decoded, and only a few decoded pages are kept in memory at a time.<p>
+ *
+ * Pages are read with positional <code>FileChannel</code> reads rather than
+ * memory-mapped, so once the content is closed, nothing keeps the file
+ * open; on Windows, a mapped file can't be replaced, renamed or deleted
+ * until the mapping is garbage collected.<p>
+ *
+ * Before the content can be used, {@link #buildIndex()} must be called.  It
+ * makes a single sequential pass over the file, recording where each page
+ * starts in both bytes and chars, and where each line starts.  This pass can
+ * (and for large files should) be run off the EDT.<p>
+ *
+ * Since Swing documents are addressed by <code>int</code> offsets, at most
+ * <code>Integer.MAX_VALUE - 1</code> chars of a file are shown; see
+ * {@link #isTruncated()}.  Carriage returns are presented as spaces so that
+ * only <code>'\n'</code> separates lines, as Swing expects, while offsets
+ * still match the file.  Pages are decoded independently, so stateful
+ * encodings such as ISO-2022 are not supported.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public class PagedFileContent implements AbstractDocument.Content {
+
+	/**
+	 * The default page size, in bytes.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 1024 * 1024;
+
+	/**
+	 * The number of decoded pages kept in memory.
+	 */
+	private static final int MAX_CACHED_PAGES = 8;
+
+	private static final char[] NEWLINE = { '\n' };
+
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private Charset charset;
+	private long fileSize;
+	private int pageSize;
+
+	/**
+	 * The offset of the first byte of text, i.e. past any byte order mark.
+	 */
+	private long dataStart;
+
+	/**
+	 * Byte offset of the start of each page, plus the end of the last one.
+	 */
+	private long[] pageByteStarts;
+
+	/**
+	 * Char offset of the start of each page, plus the end of the last one.
+	 */
+	private int[] pageCharStarts;
+
+	private int pageCount;
+
+	/**
+	 * The number of chars in the (possibly truncated) file.
+	 */
+	private int charCount;
+
+	/**
+	 * The char offset of the start of each line.
+	 */
+	private LineOffsetIndex lineStarts;
+
+	private int longestLineLength;
+	private boolean truncated;
+	private volatile long bytesIndexed;
+
+	/**
+	 * Decoded pages, in least- to most-recently used order.
+	 */
+	private Map<Integer, char[]> pageCache;
+
+	/**
+	 * The buffer pages are read into when decoding them for display.
+	 */
+	private ByteBuffer pageBuffer;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file The file to view.
+	 * @param cs The charset of the file.
+	 * @throws IOException If the file cannot be opened.
+	 * @see #buildIndex()
+	 */
+	public PagedFileContent(File file, Charset cs) throws IOException {
+		this(file, cs, DEFAULT_PAGE_SIZE);
+	}
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file The file to view.
+	 * @param cs The charset of the file.
+	 * @param pageSize The page size, in bytes.
+	 * @throws IOException If the file cannot be opened.
+	 * @see #buildIndex()
+	 */
+	public PagedFileContent(File file, Charset cs, int pageSize)
+			throws IOException {
+
+		raf = new RandomAccessFile(file, "r");
+		channel = raf.getChannel();
+		fileSize = channel.size();
+		this.pageSize = Math.max(pageSize & ~1, 16); // Even, for UTF-16
+
+		// Pages are decoded independently, so a BOM can't be left for the
+		// decoder to interpret.
+		charset = cs;
+		byte[] bom = new byte[(int)Math.min(3, fileSize)];
+		raf.readFully(bom);
+		if ("UTF-8".equals(cs.name()) && bom.length==3 &&
+				bom[0]==(byte)0xEF && bom[1]==(byte)0xBB && bom[2]==(byte)0xBF) {
+			dataStart = 3;
+		}
+		else if ("UTF-16".equals(cs.name())) {
+			charset = Charset.forName("UTF-16BE");
+			if (bom.length>=2) {
+				if (bom[0]==(byte)0xFF && bom[1]==(byte)0xFE) {
+					charset = Charset.forName("UTF-16LE");
+					dataStart = 2;
+				}
+				else if (bom[0]==(byte)0xFE && bom[1]==(byte)0xFF) {
+					dataStart = 2;
+				}
+			}
+		}
+
+		pageCache = new LinkedHashMap<Integer, char[]>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, char[]> e) {
+				return size()>MAX_CACHED_PAGES;
+			}
+		};
+
+	}
+
+
+	/**
+	 * Scans the file once, recording where each page and each line starts.
+	 * This must be called before the content is used.  It may be called on
+	 * any thread, and checks for interruption between pages.<p>
+	 *
+	 * For charsets that encode ASCII as itself, runs of ASCII bytes are
+	 * searched for newlines directly, several bytes at a time, and are not
+	 * decoded; only the rest of each page goes through the decoder.
+	 *
+	 * @throws IOException If an error occurs reading the file, or the
+	 *         calling thread was interrupted.
+	 */
+	public void buildIndex() throws IOException {
+
+		int maxPages = (int)((fileSize-dataStart)/pageSize) + 2;
+		long[] byteStarts = new long[maxPages];
+		int[] charStarts = new int[maxPages];
+		LineOffsetIndex lines = new LineOffsetIndex();
+
+		CharsetDecoder decoder = createDecoder();
+		boolean ascii = isAsciiCompatible(charset);
+		ByteBuffer in = ByteBuffer.allocateDirect(pageSize);
+		CharBuffer out = CharBuffer.allocate(pageSize);
+		long pos = dataStart;
+		long total = 0;
+		int pages = 0;
+
+		while (pos<fileSize) {
+
+			if (Thread.currentThread().isInterrupted()) {
+				throw new InterruptedIOException("Indexing interrupted");
+			}
+
+			// A page never decodes to more chars than it has bytes.
+			readPage(pos, in);
+			if (total+in.limit()>Integer.MAX_VALUE-1) {
+				truncated = true;
+				break;
+			}
+
+			int skipped = ascii ? lines.scanAscii(in, (int)total) : 0;
+			in.position(skipped);
+			decodePage(decoder, in, pos, out);
+			int decoded = out.position();
+			lines.scan(out.array(), 0, decoded, (int)total+skipped);
+
+			byteStarts[pages] = pos;
+			charStarts[pages] = (int)total;
+			pages++;
+			total += skipped + decoded;
+			pos += in.position();
+			bytesIndexed = pos;
+
+		}
+
+		byteStarts[pages] = pos;
+		charStarts[pages] = (int)total;
+		lines.trimToSize();
+		int longest = lines.getLongestLineLength((int)total);
+
+		synchronized (this) {
+			pageByteStarts = byteStarts;
+			pageCharStarts = charStarts;
+			pageCount = pages;
+			charCount = (int)total;
+			lineStarts = lines;
+			longestLineLength = longest;
+		}
+
+	}
+
+
+	/**
+	 * Releases the file.  The content should not be used afterward.
+	 *
+	 * @throws IOException If an error occurs.
+	 */
+	public void close() throws IOException {
+		synchronized (this) {
+			pageCache.clear();
+			pageBuffer = null;
+		}
+		raf.close(); // Also closes the channel.
+	}
+
+
+	private CharsetDecoder createDecoder() {
+		return charset.newDecoder().
+				onMalformedInput(CodingErrorAction.REPLACE).
+				onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+
+	@Override
+	public Position createPosition(final int offset)
+			throws BadLocationException {
+		if (offset<0 || offset>length()) {
+			throw new BadLocationException("Invalid offset", offset);
+		}
+		// The content never changes, so positions never move.
+		return new Position() {
+			@Override
+			public int getOffset() {
+				return offset;
+			}
+		};
+	}
+
+
+	/**
+	 * Decodes the remainder of a page read into <code>out</code>, which
+	 * is cleared first.  A character split across the end of the page is
+	 * left for the next page, so on return the position of <code>in</code>
+	 * is where the next page should start.
+	 */
+	private void decodePage(CharsetDecoder decoder, ByteBuffer in,
+			long pos, CharBuffer out) throws IOException {
+		boolean last = pos+in.limit()==fileSize;
+		int start = in.position();
+		out.clear();
+		decoder.reset();
+		decoder.decode(in, out, last);
+		if (last) {
+			decoder.flush(out);
+		}
+		else if (in.position()==0 && start==0) { // Should never happen
+			throw new IOException("Cannot decode page at byte " + pos);
+		}
+	}
+
+
+	/**
+	 * Returns whether a charset encodes the 7-bit ASCII characters as
+	 * themselves, and never uses bytes in that range for anything else.
+	 */
+	private static boolean isAsciiCompatible(Charset cs) {
+		// ISO-2022 encodings switch character sets with 7-bit escapes.
+		if (!cs.canEncode() || cs.name().contains("2022")) {
+			return false;
+		}
+		byte[] ascii = new byte[128];
+		for (int i=0; i<ascii.length; i++) {
+			ascii[i] = (byte)i;
+		}
+		return Arrays.equals(ascii,
+				new String(ascii, StandardCharsets.ISO_8859_1).getBytes(cs));
+	}
+
+
+	/**
+	 * Returns the charset used to decode the file.
+	 *
+	 * @return The charset.
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+
+
+	/**
+	 * Returns the character at the specified offset.
+	 *
+	 * @param offset The offset.
+	 * @return The character.
+	 * @throws BadLocationException If <code>offset</code> is invalid.
+	 */
+	public char charAt(int offset) throws BadLocationException {
+		if (offset<0 || offset>=length()) {
+			throw new BadLocationException("Invalid offset", offset);
+		}
+		if (offset==charCount) {
+			return '\n';
+		}
+		int page = getPageOf(offset);
+		return getPage(page)[offset-pageCharStarts[page]];
+	}
+
+
+	@Override
+	public void getChars(int where, int len, Segment txt)
+			throws BadLocationException {
+
+		if (where<0 || len<0 || where+len>length()) {
+			throw new BadLocationException("Invalid range", where);
+		}
+
+		if (where==charCount) { // Just the implied trailing newline
+			txt.array = NEWLINE;
+			txt.offset = 0;
+			txt.count = len;
+			return;
+		}
+
+		int page = getPageOf(where);
+		char[] chars = getPage(page);
+		int offs = where - pageCharStarts[page];
+		if (offs+len<=chars.length) {
+			txt.array = chars;
+			txt.offset = offs;
+			txt.count = len;
+			return;
+		}
+		if (txt.isPartialReturn()) {
+			txt.array = chars;
+			txt.offset = offs;
+			txt.count = chars.length - offs;
+			return;
+		}
+
+		// The range spans pages, so it must be copied.
+		char[] copy = new char[len];
+		int copied = 0;
+		while (copied<len) {
+			if (page==pageCount) { // Past the last page: implied newline
+				copy[copied++] = '\n';
+				break;
+			}
+			chars = getPage(page);
+			int count = Math.min(chars.length-offs, len-copied);
+			System.arraycopy(chars, offs, copy, copied, count);
+			copied += count;
+			page++;
+			offs = 0;
+		}
+		txt.array = copy;
+		txt.offset = 0;
+		txt.count = len;
+
+	}
+
+
+	/**
+	 * Returns the number of bytes of the file indexed so far.  This may be
+	 * called from any thread to report the progress of
+	 * {@link #buildIndex()}.
+	 *
+	 * @return The number of bytes indexed.
+	 * @see #getFileSize()
+	 */
+	public long getBytesIndexed() {
+		return bytesIndexed;
+	}
+
+
+	/**
+	 * Returns the size of the file, in bytes.
+	 *
+	 * @return The file size.
+	 */
+	public long getFileSize() {
+		return fileSize;
+	}
+
+
+	/**
+	 * Returns the number of lines in the content.
+	 *
+	 * @return The line count.
+	 */
+	public int getLineCount() {
+		return lineStarts.getLineCount();
+	}
+
+
+	/**
+	 * Returns the line containing the specified offset.
+	 *
+	 * @param offset The offset.
+	 * @return The line, or the last line if <code>offset</code> is past the
+	 *         end of the content.
+	 */
+	public int getLineOfOffset(int offset) {
+		return lineStarts.getLineOfOffset(offset);
+	}
+
+
+	/**
+	 * Returns the offset of the start of a line.
+	 *
+	 * @param line The line.
+	 * @return The start offset.
+	 */
+	public int getLineStartOffset(int line) {
+		return lineStarts.getLineStartOffset(line);
+	}
+
+
+	/**
+	 * Returns the offset just past the end of a line, that is, past its
+	 * trailing newline.
+	 *
+	 * @param line The line.
+	 * @return The end offset.
+	 */
+	public int getLineEndOffset(int line) {
+		return line==lineStarts.getLineCount()-1 ? length() :
+				lineStarts.getLineStartOffset(line+1);
+	}
+
+
+	/**
+	 * Returns the length of the longest line, in chars.  This is useful as
+	 * an estimate of the preferred width of a view of this content.
+	 *
+	 * @return The length of the longest line.
+	 */
+	public int getLongestLineLength() {
+		return longestLineLength;
+	}
+
+
+	/**
+	 * Returns a decoded page, decoding it if it is not cached.  Carriage
+	 * returns are replaced with spaces.
+	 */
+	private synchronized char[] getPage(int page) throws BadLocationException {
+		Integer key = Integer.valueOf(page);
+		char[] chars = pageCache.get(key);
+		if (chars==null) {
+			int count = pageCharStarts[page+1] - pageCharStarts[page];
+			CharBuffer out = CharBuffer.allocate(pageSize);
+			try {
+				long pos = pageByteStarts[page];
+				if (pageBuffer==null) {
+					pageBuffer = ByteBuffer.allocateDirect(pageSize);
+				}
+				readPage(pos, pageBuffer);
+				decodePage(createDecoder(), pageBuffer, pos, out);
+			} catch (IOException ioe) {
+				throw new BadLocationException(ioe.toString(),
+						pageCharStarts[page]);
+			}
+			chars = new char[count];
+			out.flip();
+			out.get(chars, 0, Math.min(count, out.remaining()));
+			for (int i=0; i<count; i++) {
+				if (chars[i]=='\r') {
+					chars[i] = ' ';
+				}
+			}
+			pageCache.put(key, chars);
+		}
+		return chars;
+	}
+
+
+	/**
+	 * Returns the page containing the specified char offset, which must be
+	 * less than the number of chars in the content.
+	 */
+	private int getPageOf(int offset) {
+		int low = 0;
+		int high = pageCount - 1;
+		while (low<high) {
+			int mid = (low+high+1) >>> 1;
+			if (pageCharStarts[mid]<=offset) {
+				low = mid;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+
+	/**
+	 * Reads up to a page of bytes starting at the specified file offset.
+	 * On return, the buffer is positioned at <code>0</code> with its limit
+	 * at the end of the bytes read.
+	 *
+	 * @param pos The file offset.
+	 * @param buf The buffer to read into.  Its capacity must be at least
+	 *        the page size.
+	 * @throws IOException If an error occurs reading, or the file has been
+	 *         truncated.
+	 */
+	private void readPage(long pos, ByteBuffer buf) throws IOException {
+		buf.clear();
+		buf.limit((int)Math.min(pageSize, fileSize-pos));
+		while (buf.hasRemaining()) {
+			if (channel.read(buf, pos+buf.position())==-1) {
+				throw new IOException("File truncated at byte " +
+						(pos+buf.position()));
+			}
+		}
+		buf.flip();
+	}
+
+
+	@Override
+	public String getString(int where, int len) throws BadLocationException {
+		Segment s = new Segment();
+		getChars(where, len, s);
+		return new String(s.array, s.offset, s.count);
+	}
+
+
+	/**
+	 * Always throws an exception, as this content is read-only.
+	 */
+	@Override
+	public UndoableEdit insertString(int where, String str)
+			throws BadLocationException {
+		throw new BadLocationException("Content is read-only", where);
+	}
+
+
+	/**
+	 * Returns whether only part of the file is shown, because it has more
+	 * characters than a document can hold.
+	 *
+	 * @return Whether the content is truncated.
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+
+	/**
+	 * Returns the length of the content, which includes an implied newline
+	 * at the end, as with all <code>Content</code>s.
+	 *
+	 * @return The length.
+	 */
+	@Override
+	public int length() {
+		return charCount + 1;
+	}
+
+
+	/**
+	 * Always throws an exception, as this content is read-only.
+	 */
+	@Override
+	public UndoableEdit remove(int where, int nitems)
+			throws BadLocationException {
+		throw new BadLocationException("Content is read-only", where);
+	}
+
+
+}
@@ -0,0 +1,917 @@
+/*
+ * 10/18/2026
+ *
+ * PieceTableContent.java - Document content stored as a piece table.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rtextarea;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+
+
+/**
+ * Document content stored as a piece table.  Text is never moved once it
+ * has been added:  the initial text is kept in an immutable buffer,
+ * inserted text is appended to "add" buffers, and the document is described
+ * by a sequence of <em>pieces</em>, each a range of one of these buffers.
+ * Pieces are kept in a balanced tree (a treap) ordered by document offset,
+ * so finding the text at an offset, inserting and removing all take
+ * <code>O(log n)</code> time in the number of pieces, regardless of how far
+ * apart successive edits are.  By contrast, <code>GapContent</code> must
+ * move its gap, copying all text in between, whenever the edit location
+ * changes.<p>
+ *
+ * The tree is persistent:  edits create new nodes along a single path and
+ * share everything else.  An undoable edit therefore just remembers the
+ * trees from before and after it, and undoing or redoing it is a constant
+ * time swap of the root.<p>
+ *
+ * To use this content, pass it to the <code>RDocument</code> or
+ * <code>RSyntaxDocument</code> constructor that accepts a
+ * <code>Content</code>.  Unlike <code>GapContent</code>, this class is not
+ * serializable.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see RDocument#RDocument(AbstractDocument.Content)
+ */
+public class PieceTableContent implements AbstractDocument.Content,
+		RDocument.ChunkedContent {
+
+	/**
+	 * The minimum size of an add buffer.
+	 */
+	private static final int ADD_BUFFER_SIZE = 64 * 1024;
+
+	private static final char[] NEWLINE = { '\n' };
+
+	/**
+	 * The root of the piece tree.
+	 */
+	private Node root;
+
+	/**
+	 * The add buffer currently being appended to, and how much of it has
+	 * been used.
+	 */
+	private char[] addBuffer;
+	private int addUsed;
+
+	/**
+	 * Identifies the current text.  Undoable edits use this to verify that
+	 * the tree they saved is still the right one to restore.
+	 */
+	private long version;
+	private long nextVersion;
+
+	/**
+	 * Seed for the treap's node priorities.
+	 */
+	private int seed;
+
+	private MarkVector marks;
+
+
+	/**
+	 * Creates an empty content.
+	 */
+	public PieceTableContent() {
+		this(null);
+	}
+
+
+	/**
+	 * Creates a content initially containing the specified text.  The
+	 * array is used as the immutable original buffer; it is not copied, so
+	 * it must not be modified afterward.
+	 *
+	 * @param original The initial text.  This should not include the
+	 *        implied newline at the end of all <code>Content</code>s.  This
+	 *        may be <code>null</code>.
+	 */
+	public PieceTableContent(char[] original) {
+		seed = 0x2545F491;
+		marks = new MarkVector();
+		root = newNode(NEWLINE, 0, 1, null, null);
+		if (original!=null && original.length>0) {
+			root = merge(newNode(original, 0, original.length, null, null),
+						root);
+		}
+		addBuffer = new char[ADD_BUFFER_SIZE];
+	}
+
+
+	/**
+	 * Appends characters to the add buffer, returning the buffer they were
+	 * written to.  The characters start at <code>addUsed - len</code>.
+	 */
+	private char[] append(char[] chars, int offs, int len) {
+		if (addBuffer.length-addUsed<len) {
+			addBuffer = new char[Math.max(ADD_BUFFER_SIZE, len)];
+			addUsed = 0;
+		}
+		System.arraycopy(chars, offs, addBuffer, addUsed, len);
+		addUsed += len;
+		return addBuffer;
+	}
+
+
+	/**
+	 * Returns the character at the specified offset.
+	 *
+	 * @param offset The offset.
+	 * @return The character.
+	 * @throws BadLocationException If <code>offset</code> is invalid.
+	 */
+	@Override
+	public char charAt(int offset) throws BadLocationException {
+		if (offset<0 || offset>=length()) {
+			throw new BadLocationException("Invalid offset", offset);
+		}
+		Node t = root;
+		while (true) {
+			int ll = size(t.left);
+			if (offset<ll) {
+				t = t.left;
+			}
+			else if (offset<ll+t.len) {
+				return t.buf[t.start + offset - ll];
+			}
+			else {
+				offset -= ll + t.len;
+				t = t.right;
+			}
+		}
+	}
+
+
+	/**
+	 * Copies characters <code>[from, to)</code> of a subtree into an array.
+	 */
+	private static void copy(Node t, int from, int to, char[] dest,
+			int destOffs) {
+		while (t!=null && from<to) {
+			int ll = size(t.left);
+			if (from<ll) {
+				int end = Math.min(to, ll);
+				copy(t.left, from, end, dest, destOffs);
+				destOffs += end - from;
+				from = end;
+			}
+			int pieceEnd = ll + t.len;
+			if (from<pieceEnd && from<to) {
+				int end = Math.min(to, pieceEnd);
+				System.arraycopy(t.buf, t.start+from-ll, dest, destOffs,
+								end-from);
+				destOffs += end - from;
+				from = end;
+			}
+			from -= pieceEnd;
+			to -= pieceEnd;
+			t = t.right;
+		}
+	}
+
+
+	@Override
+	public UndoableEdit insertString(int where, String str)
+			throws BadLocationException {
+		if (where<0 || where>=length()) {
+			throw new BadLocationException("Invalid insert", where);
+		}
+		char[] chars = str.toCharArray();
+		Node before = root;
+		long versionBefore = version;
+		insert(where, chars, chars.length);
+		return new InsertEdit(where, chars.length, before, versionBefore);
+	}
+
+
+	/**
+	 * Inserts characters without creating an undoable edit.
+	 *
+	 * @param where The offset at which to insert.
+	 * @param chars The characters to insert.
+	 * @param len The number of characters to insert.
+	 */
+	@Override
+	public void insertChars(int where, char[] chars, int len) {
+		insert(where, chars, len);
+	}
+
+
+	/**
+	 * Returns an undoable edit for text added via
+	 * {@link #insertChars(int, char[], int)}.
+	 *
+	 * @param where The offset at which the text was inserted.
+	 * @param len The number of characters inserted.
+	 * @return The edit.
+	 */
+	@Override
+	public UndoableEdit createInsertUndo(int where, int len) {
+		// The tree from before the first chunk is not known, so undoing
+		// this edit removes the text rather than restoring a saved tree.
+		return new InsertEdit(where, len, null, -1);
+	}
+
+
+	private void insert(int where, char[] chars, int len) {
+
+		if (len==0) {
+			return;
+		}
+		Node[] halves = split(root, where);
+		Node left = halves[0];
+
+		// Text typed at the end of the previous insertion just extends that
+		// piece, so typing doesn't create a piece per keystroke.
+		Node last = rightmost(left);
+		if (last!=null && last.buf==addBuffer &&
+				last.start+last.len==addUsed &&
+				addBuffer.length-addUsed>=len) {
+			append(chars, 0, len);
+			left = extendRightmost(left, len);
+		}
+		else {
+			char[] buf = append(chars, 0, len);
+			left = merge(left, newNode(buf, addUsed-len, len, null, null));
+		}
+
+		root = merge(left, halves[1]);
+		version = ++nextVersion;
+		marks.updateForInsert(where, len);
+
+	}
+
+
+	@Override
+	public Position createPosition(int offset) throws BadLocationException {
+		if (offset<0 || offset>length()) {
+			throw new BadLocationException("Invalid offset", offset);
+		}
+		return marks.createPosition(offset);
+	}
+
+
+	/**
+	 * Returns a copy of a subtree whose rightmost piece is longer by
+	 * <code>len</code> characters.
+	 */
+	private static Node extendRightmost(Node t, int len) {
+		if (t.right==null) {
+			return new Node(t.buf, t.start, t.len+len, t.priority, t.left,
+							null);
+		}
+		return t.with(t.left, extendRightmost(t.right, len));
+	}
+
+
+	@Override
+	public void getChars(int where, int len, Segment txt)
+			throws BadLocationException {
+
+		if (where<0 || len<0 || where+len>length()) {
+			throw new BadLocationException("Invalid range", where);
+		}
+
+		// Find the piece containing "where".
+		Node t = root;
+		int offs = where;
+		while (t!=null) {
+			int ll = size(t.left);
+			if (offs<ll) {
+				t = t.left;
+			}
+			else if (offs<ll+t.len || t.right==null) {
+				offs -= ll;
+				break;
+			}
+			else {
+				offs -= ll + t.len;
+				t = t.right;
+			}
+		}
+
+		// If the range is all in one piece, or the caller is okay with
+		// getting just part of it, no copy is needed.
+		int inPiece = t.len - offs;
+		if (len<=inPiece) {
+			txt.array = t.buf;
+			txt.offset = t.start + offs;
+			txt.count = len;
+		}
+		else if (txt.isPartialReturn()) {
+			txt.array = t.buf;
+			txt.offset = t.start + offs;
+			txt.count = inPiece;
+		}
+		else {
+			char[] copy = new char[len];
+			copy(root, where, where+len, copy, 0);
+			txt.array = copy;
+			txt.offset = 0;
+			txt.count = len;
+		}
+
+	}
+
+
+	/**
+	 * Returns the number of pieces the text is currently split into.  This
+	 * is mostly useful for debugging and benchmarking.
+	 *
+	 * @return The number of pieces.
+	 */
+	public int getPieceCount() {
+		return count(root);
+	}
+
+
+	private static int count(Node t) {
+		return t==null ? 0 : count(t.left) + 1 + count(t.right);
+	}
+
+
+	@Override
+	public String getString(int where, int len) throws BadLocationException {
+		Segment s = new Segment();
+		getChars(where, len, s);
+		return new String(s.array, s.offset, s.count);
+	}
+
+
+	@Override
+	public int length() {
+		return root.total;
+	}
+
+
+	/**
+	 * Joins two trees, all of whose text in <code>a</code> comes before
+	 * that in <code>b</code>.
+	 */
+	private static Node merge(Node a, Node b) {
+		if (a==null) {
+			return b;
+		}
+		if (b==null) {
+			return a;
+		}
+		if (a.priority>=b.priority) {
+			return a.with(a.left, merge(a.right, b));
+		}
+		return b.with(merge(a, b.left), b.right);
+	}
+
+
+	private Node newNode(char[] buf, int start, int len, Node left,
+			Node right) {
+		// xorshift
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		return new Node(buf, start, len, seed, left, right);
+	}
+
+
+	@Override
+	public UndoableEdit remove(int where, int nitems)
+			throws BadLocationException {
+		if (where<0 || nitems<0 || where+nitems>=length()) {
+			throw new BadLocationException("Invalid remove", where+nitems);
+		}
+		Node before = root;
+		long versionBefore = version;
+		List<MarkRestore> positions = marks.getInRange(where, nitems);
+		removeImpl(where, nitems);
+		return new RemoveEdit(where, nitems, before, versionBefore, positions);
+	}
+
+
+	private void removeImpl(int where, int nitems) {
+		if (nitems==0) {
+			return;
+		}
+		Node[] halves = split(root, where);
+		Node[] rest = split(halves[1], nitems);
+		root = merge(halves[0], rest[1]);
+		version = ++nextVersion;
+		marks.updateForRemove(where, nitems);
+	}
+
+
+	/**
+	 * Sets the text to a tree saved by an undoable edit.
+	 */
+	private void restore(Node tree, long treeVersion) {
+		root = tree;
+		version = treeVersion;
+	}
+
+
+	private static Node rightmost(Node t) {
+		if (t!=null) {
+			while (t.right!=null) {
+				t = t.right;
+			}
+		}
+		return t;
+	}
+
+
+	private static int size(Node t) {
+		return t==null ? 0 : t.total;
+	}
+
+
+	/**
+	 * Splits a tree into one holding its first <code>k</code> characters
+	 * and one holding the rest.  A piece straddling the split point is cut
+	 * in two.
+	 */
+	private static Node[] split(Node t, int k) {
+		if (t==null) {
+			return new Node[2];
+		}
+		int ll = size(t.left);
+		if (k<=ll) {
+			Node[] halves = split(t.left, k);
+			halves[1] = t.with(halves[1], t.right);
+			return halves;
+		}
+		if (k>=ll+t.len) {
+			Node[] halves = split(t.right, k-ll-t.len);
+			halves[0] = t.with(t.left, halves[0]);
+			return halves;
+		}
+		// Both halves keep t's priority, so each is still a valid treap.
+		int offs = k - ll;
+		return new Node[] {
+			new Node(t.buf, t.start, offs, t.priority, t.left, null),
+			new Node(t.buf, t.start+offs, t.len-offs, t.priority, null,
+					t.right)
+		};
+	}
+
+
+	/**
+	 * An immutable node of the piece tree.  Each node is a piece, a range
+	 * of one of the buffers.
+	 */
+	private static final class Node {
+
+		final char[] buf;
+		final int start;
+		final int len;
+		final int priority;
+		final Node left;
+		final Node right;
+
+		/**
+		 * The number of characters in this subtree.
+		 */
+		final int total;
+
+		Node(char[] buf, int start, int len, int priority, Node left,
+				Node right) {
+			this.buf = buf;
+			this.start = start;
+			this.len = len;
+			this.priority = priority;
+			this.left = left;
+			this.right = right;
+			total = size(left) + len + size(right);
+		}
+
+		Node with(Node left, Node right) {
+			return new Node(buf, start, len, priority, left, right);
+		}
+
+	}
+
+
+	/**
+	 * The offset a position had before an edit, so it can be put back when
+	 * the edit is undone.
+	 */
+	private static final class MarkRestore {
+
+		final Mark mark;
+		final int offset;
+
+		MarkRestore(Mark mark, int offset) {
+			this.mark = mark;
+			this.offset = offset;
+		}
+
+	}
+
+
+	/**
+	 * The bookkeeping for a position.  Positions are only weakly
+	 * referenced, so marks for positions no longer in use can be discarded.
+	 */
+	private static final class Mark extends WeakReference<StickyPosition> {
+
+		/**
+		 * The offset of this mark, less the pending shift if this mark is at
+		 * or after the shift index.
+		 */
+		int offset;
+
+		/**
+		 * The index of this mark in the mark array.
+		 */
+		int index;
+
+		Mark(StickyPosition pos, ReferenceQueue<StickyPosition> queue) {
+			super(pos, queue);
+		}
+
+	}
+
+
+	/**
+	 * The positions handed out by this content.
+	 */
+	private final class StickyPosition implements Position {
+
+		private Mark mark;
+
+		@Override
+		public int getOffset() {
+			return marks.getOffset(mark);
+		}
+
+		@Override
+		public String toString() {
+			return Integer.toString(getOffset());
+		}
+
+	}
+
+
+	/**
+	 * Keeps all positions sorted by offset.  An edit shifts every position
+	 * after it, which is done lazily:  marks from a "shift index" onward all
+	 * have a pending shift added to their stored offsets.  An edit near the
+	 * previous one only moves the shift index a little, much as
+	 * <code>GapContent</code> moves its gap.
+	 */
+	private final class MarkVector {
+
+		private Mark[] array;
+		private int size;
+		private int shiftIndex;
+		private int shift;
+		private ReferenceQueue<StickyPosition> queue;
+		private int unused;
+
+		MarkVector() {
+			array = new Mark[64];
+			queue = new ReferenceQueue<StickyPosition>();
+		}
+
+		private void add(int index, Mark mark) {
+			if (size==array.length) {
+				array = Arrays.copyOf(array, size*2);
+			}
+			System.arraycopy(array, index, array, index+1, size-index);
+			array[index] = mark;
+			size++;
+			for (int i=index; i<size; i++) {
+				array[i].index = i;
+			}
+			if (index<shiftIndex) {
+				shiftIndex++;
+			}
+		}
+
+		Position createPosition(int offset) {
+
+			removeUnused();
+
+			// Positions aren't shared, even at the same offset, since one
+			// might be put back somewhere else when an edit is undone.
+			int index = find(offset);
+			StickyPosition pos = new StickyPosition();
+			Mark mark = new Mark(pos, queue);
+			mark.offset = index>=shiftIndex ? offset-shift : offset;
+			pos.mark = mark;
+			add(index, mark);
+			return pos;
+
+		}
+
+		/**
+		 * Returns the index of the first mark at or after an offset.
+		 */
+		private int find(int offset) {
+			int low = 0;
+			int high = size;
+			while (low<high) {
+				int mid = (low+high) >>> 1;
+				if (getOffset(array[mid])<offset) {
+					low = mid + 1;
+				}
+				else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Returns the marks in the range <code>[where, where+len]</code>,
+		 * along with their current offsets.
+		 */
+		List<MarkRestore> getInRange(int where, int len) {
+			List<MarkRestore> list = new ArrayList<MarkRestore>();
+			int end = find(where+len+1);
+			for (int i=find(where); i<end; i++) {
+				list.add(new MarkRestore(array[i], getOffset(array[i])));
+			}
+			return list;
+		}
+
+		int getOffset(Mark mark) {
+			return mark.index>=shiftIndex ? mark.offset+shift : mark.offset;
+		}
+
+		/**
+		 * Moves the shift index, updating the stored offsets of the marks
+		 * between its old and new locations.
+		 */
+		private void moveShiftIndex(int index) {
+			if (shift!=0) {
+				for (int i=index; i<shiftIndex; i++) {
+					array[i].offset -= shift;
+				}
+				for (int i=shiftIndex; i<index; i++) {
+					array[i].offset += shift;
+				}
+			}
+			shiftIndex = index;
+			if (shiftIndex==size) {
+				shift = 0; // No marks are shifted, so start over.
+			}
+		}
+
+		/**
+		 * Discards marks whose positions are no longer referenced, once
+		 * there are enough of them to be worth the trouble.
+		 */
+		private void removeUnused() {
+			while (queue.poll()!=null) {
+				unused++;
+			}
+			if (unused<64 || unused<size/2) {
+				return;
+			}
+			moveShiftIndex(size);
+			int count = 0;
+			for (int i=0; i<size; i++) {
+				Mark mark = array[i];
+				if (mark.get()!=null) {
+					mark.index = count;
+					array[count++] = mark;
+				}
+			}
+			Arrays.fill(array, count, size, null);
+			size = shiftIndex = count;
+			unused = 0;
+		}
+
+		/**
+		 * Puts positions back where they were before an edit.
+		 */
+		void restore(List<MarkRestore> positions, int where, int len) {
+
+			if (positions.isEmpty()) {
+				return;
+			}
+
+			// All marks now in [where, where+len] are contiguous, and
+			// remain in that range, so only they need to be re-sorted.
+			int start = find(where);
+			int end = find(where+len+1);
+			moveShiftIndex(end);
+			for (MarkRestore restore : positions) {
+				Mark mark = restore.mark;
+				if (mark.index>=start && mark.index<end &&
+						array[mark.index]==mark) {
+					mark.offset = restore.offset;
+				}
+			}
+			Arrays.sort(array, start, end, new Comparator<Mark>() {
+				@Override
+				public int compare(Mark m1, Mark m2) {
+					return m1.offset - m2.offset;
+				}
+			});
+			for (int i=start; i<end; i++) {
+				array[i].index = i;
+			}
+
+		}
+
+		/**
+		 * Shifts positions after an insertion.  As with the other
+		 * <code>Content</code>s in the JDK, a position at the insertion
+		 * offset moves along with the inserted text, except at offset 0.
+		 */
+		void updateForInsert(int where, int len) {
+			moveShiftIndex(find(Math.max(where, 1)));
+			shift += len;
+		}
+
+		/**
+		 * Shifts positions after a removal.  Positions in the removed range
+		 * move to its start.
+		 */
+		void updateForRemove(int where, int len) {
+			int end = find(where+len+1);
+			for (int i=find(where+1); i<end; i++) {
+				Mark mark = array[i];
+				mark.offset = i>=shiftIndex ? where-shift : where;
+			}
+			moveShiftIndex(end);
+			shift -= len;
+		}
+
+	}
+
+
+	/**
+	 * Undoes and redoes an edit by swapping in the tree from before or after
+	 * it.  If the text was changed by something other than this edit's
+	 * undo or redo in the meantime, the saved tree is stale; the edit is then
+	 * applied to the current tree instead, taking its text from the tree it
+	 * was originally made in.
+	 */
+	private abstract class SnapshotEdit extends AbstractUndoableEdit {
+
+		protected int offset;
+		protected int length;
+		private Node before;
+		private long versionBefore;
+		private Node after;
+		private long versionAfter;
+
+		/**
+		 * The tree holding the inserted or removed text at
+		 * <code>[offset, offset+length)</code>.
+		 */
+		private Node text;
+
+		/**
+		 * Where positions in the edited range were before this edit was
+		 * last undone (for an insertion) or made (for a removal).
+		 */
+		protected List<MarkRestore> positions;
+
+		/**
+		 * @param before The tree before the edit, or <code>null</code> if
+		 *        unknown.
+		 */
+		SnapshotEdit(int offset, int length, Node before, long versionBefore,
+				Node text) {
+			this.offset = offset;
+			this.length = length;
+			this.before = before;
+			this.versionBefore = versionBefore;
+			this.text = text;
+			after = root;
+			versionAfter = version;
+		}
+
+		/**
+		 * Makes the tree from before this edit current again.
+		 */
+		protected void revert(boolean wasInsert) {
+			if (before!=null && version==versionAfter) {
+				restore(before, versionBefore);
+				if (wasInsert) {
+					marks.updateForRemove(offset, length);
+				}
+				else {
+					marks.updateForInsert(offset, length);
+				}
+			}
+			else {
+				after = root;
+				versionAfter = version;
+				apply(!wasInsert);
+				before = root;
+				versionBefore = version;
+			}
+		}
+
+		/**
+		 * Makes the tree from after this edit current again.
+		 */
+		protected void reapply(boolean isInsert) {
+			if (after!=null && version==versionBefore) {
+				restore(after, versionAfter);
+				if (isInsert) {
+					marks.updateForInsert(offset, length);
+				}
+				else {
+					marks.updateForRemove(offset, length);
+				}
+			}
+			else {
+				before = root;
+				versionBefore = version;
+				apply(isInsert);
+				after = root;
+				versionAfter = version;
+			}
+		}
+
+		private void apply(boolean insert) {
+			if (insert) {
+				char[] chars = new char[length];
+				copy(text, offset, offset+length, chars, 0);
+				insert(offset, chars, length);
+			}
+			else {
+				removeImpl(offset, length);
+			}
+		}
+
+	}
+
+
+	/**
+	 * Undoes and redoes an insertion.
+	 */
+	private class InsertEdit extends SnapshotEdit {
+
+		InsertEdit(int offset, int length, Node before, long versionBefore) {
+			super(offset, length, before, versionBefore, root);
+		}
+
+		@Override
+		public void undo() throws CannotUndoException {
+			super.undo();
+			positions = marks.getInRange(offset, length);
+			revert(true);
+		}
+
+		@Override
+		public void redo() throws CannotRedoException {
+			super.redo();
+			reapply(true);
+			marks.restore(positions, offset, length);
+			positions = null;
+		}
+
+	}
+
+
+	/**
+	 * Undoes and redoes a removal.
+	 */
+	private class RemoveEdit extends SnapshotEdit {
+
+		RemoveEdit(int offset, int length, Node before, long versionBefore,
+				List<MarkRestore> positions) {
+			super(offset, length, before, versionBefore, before);
+			this.positions = positions;
+		}
+
+		@Override
+		public void undo() throws CannotUndoException {
+			super.undo();
+			revert(false);
+			marks.restore(positions, offset, length);
+		}
+
+		@Override
+		public void redo() throws CannotRedoException {
+			super.redo();
+			positions = marks.getInRange(offset, length);
+			reapply(false);
+		}
+
+	}
+
+}
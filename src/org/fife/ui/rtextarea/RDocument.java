@@ -8,9 +8,20 @@
  */
 package org.fife.ui.rtextarea;
 
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.UndoableEditEvent;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultEditorKit;
 import javax.swing.text.GapContent;
 import javax.swing.text.PlainDocument;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.CompoundEdit;
+import javax.swing.undo.UndoableEdit;
 
 
 /**
@@ -30,6 +41,17 @@ public class RDocument extends PlainDocument {
 	}
 
 
+	/**
+	 * Creates a document that stores its text in something other than the
+	 * default gap buffer, such as a {@link PieceTableContent}.
+	 *
+	 * @param content The document's content.
+	 */
+	public RDocument(Content content) {
+		super(content);
+	}
+
+
 	/**
 	 * Returns the character in the document at the specified offset.
 	 *
@@ -38,15 +60,187 @@ public class RDocument extends PlainDocument {
 	 * @throws BadLocationException If the offset is invalid.
 	 */
 	public char charAt(int offset) throws BadLocationException {
-		return ((RGapContent)getContent()).charAt(offset);
+		Content content = getContent();
+		if (content instanceof ChunkedContent) {
+			return ((ChunkedContent)content).charAt(offset);
+		}
+		return content.getString(offset, 1).charAt(0);
+	}
+
+
+	/**
+	 * Inserts all text read from a <code>Reader</code> into this document.
+	 * Characters are copied chunk-by-chunk straight into the document's
+	 * content, so no intermediate <code>String</code> holding the entire
+	 * text is ever created, and listeners receive a single insert event
+	 * once all text has been read.<p>
+	 *
+	 * Line terminators are normalized to <code>'\n'</code>, as is done by
+	 * <code>DefaultEditorKit.read()</code>, and the first terminator found
+	 * is remembered in the {@link DefaultEditorKit#EndOfLineStringProperty}
+	 * property.  Note that any installed <code>DocumentFilter</code> is not
+	 * consulted.<p>
+	 *
+	 * If reading fails, any text already read is removed again before the
+	 * exception is thrown, leaving the document as it was.
+	 *
+	 * @param offs The offset at which to insert the text.
+	 * @param in The source of the text.  This reader is not closed.
+	 * @param bufSize The size of the chunks to read, in chars.
+	 * @return The number of characters inserted.
+	 * @throws IOException If an error occurs reading.
+	 * @throws BadLocationException If <code>offs</code> is invalid.
+	 */
+	public int insert(int offs, Reader in, int bufSize)
+			throws IOException, BadLocationException {
+
+		if (offs<0 || offs>getLength()) {
+			throw new BadLocationException("Invalid offset", offs);
+		}
+
+		Content content = getContent();
+		ChunkedContent chunked = content instanceof ChunkedContent ?
+				(ChunkedContent)content : null;
+		CompoundEdit edits = new CompoundEdit();
+		char[] buf = new char[Math.max(bufSize, 2)];
+		String eol = null;
+		boolean eolPending = false;
+		boolean lastWasCR = false;
+		int total = 0;
+		boolean read = false;
+
+		writeLock();
+		try {
+
+			int n;
+			while ((n = in.read(buf, 0, buf.length))!=-1) {
+				int last = 0;
+				for (int i=0; i<n; i++) {
+					char ch = buf[i];
+					if (lastWasCR) {
+						lastWasCR = false;
+						if (ch=='\n') {
+							if (eolPending) {
+								eol = "\r\n";
+							}
+							eolPending = false;
+							continue; // '\r' was already written as '\n'
+						}
+						eolPending = false;
+					}
+					if (ch=='\r') {
+						if (eol==null) {
+							eol = "\r";
+							eolPending = true;
+						}
+						buf[last++] = '\n';
+						lastWasCR = true;
+					}
+					else {
+						if (ch=='\n' && eol==null) {
+							eol = "\n";
+						}
+						buf[last++] = ch;
+					}
+				}
+				if (last>0) {
+					if (chunked!=null) {
+						chunked.insertChars(offs+total, buf, last);
+					}
+					else {
+						edits.addEdit(content.insertString(offs+total,
+											new String(buf, 0, last)));
+					}
+					total += last;
+				}
+			}
+			read = true;
+
+			if (total>0) {
+				UndoableEdit u = edits;
+				if (chunked!=null) {
+					u = chunked.createInsertUndo(offs, total);
+				}
+				else {
+					edits.end();
+				}
+				DefaultDocumentEvent e = new DefaultDocumentEvent(offs, total,
+											DocumentEvent.EventType.INSERT);
+				e.addEdit(u);
+				insertUpdate(e, null);
+				e.end();
+				fireInsertUpdate(e);
+				fireUndoableEditUpdate(new UndoableEditEvent(this, e));
+			}
+
+		} finally {
+			// If reading failed, no event was fired for the text already
+			// inserted, so take it back out to keep the line elements in
+			// sync with the content.
+			if (!read && total>0) {
+				try {
+					content.remove(offs, total);
+				} catch (BadLocationException ble) { // Never happens
+					ble.printStackTrace();
+				}
+			}
+			writeUnlock();
+		}
+
+		if (eol!=null) {
+			putProperty(DefaultEditorKit.EndOfLineStringProperty, eol);
+		}
+		return total;
+
+	}
+
+
+	/**
+	 * Document content that provides fast access to individual characters,
+	 * and can insert text in several chunks covered by a single undoable
+	 * edit.
+	 */
+	interface ChunkedContent {
+
+		/**
+		 * Returns the character at the specified offset.
+		 *
+		 * @param offset The offset.
+		 * @return The character.
+		 * @throws BadLocationException If the offset is invalid.
+		 */
+		char charAt(int offset) throws BadLocationException;
+
+		/**
+		 * Inserts characters without creating an undoable edit.
+		 *
+		 * @param where The offset at which to insert.
+		 * @param chars The characters to insert.
+		 * @param len The number of characters to insert.
+		 * @see #createInsertUndo(int, int)
+		 */
+		void insertChars(int where, char[] chars, int len);
+
+		/**
+		 * Returns an undoable edit covering text previously added via
+		 * {@link #insertChars(int, char[], int)}.
+		 *
+		 * @param where The offset at which the text was inserted.
+		 * @param len The total number of characters inserted.
+		 * @return The edit.
+		 */
+		UndoableEdit createInsertUndo(int where, int len);
+
 	}
 
 
 	/**
 	 * Document content that provides fast access to individual characters.
 	 */
-	private static class RGapContent extends GapContent {
+	private static class RGapContent extends GapContent
+			implements ChunkedContent {
 
+		@Override
 		public char charAt(int offset) throws BadLocationException {
 			if (offset<0 || offset>=length()) {
 				throw new BadLocationException("Invalid offset", offset);
@@ -59,6 +253,56 @@ public class RDocument extends PlainDocument {
 			return array[getGapEnd() + offset - g0]; // above gap
 		}
 
+		@Override
+		public void insertChars(int where, char[] chars, int len) {
+			replace(where, 0, chars, len);
+		}
+
+		@Override
+		public UndoableEdit createInsertUndo(int where, int len) {
+			return new ChunkedInsertUndo(where, len);
+		}
+
+		/**
+		 * Undoes text added via {@link #insertChars(int, char[], int)}.
+		 * Mirrors <code>GapContent.InsertUndo</code>, which is not
+		 * visible to subclasses.
+		 */
+		private class ChunkedInsertUndo extends AbstractUndoableEdit {
+
+			private int offset;
+			private int length;
+			private String string;
+
+			ChunkedInsertUndo(int offset, int length) {
+				this.offset = offset;
+				this.length = length;
+			}
+
+			@Override
+			public void undo() throws CannotUndoException {
+				super.undo();
+				try {
+					string = getString(offset, length);
+					remove(offset, length);
+				} catch (BadLocationException ble) {
+					throw new CannotUndoException();
+				}
+			}
+
+			@Override
+			public void redo() throws CannotRedoException {
+				super.redo();
+				try {
+					insertString(offset, string);
+					string = null;
+				} catch (BadLocationException ble) {
+					throw new CannotRedoException();
+				}
+			}
+
+		}
+
 	}
 
 
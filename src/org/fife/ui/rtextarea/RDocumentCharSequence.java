@@ -10,12 +10,22 @@
 package org.fife.ui.rtextarea;
 
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
 
 
 /**
  * Allows iterating over a portion of an <code>RDocument</code>.  This is of
  * course not thread-safe, so should only be used on the EDT or with external
- * synchronization.
+ * synchronization.<p>
+ *
+ * Characters are read straight out of the document content's own arrays,
+ * a chunk at a time, via <code>Segment</code>s with partial returns enabled.
+ * For a gap buffer the chunks are just the text before and after the gap,
+ * so after the first two lookups every <code>charAt()</code> call is a range
+ * check and an array access.  The two most recently used chunks are kept so
+ * regular expressions that look backward across a chunk boundary don't
+ * thrash.  Since these arrays belong to the document, a sequence must not be
+ * used after the document is modified; create a new one instead.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -26,6 +36,20 @@ class RDocumentCharSequence implements CharSequence {
 	private int start;
 	private int end;
 
+	/**
+	 * The most recently used chunk, and the document offsets it spans.
+	 */
+	private Segment chunk;
+	private int chunkStart;
+	private int chunkEnd;
+
+	/**
+	 * The chunk used before <code>chunk</code>.
+	 */
+	private Segment prevChunk;
+	private int prevChunkStart;
+	private int prevChunkEnd;
+
 
 	/**
 	 * Creates a <code>CharSequence</code> representing the text in a document
@@ -50,6 +74,10 @@ class RDocumentCharSequence implements CharSequence {
 		this.doc = doc;
 		this.start = start;
 		this.end = end;
+		chunk = new Segment();
+		chunk.setPartialReturn(true);
+		prevChunk = new Segment();
+		prevChunk.setPartialReturn(true);
 	}
 
 
@@ -59,11 +87,46 @@ class RDocumentCharSequence implements CharSequence {
 			throw new IndexOutOfBoundsException("Index " + index +
 					" is not in range [0-" + length() + ")");
 		}
-		try {
-			return doc.charAt(start+index);
-		} catch (BadLocationException ble) {
-			throw new IndexOutOfBoundsException(ble.toString());
+		int offs = start + index;
+		if (offs>=chunkStart && offs<chunkEnd) {
+			return chunk.array[chunk.offset + offs - chunkStart];
 		}
+		return loadChunk(offs);
+	}
+
+
+	/**
+	 * Makes the chunk containing an offset the current chunk, and returns
+	 * the character at that offset.
+	 *
+	 * @param offs The offset in the document.  This must be in the range
+	 *        covered by this sequence.
+	 * @return The character at that offset.
+	 */
+	private char loadChunk(int offs) {
+
+		Segment temp = prevChunk;
+		prevChunk = chunk;
+		chunk = temp;
+		int tempStart = prevChunkStart;
+		int tempEnd = prevChunkEnd;
+		prevChunkStart = chunkStart;
+		prevChunkEnd = chunkEnd;
+		chunkStart = tempStart;
+		chunkEnd = tempEnd;
+
+		if (offs<chunkStart || offs>=chunkEnd) {
+			try {
+				doc.getText(offs, end-offs, chunk);
+			} catch (BadLocationException ble) {
+				throw new IndexOutOfBoundsException(ble.toString());
+			}
+			chunkStart = offs;
+			chunkEnd = offs + chunk.count;
+		}
+
+		return chunk.array[chunk.offset + offs - chunkStart];
+
 	}
 
 
@@ -93,8 +93,8 @@ public final class SearchEngine {
 		int start = forward ? Math.max(c.getDot(), c.getMark()) :
 						Math.min(c.getDot(), c.getMark());
 
-		String findIn = getFindInText(textArea, start, forward);
-		if (!context.getSearchWrap() && (findIn == null || findIn.isEmpty())) {
+		CharSequence findIn = getFindInCharSequence(textArea, start, forward);
+		if (!context.getSearchWrap() && (findIn == null || findIn.length() == 0)) {
 			return new SearchResult();
 		}
 
@@ -121,9 +121,9 @@ public final class SearchEngine {
 				start = textArea.getDocument().getLength() - 1;
 			}
 
-			findIn = getFindInText(textArea, start, forward);
+			findIn = getFindInCharSequence(textArea, start, forward);
 
-			if (findIn == null || findIn.isEmpty()) {
+			if (findIn == null || findIn.length() == 0) {
 				SearchResult emptyResult = new SearchResult();
 				emptyResult.setWrapped(true);
 				return emptyResult;
@@ -167,7 +167,8 @@ public final class SearchEngine {
 	 * @throws PatternSyntaxException If this is a regular expression search
 	 *         but the search text is an invalid regular expression.
 	 */
-	private static SearchResult findImpl(String findIn, SearchContext context) {
+	private static SearchResult findImpl(CharSequence findIn,
+			SearchContext context) {
 
 		String text = context.getSearchFor();
 		boolean forward = context.getSearchForward();
@@ -175,7 +176,8 @@ public final class SearchEngine {
 		// Find the next location of the text we're searching for.
 		DocumentRange range = null;
 		if (!context.isRegularExpression()) {
-			int pos = getNextMatchPos(text, findIn, forward,
+			int pos = getNextMatchPos(text, findIn,
+								forward ? 0 : findIn.length(), forward,
 								context.getMatchCase(), context.getWholeWord());
 			findIn = null; // May help garbage collecting.
 			if (pos!=-1) {
@@ -190,7 +192,8 @@ public final class SearchEngine {
 			Point regExPos;
 			int start = 0;
 			do {
-				regExPos = getNextMatchPosRegEx(text, findIn.substring(start),
+				regExPos = getNextMatchPosRegEx(text,
+					findIn.subSequence(start, findIn.length()),
 					forward, context.getMatchCase(), context.getWholeWord());
 				if (regExPos!=null) {
 					if (regExPos.x!=regExPos.y) {
@@ -212,20 +215,55 @@ public final class SearchEngine {
 	}
 
 
+	/**
+	 * Compiles the regular expression to search for.
+	 *
+	 * @param regEx The regular expression.
+	 * @param matchCase Whether to do a case-sensitive search.
+	 * @param wholeWord Whether matches must be whole words.
+	 * @return The pattern, or <code>null</code> if <code>regEx</code> is
+	 *         invalid.
+	 */
+	private static Pattern createPattern(String regEx, boolean matchCase,
+										boolean wholeWord) {
+
+		if (wholeWord) {
+			regEx = "\\b" + regEx + "\\b";
+		}
+
+		// Make a pattern that takes into account whether to match case.
+		int flags = Pattern.MULTILINE; // '^' and '$' are done per line.
+		flags = RSyntaxUtilities.getPatternFlags(matchCase, flags);
+		try {
+			return Pattern.compile(regEx, flags);
+		} catch (PatternSyntaxException pse) {
+			return null;
+		}
+
+	}
+
+
 	/**
 	 * Returns a <code>CharSequence</code> for a text area that doesn't make a
-	 * copy of its contents for iteration.  This conserves memory but is likely
-	 * just a tad slower.
+	 * copy of its contents for iteration, if its document is an
+	 * <code>RDocument</code>.  Otherwise, the text to search is copied into
+	 * a string.
 	 *
 	 * @param textArea The text area whose document is the basis for the
 	 *        <code>CharSequence</code>.
 	 * @param start The starting offset of the sequence (or ending offset if
 	 *        <code>forward</code> is <code>false</code>).
 	 * @param forward Whether we're searching forward or backward.
-	 * @return The character sequence.
+	 * @return The character sequence.  This may be <code>null</code> if
+	 *         the text area's document is not an <code>RDocument</code> and
+	 *         <code>start</code> is invalid.
+	 * @see RDocumentCharSequence
 	 */
-	private static CharSequence getFindInCharSequence(RTextArea textArea,
+	private static CharSequence getFindInCharSequence(JTextArea textArea,
 			int start, boolean forward) {
+		if (!(textArea.getDocument() instanceof RDocument)) {
+			return getFindInText(textArea, start, forward);
+		}
 		RDocument doc = (RDocument)textArea.getDocument();
 		int csStart;
 		int csEnd;
@@ -337,39 +375,50 @@ public final class SearchEngine {
 	public static int getNextMatchPos(String searchFor, String searchIn,
 								boolean forward, boolean matchCase,
 								boolean wholeWord) {
+		return getNextMatchPos(searchFor, searchIn,
+				forward ? 0 : searchIn.length(), forward, matchCase,
+				wholeWord);
+	}
 
-		// Make our variables lower case if we're ignoring case.
-		if (!matchCase) {
-			searchFor = searchFor.toLowerCase();
-			searchIn = searchIn.toLowerCase();
-		}
 
-		if (wholeWord) {
-			int len = searchFor.length();
-			int temp = forward ? 0 : searchIn.length();
-			int tempChange = forward ? 1 : -1;
-			while (true) {
-				if (forward) {
-					temp = searchIn.indexOf(searchFor, temp);
-				}
-				else {
-					temp = searchIn.lastIndexOf(searchFor, temp);
-				}
-				if (temp!=-1) {
-					if (isWholeWord(searchIn, temp, len)) {
-						return temp;
-					}
-					else {
-						temp += tempChange;
-						continue;
-					}
-				}
-				return temp; // Always -1.
+	/**
+	 * Searches <code>searchIn</code> for an occurrence of
+	 * <code>searchFor</code>, starting at a given offset.  Characters are
+	 * compared one at a time, so <code>searchIn</code> is never copied or
+	 * converted to lower case, and match offsets are always offsets into
+	 * <code>searchIn</code>.
+	 *
+	 * @param searchFor The string to look for.
+	 * @param searchIn The text to search in.
+	 * @param from The offset at which to start searching.  When searching
+	 *        backward, this is the largest offset at which a match may start.
+	 * @param forward Whether to search forward or backward in
+	 *        <code>searchIn</code>.
+	 * @param matchCase If <code>true</code>, do a case-sensitive search for
+	 *        <code>searchFor</code>.
+	 * @param wholeWord If <code>true</code>, <code>searchFor</code>
+	 *        occurrences embedded in longer words in <code>searchIn</code>
+	 *        don't count as matches.
+	 * @return The starting position of a match, or <code>-1</code> if no
+	 *         match was found.
+	 */
+	private static int getNextMatchPos(String searchFor, CharSequence searchIn,
+								int from, boolean forward, boolean matchCase,
+								boolean wholeWord) {
+
+		int len = searchFor.length();
+		int temp = from;
+		while (true) {
+			if (forward) {
+				temp = indexOf(searchIn, searchFor, temp, matchCase);
 			}
-		}
-		else {
-			return forward ? searchIn.indexOf(searchFor) :
-							searchIn.lastIndexOf(searchFor);
+			else {
+				temp = lastIndexOf(searchIn, searchFor, temp, matchCase);
+			}
+			if (temp==-1 || !wholeWord || isWholeWord(searchIn, temp, len)) {
+				return temp;
+			}
+			temp += forward ? 1 : -1;
 		}
 
 	}
@@ -438,17 +487,8 @@ public final class SearchEngine {
 							boolean matchCase, boolean wholeWord,
 							String replaceStr) {
 
-		if (wholeWord) {
-			regEx = "\\b" + regEx + "\\b";
-		}
-
-		// Make a pattern that takes into account whether to match case.
-		int flags = Pattern.MULTILINE; // '^' and '$' are done per line.
-		flags = RSyntaxUtilities.getPatternFlags(matchCase, flags);
-		Pattern pattern;
-		try {
-			pattern = Pattern.compile(regEx, flags);
-		} catch (PatternSyntaxException pse) {
+		Pattern pattern = createPattern(regEx, matchCase, wholeWord);
+		if (pattern==null) {
 			return null; // e.g. a "mark all" request with incomplete regex
 		}
 
@@ -618,6 +658,34 @@ public final class SearchEngine {
 	}
 
 
+	/**
+	 * Returns the offset of the first occurrence of a string in a
+	 * <code>CharSequence</code>, at or after a given offset.
+	 */
+	private static int indexOf(CharSequence searchIn, String searchFor,
+								int from, boolean matchCase) {
+		if (matchCase && searchIn instanceof String) {
+			return ((String)searchIn).indexOf(searchFor, from);
+		}
+		// Skip quickly past ASCII chars that can't start a match
+		char first = searchFor.charAt(0);
+		char upper = matchCase ? first : Character.toUpperCase(first);
+		char lower = matchCase ? first : Character.toLowerCase(first);
+		boolean asciiFirst = first<128;
+		int last = searchIn.length() - searchFor.length();
+		for (int i=Math.max(from, 0); i<=last; i++) {
+			char ch = searchIn.charAt(i);
+			if (ch<128 && asciiFirst && ch!=upper && ch!=lower) {
+				continue;
+			}
+			if (regionMatches(searchIn, i, searchFor, matchCase)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+
 	/**
 	 * Returns whether the characters on either side of
 	 * <code>substr(searchIn, startPos, startPos+searchStringLength)</code>
@@ -646,6 +714,25 @@ public final class SearchEngine {
 	}
 
 
+	/**
+	 * Returns the offset of the last occurrence of a string in a
+	 * <code>CharSequence</code>, at or before a given offset.
+	 */
+	private static int lastIndexOf(CharSequence searchIn, String searchFor,
+								int from, boolean matchCase) {
+		if (matchCase && searchIn instanceof String) {
+			return ((String)searchIn).lastIndexOf(searchFor, from);
+		}
+		int i = Math.min(from, searchIn.length()-searchFor.length());
+		for (; i>=0; i--) {
+			if (regionMatches(searchIn, i, searchFor, matchCase)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+
 	/**
 	 * Makes the caret's dot and mark the same location so that, for the
 	 * next search in the specified direction, a match will be found even
@@ -710,41 +797,39 @@ public final class SearchEngine {
 				/*&& !toMark.equals(markedWord)*/) {
 
 			List<DocumentRange> highlights = new ArrayList<>();
-			context = context.clone();
-			context.setSearchForward(true);
-			context.setMarkAll(false);
+			boolean matchCase = context.getMatchCase();
+			boolean wholeWord = context.getWholeWord();
 
-			String findIn = textArea.getText();
-			int start = 0;
+			// Find all matches in a single pass over the document's text.
+			// The text isn't copied or case-converted, and a regex is only
+			// compiled once, so this is linear in the size of the document
+			// even when there are thousands of matches.
+			CharSequence findIn = getFindInCharSequence(textArea, 0, true);
 
-			// Optimization for pedantic worst-case of thousands of matches
-			// while doing a case-insensitive search.  Go ahead and normalize
-			// case just once, so that toLowerCase() isn't done for toMark and
-			// findIn for each match found.
-			if (!context.getMatchCase()) {
-				context.setMatchCase(true);
-				context.setSearchFor(toMark.toLowerCase());
-				findIn = findIn.toLowerCase();
-			}
-
-			SearchResult res = SearchEngine.findImpl(findIn, context);
-			while (res.wasFound()) {
-				DocumentRange match = res.getMatchRange().translate(start);
-				if (match.isZeroLength()) {
+			if (context.isRegularExpression()) {
+				Pattern pattern = createPattern(toMark, matchCase, wholeWord);
+				Matcher m = pattern==null ? null : pattern.matcher(findIn);
+				while (m!=null && m.find()) {
 					// Searched for a regex like "foo|".  The "empty string"
-					// part of the regex matches space between chars.  We want
-					// to skip these in the case of mark-all.
-					start = match.getEndOffset() + 1;
-					if (start>findIn.length()) {
-						break;
+					// part of the regex matches space between chars.  We
+					// want to skip these in the case of mark-all.
+					if (m.end()>m.start()) {
+						highlights.add(new DocumentRange(m.start(), m.end()));
 					}
 				}
-				else {
-					highlights.add(match);
-					start = match.getEndOffset();
+			}
+
+			else {
+				int len = toMark.length();
+				int pos = getNextMatchPos(toMark, findIn, 0, true, matchCase,
+										wholeWord);
+				while (pos>-1) {
+					highlights.add(new DocumentRange(pos, pos + len));
+					pos = getNextMatchPos(toMark, findIn, pos + len, true,
+										matchCase, wholeWord);
 				}
-				res = SearchEngine.findImpl(findIn.substring(start), context);
 			}
+
 			textArea.markAll(highlights);
 			markAllCount = highlights.size();
 		}
@@ -765,6 +850,32 @@ public final class SearchEngine {
 	}
 
 
+	/**
+	 * Returns whether a string occurs in a <code>CharSequence</code> at a
+	 * given offset.  Case-insensitive comparisons are done the same way as
+	 * in <code>String.regionMatches()</code>.
+	 */
+	private static boolean regionMatches(CharSequence searchIn, int offs,
+								String searchFor, boolean matchCase) {
+		for (int i=0; i<searchFor.length(); i++) {
+			char c1 = searchIn.charAt(offs + i);
+			char c2 = searchFor.charAt(i);
+			if (c1!=c2) {
+				if (matchCase) {
+					return false;
+				}
+				char u1 = Character.toUpperCase(c1);
+				char u2 = Character.toUpperCase(c2);
+				if (u1!=u2 &&
+						Character.toLowerCase(u1)!=Character.toLowerCase(u2)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+
 	/**
 	 * Finds the next instance of the regular expression specified from
 	 * the caret position.  If a match is found, it is replaced with
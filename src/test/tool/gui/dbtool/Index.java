@@ -129,6 +129,9 @@ public class Index {
 		// 设置输入中文时，不显示输入框
 		System.setProperty("java.awt.im.style", "on-the-spot");
 
+		// 在后台预先载入最近使用的语法高亮器
+		MyNotePad.warmUpSyntaxStyles();
+
 		try {
 			//打开指定路径的文档
 			if (filePathArray != null && filePathArray.length > 0) {
@@ -15,6 +15,12 @@ public class Const {
 	
 	//眼睛保护色
 	public static final String EYE_SAFETY_COLOR = "eye_safety_color";
+	
+	//大文件阈值（单位MB），超过该大小的文件以只读方式分页查看，不整体载入内存
+	public static final String LARGE_FILE_THRESHOLD = "large_file_threshold";
+	
+	//最近使用的语法样式（启动时在后台预先载入对应的语法高亮器）
+	public static final String RECENT_SYNTAX_STYLES = "recent_syntax_styles";
 
 }
 
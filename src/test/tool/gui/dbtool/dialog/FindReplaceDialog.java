@@ -4,14 +4,19 @@ import java.awt.event.KeyEvent;
 
 import javax.swing.JOptionPane;
 import javax.swing.JTextArea;
+import javax.swing.text.BadLocationException;
+
+import org.apache.log4j.Logger;
 
 import test.tool.gui.common.SysFontAndFace;
 import test.tool.gui.dbtool.mycomponent.MyJTextField;
+import test.tool.gui.dbtool.util.DocUtil;
 
 
 public class FindReplaceDialog extends javax.swing.JDialog {
 
 	private static final long serialVersionUID = 1L;
+	private static Logger log = Logger.getLogger(FindReplaceDialog.class);
 	private javax.swing.JButton jButton_cancel;
     private javax.swing.JButton jButton_findNext;
     private javax.swing.JButton jButton_replace;
@@ -35,19 +40,22 @@ public class FindReplaceDialog extends javax.swing.JDialog {
         this.setResizable(false);
         this.setDefaultCloseOperation(javax.swing.WindowConstants.DISPOSE_ON_CLOSE);//隐藏窗口并释放资源
 
-		if(textArea.isEditable()){
-			this.jButton_replace.setEnabled(true);
-			this.jButton_replaceAll.setEnabled(true);
-		}else{
-			this.jButton_replace.setEnabled(false);
-			this.jButton_replaceAll.setEnabled(false);
-		}
+		updateReplaceEnabled();
 		//如果textArea中有选中文本，则将选中文本作为默认的查询内容。
 		String selectedText = textArea.getSelectedText();
 		if(selectedText != null){
 			jTextField_find.setText(selectedText);
 		}
     }
+    /**
+     * 根据文本域是否可编辑，启用或禁用【替换】、【全部替换】按钮。
+     * 对话框会被重复使用，而文本域的可编辑状态可能改变（如载入文件期间），因此每次显示前都需调用。
+     */
+    public void updateReplaceEnabled(){
+    	boolean editable = textArea.isEditable();
+    	this.jButton_replace.setEnabled(editable);
+    	this.jButton_replaceAll.setEnabled(editable);
+    }
     private void initComponents() {
 
         jLabel1 = new javax.swing.JLabel();
@@ -83,6 +91,11 @@ public class FindReplaceDialog extends javax.swing.JDialog {
         });
         jButton_replace.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {
+            	 //对话框显示期间，文本域可能变为不可编辑
+            	 if(!textArea.isEditable()){
+            		 updateReplaceEnabled();
+            		 return;
+            	 }
             	 String str = textArea.getSelectedText();
             	 if(str!=null&&!"".equals(str)){
                 	 textArea.replaceSelection(jTextField_replace.getText());
@@ -91,8 +104,12 @@ public class FindReplaceDialog extends javax.swing.JDialog {
         });
         jButton_replaceAll.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {  	
+            	if(!textArea.isEditable()){
+            		updateReplaceEnabled();
+            		return;
+            	}
             	count = 0;
-                replaceAll(jTextField_find.getText(),jTextField_replace.getText(), 0 ,textArea.getText().length());
+                replaceAll(jTextField_find.getText(),jTextField_replace.getText(), 0 ,textArea.getDocument().getLength());
             }
         });
         jButton_cancel.addActionListener(new java.awt.event.ActionListener() {
@@ -179,14 +196,11 @@ public class FindReplaceDialog extends javax.swing.JDialog {
     public void find(String str, int cur) {
     	
     	int i = -1;
-    	String textAreaText = textArea.getText();
-    	if(!jCheckBox_case.isSelected()){//如果大小写不敏感
-    		
-    		i = textAreaText.toUpperCase().indexOf(str.toUpperCase(),cur);
-    	
-    	}else{//如果大小写敏感
-    	
-    		i = textAreaText.indexOf(str,cur);
+    	try {
+    		//直接在文档中逐段查找，不复制整个文档内容（大文件只读查看时同样适用）
+    		i = DocUtil.indexOf(textArea.getDocument(), str, cur, jCheckBox_case.isSelected());
+    	} catch (BadLocationException e) {// 偏移量在文档范围内，不会发生
+    		log.error(null, e);
     	}
 		if (i >= 0) {
 			textArea.setSelectionStart(i); // 使找到的字符串选中
@@ -208,29 +222,26 @@ public class FindReplaceDialog extends javax.swing.JDialog {
     int count = 0;
     public void replaceAll(String fromStr, String toStr, int cur, int end) {
     	
-		if (cur > end) {
-			return;
-		} else {
-			int i = -1;
-			String textAreaText = textArea.getText();
-			if (!jCheckBox_case.isSelected()) {// 如果大小写不敏感
-				i = textAreaText.toUpperCase().indexOf(fromStr.toUpperCase(),
-						cur);
-			} else {
-				i = textAreaText.indexOf(fromStr, cur);
-			}
-			if (i >= 0) {
-				textArea.setSelectionStart(i); // 使找到的字符串反白选中
-				textArea.setSelectionEnd(i + fromStr.length());
-				textArea.replaceSelection(toStr); // 替换
-				cur = ++i;
-				count++;
-			} else {
-				JOptionPane.showMessageDialog(this, " 替换完毕，共替换  " + count + " 处！");
-				return;
-			}
-			replaceAll(fromStr, toStr, cur, end); // 递归查找与替换
-		}
+    	//直接在文档中逐段查找，不再为每次替换复制整个文档内容；
+    	//用循环代替递归，匹配很多时也不会栈溢出
+    	while (cur < end && fromStr.length() > 0) {
+    		int i = -1;
+    		try {
+    			i = DocUtil.indexOf(textArea.getDocument(), fromStr, cur, jCheckBox_case.isSelected());
+    		} catch (BadLocationException e) {// 偏移量在文档范围内，不会发生
+    			log.error(null, e);
+    		}
+    		if (i < 0 || i + fromStr.length() > end) {
+    			break;
+    		}
+    		textArea.setSelectionStart(i); // 使找到的字符串反白选中
+    		textArea.setSelectionEnd(i + fromStr.length());
+    		textArea.replaceSelection(toStr); // 替换
+    		cur = i + toStr.length(); // 从替换后的文本之后继续查找
+    		end += toStr.length() - fromStr.length(); // 查找范围随替换同步伸缩
+    		count++;
+    	}
+    	JOptionPane.showMessageDialog(this, " 替换完毕，共替换  " + count + " 处！");
 	} 
     private void close(){
     	this.dispose();
@@ -14,9 +14,13 @@ import java.awt.event.ItemListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.io.FileWriter;
+import java.io.CharArrayReader;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -39,13 +43,22 @@ import javax.swing.JSeparator;
 import javax.swing.JToolBar;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.WindowConstants;
 import javax.swing.event.CaretEvent;
 import javax.swing.event.CaretListener;
 
 import org.apache.log4j.Logger;
+import org.fife.io.FileChannelReader;
+import org.fife.ui.rsyntaxtextarea.LargeFileDocument;
+import org.fife.ui.rsyntaxtextarea.AbstractTokenMakerFactory;
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
 import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
+import org.fife.ui.rsyntaxtextarea.TokenMakerFactory;
 import org.fife.ui.rsyntaxtextarea.themes.ThemesUtil;
+import org.fife.ui.rtextarea.PagedFileContent;
+import org.fife.ui.rtextarea.RDocument;
 import org.fife.ui.rtextarea.RTextScrollPane;
 
 import test.tool.gui.common.FontSet;
@@ -60,6 +73,9 @@ import test.tool.gui.dbtool.util.DocUtil;
 
 //简单记事本，用于查看、编辑文本信息
 public class MyNotePad extends javax.swing.JFrame {
+	
+	//最多记录的最近使用的语法样式个数
+	private static final int MAX_RECENT_SYNTAX_STYLES = 5;
 
 	private static final long serialVersionUID = 1L;
 	private static Logger log = Logger.getLogger(MyNotePad.class);
@@ -79,6 +95,13 @@ public class MyNotePad extends javax.swing.JFrame {
     private JButton jButton_gotoline = new JButton("定位行",ImageIcons.gotoline_png24);
     private JButton jButton_redo = new JButton("恢复",ImageIcons.redo_png_24);
     private JButton jButton_undo = new JButton("撤销",ImageIcons.undo_png_24);
+    
+    //后台载入文件时显示，用于取消载入
+    private JButton jButton_cancelLoad = new JButton("取消载入");
+    //当前正在执行的后台载入任务
+    private SwingWorker<?, ?> loadWorker;
+    //只读查看大文件时，暂存原来的可编辑文档
+    private RSyntaxDocument editDoc;
    
     public JComboBox<String> syntaxStyle = new JComboBox<String>();//语法样式
     private Map<String,String> syntaxStyleMap = new LinkedHashMap<String,String>();
@@ -94,6 +117,7 @@ public class MyNotePad extends javax.swing.JFrame {
     //设置 菜单
     private JMenu jMenuSet = new JMenu("设置");
     private JMenuItem jMenuItemFontSet = new JMenuItem("字体设置...");
+    private JMenuItem jMenuItemLargeFile = new JMenuItem("大文件阈值...");
     private JMenu jMenuBgColor = new JMenu("背景色");
     
     //关于
@@ -131,19 +155,15 @@ public class MyNotePad extends javax.swing.JFrame {
 			}   	
         });   
 	
-		//如果指定了文件路径，则读取该文件内容
+		//如果指定了文件路径，则在后台读取该文件内容
 		if(filePath != null){
-			String[] strArr = DocUtil.getCharDocContent(filePath);
-			jTextArea1.setText(strArr[1]);
  			render(filePath);//根据文件后缀，设置语法样式
-			this.encode_status.setText(strArr[2]);
+ 			loadFile(filePath, null);
 			
 			//根据文件路径显示文件内容时，如果未指定窗口title，则使用文件路径作为title
 			if(this.title == null){
 				this.title = this.filePath;
 			}
-			//重置textIsChanged为false
-			jTextArea1.textIsChanged = false;
 		}
 	
 		//设置窗口标题
@@ -270,13 +290,15 @@ public class MyNotePad extends javax.swing.JFrame {
         //清空
 	    jButton_clear.addActionListener(new java.awt.event.ActionListener() {
 	       public void actionPerformed(java.awt.event.ActionEvent evt) {
-	    	   jTextArea1.setText(null);
+	    	   if(!checkReadOnly()){
+	    		   jTextArea1.setText(null);
+	    	   }
 	          }
 	    });
 	    //撤销
         jButton_undo.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {
-            	if (jTextArea1.undomang.canUndo()){
+            	if (!checkReadOnly() && jTextArea1.undomang.canUndo()){
             		jTextArea1.undomang.undo();	
 				}
             }
@@ -284,7 +306,7 @@ public class MyNotePad extends javax.swing.JFrame {
         //恢复
         jButton_redo.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {
-            	if (jTextArea1.undomang.canRedo()){
+            	if (!checkReadOnly() && jTextArea1.undomang.canRedo()){
             		jTextArea1.undomang.redo();
 				}	
             }
@@ -328,6 +350,18 @@ public class MyNotePad extends javax.swing.JFrame {
   		//默认选中普通文本
   		syntaxStyle.setSelectedItem("Text");
     	
+        //取消载入
+        jButton_cancelLoad.setVisible(false);
+        jButton_cancelLoad.setFocusable(false);
+        jButton_cancelLoad.addActionListener(new ActionListener(){
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				if(loadWorker != null){
+					loadWorker.cancel(true);
+				}
+			}
+        });
+        
         //将按钮添加到工具栏
         jToolBar1.add(jButton_reload); //重新载入
 	    jToolBar1.add(jButton_new); //新建
@@ -418,6 +452,14 @@ public class MyNotePad extends javax.swing.JFrame {
 				fontSet();
 			}
         });
+        //大文件阈值设置
+        jMenuSet.add(jMenuItemLargeFile);
+        jMenuItemLargeFile.addActionListener(new ActionListener(){
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				largeFileSet();
+			}
+        });
         //背景色设置
         jMenuSet.add(jMenuBgColor);
         
@@ -468,7 +510,10 @@ public class MyNotePad extends javax.swing.JFrame {
         getContentPane().add(jToolBar1, java.awt.BorderLayout.NORTH);
        
   		JPanel bottomPanel = new JPanel(new GridLayout());
-  		bottomPanel.add(status);
+  		JPanel statusPanel = new JPanel(new BorderLayout());
+  		statusPanel.add(status, BorderLayout.CENTER);
+  		statusPanel.add(jButton_cancelLoad, BorderLayout.EAST);
+  		bottomPanel.add(statusPanel);
   		bottomPanel.add(new JSeparator(SwingConstants.VERTICAL));
   		bottomPanel.add(row_col_status);
   		bottomPanel.add(new JSeparator(SwingConstants.VERTICAL));
@@ -499,6 +544,26 @@ public class MyNotePad extends javax.swing.JFrame {
     		ConfigUtil.updateConfInfo();
     	}	
     }
+    /**
+     * 大文件阈值设置：超过该大小的文件以只读方式分页查看
+     */
+    private void largeFileSet(){
+    	Object old = ConfigUtil.getConfInfo().get(Const.LARGE_FILE_THRESHOLD);
+    	String input = JOptionPane.showInputDialog(this, "超过该大小（MB）的文件以只读方式查看：", old);
+    	if(input == null){
+    		return;
+    	}
+    	try {
+    		int threshold = Integer.parseInt(input.trim());
+    		if(threshold <= 0){
+    			throw new NumberFormatException(input);
+    		}
+    		ConfigUtil.getConfInfo().put(Const.LARGE_FILE_THRESHOLD, threshold);
+    		ConfigUtil.updateConfInfo();
+    	} catch (NumberFormatException e) {
+    		JOptionPane.showMessageDialog(this, "请输入正整数！");
+    	}
+    }
     /**
      * 关于
      */
@@ -513,22 +578,10 @@ public class MyNotePad extends javax.swing.JFrame {
     		if(jTextArea1.textIsChanged){
         		int select = JOptionPane.showConfirmDialog(this,"文档内容已更改，重新载入将会覆盖当前文档内容，是否继续？","确认对话框", JOptionPane.YES_NO_OPTION);
         		if(select == JOptionPane.YES_OPTION){
-        			String str[] = DocUtil.getCharDocContent(this.filePath);
-        			jTextArea1.setText(str[1]);
-        			this.encode_status.setText("：" + str[2] + "");
-
-        			// 新打开文档，textIsChanged重置为false
-        			jTextArea1.textIsChanged = false;
-        			status.setText("重新载入完成！");
+        			loadFile(this.filePath, "重新载入完成！");
         		}
         	}else{
-    			String str[] = DocUtil.getCharDocContent(this.filePath);
-    			jTextArea1.setText(str[1]);
-    			this.encode_status.setText(str[2]);
-
-    			// 新打开文档，textIsChanged重置为false
-    			jTextArea1.textIsChanged = false;
-    			status.setText("重新载入完成！");
+        		loadFile(this.filePath, "重新载入完成！");
     		}
     	 }else{
     		 status.setText("还没有打开文件！");
@@ -552,23 +605,340 @@ public class MyNotePad extends javax.swing.JFrame {
  		// 点击了【确定】按钮
  		if (saveDialog.getDirectory() != null && saveDialog.getFile() != null) {
  			String path = saveDialog.getDirectory() + saveDialog.getFile();
- 			String str[] = DocUtil.getCharDocContent(path);
- 			
- 			//记录打开的文件的路径，并设置为标题显示
- 			this.filePath = str[0];
- 			this.setTitle(str[0]);
- 			jTextArea1.setText(str[1]);
- 			this.encode_status.setText(str[2]);
- 			this.status.setText("");
- 			
- 			//根据文件后缀，设置语法样式
- 			render(path);
- 			
- 			//新打开文档，textIsChanged重置为false
- 			jTextArea1.textIsChanged = false;
+ 			openFile(path);
  		}
      }
      
+     /**
+      * 打开指定文件（文件内容在后台载入）
+      * @param path 文件路径
+      */
+     public void openFile(String path){
+			
+		//记录打开的文件的路径，并设置为标题显示
+		this.filePath = new File(path).getAbsolutePath();
+		this.setTitle(this.filePath);
+		
+		//根据文件后缀，设置语法样式
+		render(path);
+		
+		loadFile(this.filePath, null);
+     }
+     
+     /**
+      * 在后台线程中读取文件，分批写入文本域（替换原有内容）。
+      * 第一批内容读取后立即显示，状态栏显示读取进度；载入完成前文本域不可编辑，可点击【取消载入】取消。
+      * @param path 文件路径
+      * @param doneMessage 载入完成后状态栏显示的信息，为null时显示读取统计信息
+      */
+     private void loadFile(String path, String doneMessage){
+    	 if(loadWorker != null){
+    		 loadWorker.cancel(true);
+    	 }
+    	 closeLargeFile();
+    	 jTextArea1.setText(null);
+    	 jTextArea1.getDocument().putProperty(DocUtil.BOM_PROPERTY, null);
+    	 jTextArea1.textIsChanged = false;
+    	 jTextArea1.setEditable(false);
+    	 status.setText("正在载入...");
+    	 jButton_cancelLoad.setVisible(true);
+    	 
+    	 //超过阈值的大文件不载入内存，以只读方式分页查看
+    	 long threshold = ((Integer)ConfigUtil.getConfInfo().get(Const.LARGE_FILE_THRESHOLD)) * 1024L * 1024L;
+    	 if(new File(path).length() > threshold){
+    		 loadWorker = new ViewWorker(path);
+    	 }else{
+    		 loadWorker = new LoadWorker(path, doneMessage);
+    	 }
+    	 loadWorker.execute();
+     }
+     
+     /**
+      * 是否正在只读查看大文件
+      */
+     private boolean isViewingLargeFile(){
+    	 return jTextArea1.getDocument() instanceof LargeFileDocument;
+     }
+     
+     /**
+      * 结束大文件的只读查看：释放文件，恢复原来的可编辑文档
+      */
+     private void closeLargeFile(){
+    	 if(!isViewingLargeFile()){
+    		 return;
+    	 }
+    	 LargeFileDocument doc = (LargeFileDocument)jTextArea1.getDocument();
+    	 jTextArea1.setDocument(editDoc);
+    	 editDoc = null;
+    	 syntaxStyle.setEnabled(true);
+    	 jTextArea1.setSyntaxEditingStyle(syntaxStyleMap.get(syntaxStyle.getSelectedItem()));
+    	 try {
+    		 doc.getFileContent().close();
+    	 } catch (IOException e) {
+    		 log.error(null, e);
+    	 }
+     }
+     
+     /**
+      * 只读查看大文件时，禁止修改文本
+      * @return 是否正在只读查看大文件
+      */
+     private boolean checkLargeFile(){
+    	 if(isViewingLargeFile()){
+    		 status.setText("大文件为只读查看模式，不能修改或保存");
+    		 return true;
+    	 }
+    	 return false;
+     }
+     
+     /**
+      * 载入文件期间（文本域中只有部分内容）及只读查看大文件时，禁止修改或保存文本
+      * @return 当前是否不能修改或保存
+      */
+     private boolean checkReadOnly(){
+    	 if(loadWorker != null){
+    		 status.setText("正在载入文件，载入完成前不能修改或保存");
+    		 return true;
+    	 }
+    	 return checkLargeFile();
+     }
+     
+     /**
+      * 后台载入文件任务：后台线程负责读取、解码，EDT负责将每批内容追加至文档。
+      */
+     private class LoadWorker extends SwingWorker<Void, char[]> {
+    	 
+    	 //第一批读取的字符数较小，以便尽快显示第一屏内容
+    	 private static final int FIRST_BATCH_SIZE = 16 * 1024;
+    	 private static final int BATCH_SIZE = 512 * 1024;
+    	 
+    	 private final String path;
+    	 private final String doneMessage;
+    	 private volatile String encoding;
+    	 private volatile boolean bom;
+    	 private volatile long bytesRead;
+    	 private volatile long fileSize;
+    	 private long startTime;
+    	 private boolean firstBatch = true;
+    	 
+    	 LoadWorker(String path, String doneMessage){
+    		 this.path = path;
+    		 this.doneMessage = doneMessage;
+    	 }
+    	 
+    	 @Override
+    	 protected Void doInBackground() throws Exception {
+    		 DocUtil.resetPeakHeapUsage();
+    		 startTime = System.nanoTime();
+    		 Charset cs = DocUtil.detectCharset(path);
+    		 encoding = cs.name();
+    		 FileChannelReader reader = new FileChannelReader(new File(path), cs);
+    		 try {
+    			 fileSize = reader.getFileSize();
+    			 bom = reader.isBomSkipped();
+    			 char[] buf = new char[FIRST_BATCH_SIZE];
+    			 int carried = 0;//上一批末尾留下的'\r'
+    			 int n;
+    			 while (!isCancelled() && (n = reader.read(buf, carried, buf.length - carried)) != -1) {
+    				 int len = carried + n;
+    				 
+    				 //"\r\n"可能被分在两批中，将末尾的'\r'留到下一批，以免产生多余的空行
+    				 carried = 0;
+    				 if(buf[len-1] == '\r'){
+    					 carried = 1;
+    					 len--;
+    				 }
+    				 bytesRead = reader.getBytesRead();
+    				 if(len > 0){
+    					 publish(Arrays.copyOf(buf, len));
+    				 }
+    				 if(buf.length < BATCH_SIZE){
+    					 buf = new char[BATCH_SIZE];
+    				 }
+    				 if(carried == 1){
+    					 buf[0] = '\r';
+    				 }
+    			 }
+    			 if(carried == 1 && !isCancelled()){
+    				 publish(new char[]{'\r'});
+    			 }
+    		 } finally {
+    			 reader.close();
+    		 }
+    		 return null;
+    	 }
+    	 
+    	 @Override
+    	 protected void process(List<char[]> batches) {
+    		 if(isCancelled() || loadWorker != this){
+    			 return;
+    		 }
+    		 RDocument doc = (RDocument)jTextArea1.getDocument();
+    		 try {
+    			 for(char[] batch : batches){
+    				 doc.insert(doc.getLength(), new CharArrayReader(batch), batch.length);
+    			 }
+    		 } catch (Exception e) {
+    			 log.error(null, e);
+    		 }
+    		 //载入的内容不算修改，否则载入期间关闭窗口会提示保存不完整的内容
+    		 jTextArea1.textIsChanged = false;
+    		 if(firstBatch){
+    			 firstBatch = false;
+    			 jTextArea1.setCaretPosition(0);
+    			 encode_status.setText(encoding);
+    		 }
+    		 long percent = fileSize == 0 ? 100 : bytesRead * 100 / fileSize;
+    		 status.setText("正在载入... " + percent + "%");
+    	 }
+    	 
+    	 @Override
+    	 protected void done() {
+    		 if(loadWorker != this){
+    			 return;//已被新的载入任务取代
+    		 }
+    		 loadWorker = null;
+    		 jButton_cancelLoad.setVisible(false);
+    		 jTextArea1.setEditable(true);
+    		 if(isCancelled()){
+    			 //只载入了部分内容，为防止保存时覆盖原文件，清空文本域并取消与文件的关联
+    			 jTextArea1.setText(null);
+    			 filePath = null;
+    			 setTitle("未命名记事本");
+    			 status.setText("已取消载入");
+    		 }else{
+    			 try {
+    				 get();
+    				 String stats = DocUtil.getLoadStats(fileSize, System.nanoTime() - startTime);
+    				 log.info(path + " " + stats);
+    				 encode_status.setText(encoding);
+    				 //记录文件是否有BOM，保存时写回
+    				 jTextArea1.getDocument().putProperty(DocUtil.BOM_PROPERTY, bom);
+    				 status.setText(doneMessage != null ? doneMessage : stats);
+    			 } catch (Exception e) {
+    				 log.error(null, e);
+    				 jTextArea1.setText("读取文件 "+path+" 出错");
+    				 status.setText("读取文件 "+path+" 出错");
+    			 }
+    		 }
+    		 
+    		 //新打开文档，textIsChanged重置为false，载入过程不计入撤销历史
+    		 jTextArea1.textIsChanged = false;
+    		 jTextArea1.undomang.discardAllEdits();
+    	 }
+     }
+     
+     /**
+      * 后台建立大文件的分页及行索引，完成后以只读方式显示。
+      * 文件内容保留在磁盘上，只有显示到的部分才会被读取、解码。
+      */
+     private class ViewWorker extends SwingWorker<LargeFileDocument, Void> {
+    	 
+    	 private final String path;
+    	 private volatile PagedFileContent content;
+    	 private long startTime;
+    	 private Timer progressTimer;
+    	 
+    	 ViewWorker(String path){
+    		 this.path = path;
+    		 
+    		 //定时显示索引进度
+    		 progressTimer = new Timer(200, new ActionListener(){
+    			 @Override
+    			 public void actionPerformed(ActionEvent e) {
+    				 PagedFileContent c = content;
+    				 if(c != null && loadWorker == ViewWorker.this){
+    					 long size = c.getFileSize();
+    					 long percent = size == 0 ? 100 : c.getBytesIndexed() * 100 / size;
+    					 status.setText("正在建立大文件索引... " + percent + "%");
+    				 }
+    			 }
+    		 });
+    		 progressTimer.start();
+    	 }
+    	 
+    	 @Override
+    	 protected LargeFileDocument doInBackground() throws Exception {
+    		 DocUtil.resetPeakHeapUsage();
+    		 startTime = System.nanoTime();
+    		 Charset cs = DocUtil.detectCharset(path);
+    		 PagedFileContent c = new PagedFileContent(new File(path), cs);
+    		 content = c;
+    		 try {
+    			 c.buildIndex();
+    			 return new LargeFileDocument(c);
+    		 } catch (Exception e) {
+    			 c.close();
+    			 throw e;
+    		 }
+    	 }
+    	 
+    	 @Override
+    	 protected void done() {
+    		 progressTimer.stop();
+    		 LargeFileDocument doc = null;
+    		 Exception error = null;
+    		 if(!isCancelled()){
+    			 try {
+    				 doc = get();
+    			 } catch (Exception e) {
+    				 error = e;
+    			 }
+    		 }
+    		 if(isCancelled()){
+    			 closeContent(content);
+    		 }
+    		 if(loadWorker != this){
+    			 //已被新的载入任务取代
+    			 if(doc != null){
+    				 closeContent(doc.getFileContent());
+    			 }
+    			 return;
+    		 }
+    		 loadWorker = null;
+    		 jButton_cancelLoad.setVisible(false);
+    		 if(doc != null){
+    			 editDoc = (RSyntaxDocument)jTextArea1.getDocument();
+    			 jTextArea1.setDocument(doc);
+    			 jTextArea1.setEditable(false);
+    			 jTextArea1.setLineWrap(false);//自动换行需要计算每一行的宽度
+    			 jButton_lineWrap.setIcon(ImageIcons.unselect_png24);
+    			 syntaxStyle.setSelectedItem("Text");
+    			 syntaxStyle.setEnabled(false);
+    			 jTextArea1.setCaretPosition(0);
+    			 
+    			 PagedFileContent c = doc.getFileContent();
+    			 String stats = DocUtil.getLoadStats(c.getFileSize(), System.nanoTime() - startTime);
+    			 log.info(path + " " + stats);
+    			 encode_status.setText(c.getCharset().name());
+    			 status.setText("只读查看大文件" + (c.isTruncated() ? "（仅显示前2G字符）" : "") + "，" + stats);
+    		 }else{
+    			 jTextArea1.setEditable(true);
+    			 if(isCancelled()){
+    				 filePath = null;
+    				 setTitle("未命名记事本");
+    				 status.setText("已取消载入");
+    			 }else{
+    				 log.error(null, error);
+    				 jTextArea1.setText("读取文件 "+path+" 出错");
+    				 status.setText("读取文件 "+path+" 出错");
+    			 }
+    		 }
+    		 jTextArea1.textIsChanged = false;
+    		 jTextArea1.undomang.discardAllEdits();
+    	 }
+    	 
+    	 private void closeContent(PagedFileContent c){
+    		 if(c != null){
+    			 try {
+    				 c.close();
+    			 } catch (IOException e) {
+    				 log.error(null, e);
+    			 }
+    		 }
+    	 }
+     }
+     
      public void render(String path){
     	//根据文件后缀，设置语法样式
 		if(path.endsWith(".java")||path.endsWith(".JAVA")){
@@ -650,12 +1020,64 @@ public class MyNotePad extends javax.swing.JFrame {
 			jTextArea1.setSyntaxEditingStyle(SyntaxConstants.SYNTAX_STYLE_NONE);
 			syntaxStyle.setSelectedItem("Text");
 		}
+		addRecentSyntaxStyle(jTextArea1.getSyntaxEditingStyle());
+     }
+     
+     /**
+      * 记录最近使用的语法样式，最近使用的排在最前面，最多记录MAX_RECENT_SYNTAX_STYLES个。
+      * @param style 语法样式
+      */
+     private static void addRecentSyntaxStyle(String style){
+    	 if(SyntaxConstants.SYNTAX_STYLE_NONE.equals(style)){
+    		 return;
+    	 }
+    	 List<String> styles = getRecentSyntaxStyles();
+    	 if(!styles.isEmpty() && styles.get(0).equals(style)){
+    		 return;//未发生变化，不必更新配置文件
+    	 }
+    	 styles.remove(style);
+    	 styles.add(0, style);
+    	 while(styles.size() > MAX_RECENT_SYNTAX_STYLES){
+    		 styles.remove(styles.size()-1);
+    	 }
+    	 ConfigUtil.getConfInfo().put(Const.RECENT_SYNTAX_STYLES, styles);
+    	 ConfigUtil.updateConfInfo();
+     }
+     
+     /**
+      * 取得最近使用的语法样式，最近使用的排在最前面。
+      */
+     @SuppressWarnings("unchecked")
+     private static List<String> getRecentSyntaxStyles(){
+    	 Object styles = ConfigUtil.getConfInfo().get(Const.RECENT_SYNTAX_STYLES);
+    	 if(styles == null){
+    		 return new ArrayList<String>();
+    	 }
+    	 return new ArrayList<String>((List<String>)styles);
+     }
+     
+     /**
+      * 在后台线程中预先载入最近使用的语法样式对应的语法高亮器，避免打开文件后首次绘制时，
+      * 在事件分发线程中初始化语法高亮器（如PHP、JSP等）造成界面卡顿。
+      * 程序启动时调用。
+      */
+     public static void warmUpSyntaxStyles(){
+    	 TokenMakerFactory tmf = TokenMakerFactory.getDefaultInstance();
+    	 if(tmf instanceof AbstractTokenMakerFactory){
+    		 AbstractTokenMakerFactory atmf = (AbstractTokenMakerFactory)tmf;
+    		 //每种语法样式预先创建一个语法高亮器，用完后在后台补充
+    		 atmf.setTokenMakerPoolSize(1);
+    		 atmf.warmUp(getRecentSyntaxStyles());
+    	 }
      }
      
     /**
      * 另存为
      */
      private void saveAs(){
+    	 if(checkReadOnly()){
+    		 return;
+    	 }
     	 
     	//弹出路径选择对话框
     	FileDialog saveDialog = new FileDialog(this, "另存为",FileDialog.SAVE);
@@ -665,8 +1087,7 @@ public class MyNotePad extends javax.swing.JFrame {
  		// 点击了【确定】按钮
  		if (saveDialog.getDirectory() != null) {
  			String path = saveDialog.getDirectory() + saveDialog.getFile();
- 			String saveStr = jTextArea1.getText();
- 			saveToFile(path,saveStr);
+ 			saveToFile(path);
  		}
      }
      
@@ -674,6 +1095,9 @@ public class MyNotePad extends javax.swing.JFrame {
     * 保存
     */
     private void save() {
+    	if(checkReadOnly()){
+    		return;
+    	}
 
     	//1、如果filePath为null，则弹出路径选择对话框
     	//2、如果filePath不为null，则更新原文件。
@@ -687,8 +1111,7 @@ public class MyNotePad extends javax.swing.JFrame {
      		// 点击了【确定】按钮
      		if (saveDialog.getDirectory() != null) {
      			String path = saveDialog.getDirectory() + saveDialog.getFile();
-     			String saveStr = jTextArea1.getText();
-     			saveToFile(path,saveStr);
+     			saveToFile(path);
      			
      			//保存完成后，记录新创建的文件路径，并更新窗口标题
      			filePath = path;
@@ -698,36 +1121,25 @@ public class MyNotePad extends javax.swing.JFrame {
      			jTextArea1.textIsChanged = false;
      		}
     	}else{
-    		String saveStr = jTextArea1.getText();
-			saveToFile(this.filePath,saveStr);
+			saveToFile(this.filePath);
 			
 			//重置textIsChanged为false
 			jTextArea1.textIsChanged = false;
     	}
     }
     /**
-     * 保存指定内容至指定文件（文件原有内容会被覆盖）
+     * 保存文本域内容至指定文件（文件原有内容会被覆盖），使用状态栏中显示的文件编码
      * @param filePath
-     * @param content
      */
-    private void saveToFile(String filePath,String content){
+    private void saveToFile(String filePath){
     	
-    	FileWriter fw = null;
 		try {
-			fw = new FileWriter(filePath,false);
-			fw.write(content);
-			fw.flush();
+			String encoding = DocUtil.saveDocContent(jTextArea1.getDocument(), filePath, encode_status.getText());
+			encode_status.setText(encoding);
 			status.setText("保存成功（"+time()+")");
 		} catch (Exception e) {
 			log.error(null, e);
 			JOptionPane.showMessageDialog(this, " 出错:  " + e.getMessage());
-		} finally {
-			try {
-				fw.close();
-			} catch (IOException e) {
-				log.error(null, e);
-				JOptionPane.showMessageDialog(this, " 关闭文件流出错:  "+ e.getMessage());
-			}
 		}
     }
     /**
@@ -758,13 +1170,17 @@ public class MyNotePad extends javax.swing.JFrame {
      */
     private void beforeClose(){
     	
-    	//如果文档内容发生了变化，则询问用户是否执行保存操作
-    	if(jTextArea1.textIsChanged){
+    	//先取消载入：载入未完成时文本域中只有部分内容，不能保存，以免覆盖原文件
+    	if(loadWorker != null){
+    		loadWorker.cancel(true);
+    	}else if(jTextArea1.textIsChanged){
+    		//如果文档内容发生了变化，则询问用户是否执行保存操作
     		 int opt = JOptionPane.showConfirmDialog(this,"文档内容已更改，是否保存？","确认对话框", JOptionPane.YES_NO_OPTION);		
         	 if(opt == JOptionPane.YES_OPTION){
         		 save(); 
         	 }
     	}
+    	closeLargeFile();
 	}
     /**
      * 新建文本
@@ -782,12 +1198,18 @@ public class MyNotePad extends javax.swing.JFrame {
      * 下移一行
      */
     private void moveDown(){
+    	if(checkReadOnly()){
+    		return;
+    	}
     	jTextArea1.moveDown();
     }
     /**
      * 上移一行
      */
     private void moveUp(){
+    	if(checkReadOnly()){
+    		return;
+    	}
     	jTextArea1.moveUp();
     }
     
@@ -82,6 +82,11 @@ public class ConfigUtil {
 			conf_table.put(Const.FONT,SysFontAndFace.font15);
 			updateConfInfo();
 		}
+		//大文件阈值（默认64MB）
+		if(conf_table.get(Const.LARGE_FILE_THRESHOLD)==null){
+			conf_table.put(Const.LARGE_FILE_THRESHOLD,64);
+			updateConfInfo();
+		}
 		return conf_table;
 	}
 }
@@ -4,10 +4,36 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.List;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultEditorKit;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
 
 import org.apache.log4j.Logger;
+import org.fife.io.FileChannelReader;
+import org.fife.ui.rtextarea.RDocument;
+import org.fife.ui.rtextarea.RTextArea;
 
 import test.tool.gui.dbtool.consts.Const;
 
@@ -34,7 +60,7 @@ public class DocUtil {
     		if(code == null || "".equals(code)){
     			brs = new InputStreamReader(fr);
     		}else{
-    			brs = new InputStreamReader(fr,EncodingDetect.getJavaEncode(docPath));
+    			brs = new InputStreamReader(fr,code);
     		}
     		strArr[2] = brs.getEncoding();
     		br = new BufferedReader(brs); 
@@ -60,4 +86,355 @@ public class DocUtil {
 		strArr[1] = content.toString();
 		return strArr;
 	}
+	
+	//每次向文档中写入的字符数
+	private static final int LOAD_CHUNK_SIZE = 64 * 1024;
+	
+	/**
+	 * 根据文件路径，通过文件通道分块读取、解码的方式读取文本文件，并直接写入文本域的文档中（替换原有内容）。
+	 * 与getCharDocContent不同，读取过程中不会生成包含整个文件内容的String。
+	 * @param docPath docPath有可能是相对路径，返回的str[0]后会转化成绝对路径。
+	 * @param textArea 用于显示文件内容的文本域
+	 * @return String[] 共包含3个元素，第一个元素是文件的绝对路径，第二个元素是读取耗时、吞吐量（MB/s）及堆内存峰值，第三个是文件编码
+	 */
+	public static String[] loadDocContent(String docPath, RTextArea textArea){
+		
+		String[] strArr = new String[3];
+		File file = new File(docPath);
+		strArr[0] = file.getAbsolutePath();
+		RDocument doc = (RDocument)textArea.getDocument();
+		textArea.setText(null);
+		
+		Charset cs = detectCharset(docPath);
+		strArr[2] = cs.name();
+		
+		resetPeakHeapUsage();
+		long start = System.nanoTime();
+		FileChannelReader reader = null;
+		try {
+			reader = new FileChannelReader(file, cs);
+			doc.putProperty(BOM_PROPERTY, reader.isBomSkipped());
+			doc.insert(0, reader, LOAD_CHUNK_SIZE);
+			strArr[1] = getLoadStats(reader.getFileSize(), System.nanoTime() - start);
+			log.info(strArr[0]+" "+strArr[1]);
+		} catch (FileNotFoundException e) {
+			strArr[1] = "未找到文件 "+docPath;
+			textArea.setText(strArr[1]);
+			log.error(null, e);
+		} catch (IOException e) {
+			strArr[1] = "读取文件 "+docPath+" 出错";
+			textArea.setText(strArr[1]);
+			log.error(null, e);
+		} catch (BadLocationException e) {// 从偏移量0开始写入，不会发生
+			log.error(null, e);
+		} finally {
+			if(reader != null){
+				try {
+					reader.close();
+				} catch (IOException e) {
+					log.error(null, e);
+				}
+			}
+		}
+		textArea.setCaretPosition(0);
+		return strArr;
+	}
+	
+	/**
+	 * 检测文件编码，检测不出或当前JVM不支持时，返回默认编码
+	 * @param docPath 文件路径
+	 * @return 文件编码
+	 */
+	public static Charset detectCharset(String docPath){
+		Charset cs = Charset.defaultCharset();
+		String code = EncodingDetect.getJavaEncode(docPath);
+		if(code != null && !"".equals(code)){
+			try {
+				cs = Charset.forName(code);
+			} catch (Exception e) {
+				log.warn("不支持的编码 "+code+"，使用默认编码 "+cs.name());
+			}
+		}
+		return cs;
+	}
+	
+	/**
+	 * 生成读取统计信息：读取量、耗时、吞吐量（MB/s）及自上次resetPeakHeapUsage()以来的堆内存峰值
+	 * @param bytes 读取的字节数
+	 * @param nanos 耗时（纳秒）
+	 */
+	public static String getLoadStats(long bytes, long nanos){
+		double mb = bytes / (1024d * 1024d);
+		double seconds = Math.max(nanos, 1) / 1000000000d;
+		return String.format("读取 %.2f MB，耗时 %d ms，%.2f MB/s，堆内存峰值 %.2f MB",
+				mb, nanos / 1000000, mb / seconds, getPeakHeapUsage() / (1024d * 1024d));
+	}
+	
+	//保存时编码缓冲区的大小
+	private static final int SAVE_BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * 文档属性：载入的文件开头是否有UTF-8 BOM（值为Boolean）。
+	 * 读取时BOM会被跳过，保存时据此重新写出BOM。
+	 */
+	public static final String BOM_PROPERTY = "DocUtil.utf8Bom";
+	
+	private static final byte[] UTF8_BOM = {(byte)0xEF, (byte)0xBB, (byte)0xBF};
+	
+	/**
+	 * 将文档内容保存至指定文件（文件原有内容会被覆盖）。
+	 * 内容从文档中逐段读取、编码后写入同目录下的临时文件，全部写入成功后再替换原文件，
+	 * 不会生成包含整个文档内容的String，保存失败时原文件保持不变。
+	 * 换行符按文档的EndOfLineStringProperty属性（即载入时文件使用的换行符）写出；
+	 * 载入的文件有UTF-8 BOM（见BOM_PROPERTY）且按UTF-8保存时，同样写出BOM。
+	 * 原文件是符号链接时，替换的是链接指向的文件，链接本身保持不变；
+	 * 原文件的POSIX权限、所有者和组会复制到新文件上。
+	 * 须在EDT中调用。
+	 * @param doc 要保存的文档
+	 * @param docPath 文件路径
+	 * @param encoding 文件编码，为空或不支持时使用默认编码；ASCII文件按UTF-8保存，以免丢失新输入的非ASCII字符
+	 * @return 实际使用的编码
+	 */
+	public static String saveDocContent(Document doc, String docPath, String encoding) throws IOException{
+		
+		Charset cs = Charset.defaultCharset();
+		if(encoding != null && !"".equals(encoding.trim())){
+			try {
+				cs = Charset.forName(encoding.trim());
+			} catch (Exception e) {
+				log.warn("不支持的编码 "+encoding+"，使用默认编码 "+cs.name());
+			}
+		}
+		if("US-ASCII".equals(cs.name())){
+			cs = Charset.forName("UTF-8");
+		}
+		CharsetEncoder encoder = cs.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		String eol = (String)doc.getProperty(DefaultEditorKit.EndOfLineStringProperty);
+		if("\n".equals(eol)){
+			eol = null;
+		}
+		
+		//原文件是符号链接时，临时文件须建在链接指向的文件所在目录，并替换该文件，而不是链接本身
+		Path target = new File(docPath).getAbsoluteFile().toPath();
+		boolean exists = Files.exists(target);
+		if(exists){
+			target = target.toRealPath();
+		}
+		File temp = File.createTempFile(target.getFileName().toString(), ".tmp", target.getParent().toFile());
+		FileOutputStream fos = null;
+		boolean saved = false;
+		try {
+			fos = new FileOutputStream(temp);
+			FileChannel channel = fos.getChannel();
+			CharBuffer chars = CharBuffer.allocate(SAVE_BUFFER_SIZE);
+			ByteBuffer bytes = ByteBuffer.allocate(SAVE_BUFFER_SIZE * 2);
+			if(Boolean.TRUE.equals(doc.getProperty(BOM_PROPERTY)) && "UTF-8".equals(cs.name())){
+				bytes.put(UTF8_BOM);
+			}
+			
+			//partialReturn为true时，Segment直接引用文档内部数组，不会复制
+			Segment seg = new Segment();
+			seg.setPartialReturn(true);
+			int offs = 0;
+			int length = doc.getLength();
+			while(offs < length){
+				doc.getText(offs, length - offs, seg);
+				for(int i = seg.offset; i < seg.offset + seg.count; i++){
+					if(chars.remaining() < 2){
+						encode(encoder, chars, bytes, channel, false);
+					}
+					char ch = seg.array[i];
+					if(ch == '\n' && eol != null){
+						chars.put(eol);
+					}else{
+						chars.put(ch);
+					}
+				}
+				offs += seg.count;
+			}
+			encode(encoder, chars, bytes, channel, true);
+			encoder.flush(bytes);
+			bytes.flip();
+			while(bytes.hasRemaining()){
+				channel.write(bytes);
+			}
+			fos.close();
+			fos = null;
+			if(exists){
+				copyPosixAttributes(target, temp.toPath());
+			}
+			
+			//原子替换原文件，文件系统不支持时退化为普通替换
+			try {
+				Files.move(temp.toPath(), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+			}
+			saved = true;
+		} catch (BadLocationException e) {// 偏移量在文档范围内，不会发生
+			throw new IOException(e);
+		} finally {
+			if(fos != null){
+				try {
+					fos.close();
+				} catch (IOException e) {
+					log.error(null, e);
+				}
+			}
+			if(!saved && !temp.delete()){
+				log.warn("删除临时文件 "+temp+" 失败");
+			}
+		}
+		return cs.name();
+	}
+	
+	/**
+	 * 将原文件的POSIX权限、所有者和组复制到临时文件上，文件系统不支持POSIX属性时不做处理。
+	 * 修改所有者通常需要特权，失败时只记录警告，新文件的所有者为当前用户。
+	 * @param source 原文件
+	 * @param temp 将替换原文件的临时文件
+	 */
+	private static void copyPosixAttributes(Path source, Path temp) throws IOException{
+		PosixFileAttributeView view = Files.getFileAttributeView(temp, PosixFileAttributeView.class);
+		if(view == null){
+			return;
+		}
+		PosixFileAttributes attrs = Files.readAttributes(source, PosixFileAttributes.class);
+		//先改组和所有者，chown可能会清除setuid/setgid位，权限最后设置
+		try {
+			view.setGroup(attrs.group());
+		} catch (IOException e) {
+			log.warn("无法将 "+temp+" 的组设置为 "+attrs.group().getName(), e);
+		}
+		try {
+			view.setOwner(attrs.owner());
+		} catch (IOException e) {
+			log.warn("无法将 "+temp+" 的所有者设置为 "+attrs.owner().getName(), e);
+		}
+		view.setPermissions(attrs.permissions());
+	}
+	
+	/**
+	 * 将chars中已写入的字符编码后写入channel，未能编码的字符（如被截断的代理对）保留在chars中
+	 */
+	private static void encode(CharsetEncoder encoder, CharBuffer chars, ByteBuffer bytes,
+			FileChannel channel, boolean endOfInput) throws IOException{
+		chars.flip();
+		while(true){
+			CoderResult result = encoder.encode(chars, bytes, endOfInput);
+			bytes.flip();
+			while(bytes.hasRemaining()){
+				channel.write(bytes);
+			}
+			bytes.clear();
+			if(!result.isOverflow()){
+				break;
+			}
+		}
+		chars.compact();
+	}
+
+	/**
+	 * 在文档中查找字符串，返回从from开始第一次出现的位置，找不到时返回-1。
+	 * 文档内容逐段读取并直接在文档内部数组上比较，不会生成包含整个文档内容的String，
+	 * 因此也可用于只读查看的大文件。
+	 * @param doc 文档
+	 * @param str 要查找的字符串
+	 * @param from 开始查找的位置
+	 * @param matchCase 是否区分大小写
+	 * @return 找到的位置，找不到时返回-1
+	 */
+	public static int indexOf(Document doc, String str, int from, boolean matchCase) throws BadLocationException{
+		int n = str.length();
+		int length = doc.getLength();
+		from = Math.max(from, 0);
+		if(n == 0){
+			return from <= length ? from : -1;
+		}
+		char[] target = str.toCharArray();
+		if(!matchCase){
+			for(int i = 0; i < n; i++){
+				target[i] = Character.toUpperCase(target[i]);
+			}
+		}
+
+		//上一段末尾的n-1个字符，用于查找跨段的匹配
+		char[] boundary = new char[2 * n];
+		int carried = 0;
+		Segment seg = new Segment();
+		seg.setPartialReturn(true);
+		int offs = from;
+		while(offs < length){
+			doc.getText(offs, length - offs, seg);
+
+			//从上一段开始、跨到本段的匹配
+			int head = Math.min(n - 1, seg.count);
+			System.arraycopy(seg.array, seg.offset, boundary, carried, head);
+			for(int i = 0; i < carried && i + n <= carried + head; i++){
+				if(matches(boundary, i, target, matchCase)){
+					return offs - carried + i;
+				}
+			}
+
+			//完全在本段内的匹配
+			int last = seg.offset + seg.count - n;
+			for(int i = seg.offset; i <= last; i++){
+				if(matches(seg.array, i, target, matchCase)){
+					return offs + i - seg.offset;
+				}
+			}
+
+			//保留末尾的n-1个字符
+			if(seg.count >= n - 1){
+				carried = n - 1;
+				System.arraycopy(seg.array, seg.offset + seg.count - carried, boundary, 0, carried);
+			}else{
+				int keep = Math.min(n - 1, carried + head);
+				System.arraycopy(boundary, carried + head - keep, boundary, 0, keep);
+				carried = keep;
+			}
+			offs += seg.count;
+		}
+		return -1;
+	}
+
+	private static boolean matches(char[] text, int start, char[] target, boolean matchCase){
+		for(int j = 0; j < target.length; j++){
+			char ch = text[start + j];
+			if(!matchCase){
+				ch = Character.toUpperCase(ch);
+			}
+			if(ch != target[j]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 重置各堆内存区的峰值统计
+	 */
+	public static void resetPeakHeapUsage(){
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+			if(pool.getType() == MemoryType.HEAP){
+				pool.resetPeakUsage();
+			}
+		}
+	}
+	
+	/**
+	 * 取得自上次重置以来，各堆内存区峰值之和（字节）
+	 */
+	private static long getPeakHeapUsage(){
+		long peak = 0;
+		List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+		for(MemoryPoolMXBean pool : pools){
+			if(pool.getType() == MemoryType.HEAP){
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
 }
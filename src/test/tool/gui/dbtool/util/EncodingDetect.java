@@ -2,8 +2,18 @@ package test.tool.gui.dbtool.util;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * <Detect encoding .>
@@ -32,16 +42,26 @@ public class EncodingDetect {
 		System.out.println(encode);
 	}
 	
+	//各次检测共用的检测器，避免每次检测都重新初始化频率表
+	private static BytesEncodingDetect detector;
+	
+	private static synchronized BytesEncodingDetect getDetector(){
+		if(detector == null){
+			detector = new BytesEncodingDetect();
+		}
+		return detector;
+	}
+	
 	/**
-	 * 得到文件的编码
+	 * 得到文件的编码（只读取文件头部、中部、尾部的采样数据进行检测）
 	 * @param filePath 文件路径
 	 * @return 文件的编码
 	 */
 	public static String getJavaEncode(String filePath){
-		BytesEncodingDetect s = new BytesEncodingDetect(); 
 		String fileCode = null;
 		try {
-			fileCode = BytesEncodingDetect.javaname[s.detectEncoding(new File(filePath))];
+			BytesEncodingDetect s = getDetector();
+			fileCode = BytesEncodingDetect.javaname[s.detectEncodingSampled(new File(filePath))];
 		} catch (Exception e) {
 			// TODO: handle exception
 		}
@@ -50,21 +70,37 @@ public class EncodingDetect {
 }
 
 class BytesEncodingDetect extends Encoding {
+	  // Dimensions of the frequency tables
+	  static final int GB_ROWS = 94, GB_COLS = 94;
+
+	  static final int GBK_ROWS = 126, GBK_COLS = 191;
+
+	  static final int BIG5_ROWS = 94, BIG5_COLS = 158;
+
+	  static final int BIG5P_ROWS = 126, BIG5P_COLS = 191;
+
+	  static final int EUC_TW_ROWS = 94, EUC_TW_COLS = 94;
+
+	  static final int KR_ROWS = 94, KR_COLS = 94;
+
+	  static final int JP_ROWS = 94, JP_COLS = 94;
+
 	  // Frequency tables to hold the GB, Big5, and EUC-TW character
-	  // frequencies
-	  int GBFreq[][];
+	  // frequencies, flattened so that [row][col] is at [row * COLS + col].
+	  // They are shared by all detectors and must not be modified.
+	  final int[] GBFreq;
 
-	  int GBKFreq[][];
+	  final int[] GBKFreq;
 
-	  int Big5Freq[][];
+	  final int[] Big5Freq;
 
-	  int Big5PFreq[][];
+	  final int[] Big5PFreq;
 
-	  int EUC_TWFreq[][];
+	  final int[] EUC_TWFreq;
 
-	  int KRFreq[][];
+	  final int[] KRFreq;
 
-	  int JPFreq[][];
+	  final int[] JPFreq;
 
 	  // int UnicodeFreq[94][128];
 	  // public static String[] nicename;
@@ -74,21 +110,59 @@ class BytesEncodingDetect extends Encoding {
 	  public BytesEncodingDetect() {
 	    super();
 	    debug = false;
-	    GBFreq = new int[94][94];
-	    GBKFreq = new int[126][191];
-	    Big5Freq = new int[94][158];
-	    Big5PFreq = new int[126][191];
-	    EUC_TWFreq = new int[94][94];
-	    KRFreq = new int[94][94];
-	    JPFreq = new int[94][94];
-	    // Initialize the Frequency Table for GB, GBK, Big5, EUC-TW, KR, JP
-	    initialize_frequencies();
+	    // The tables are built once, the first time a detector is created
+	    GBFreq = FrequencyTables.GB;
+	    GBKFreq = FrequencyTables.GBK;
+	    Big5Freq = FrequencyTables.BIG5;
+	    Big5PFreq = FrequencyTables.BIG5P;
+	    EUC_TWFreq = FrequencyTables.EUC_TW;
+	    KRFreq = FrequencyTables.KR;
+	    JPFreq = FrequencyTables.JP;
+	  }
+
+	  /*
+	   * Holder for the process-wide frequency tables. The JVM initializes this class, and so builds the tables, lazily and
+	   * exactly once, when the first detector is constructed.
+	   */
+	  private static final class FrequencyTables {
+
+	    static final int[] GB, GBK, BIG5, BIG5P, EUC_TW, KR, JP;
+
+	    static {
+	      int[][] gb = new int[GB_ROWS][GB_COLS];
+	      int[][] gbk = new int[GBK_ROWS][GBK_COLS];
+	      int[][] big5 = new int[BIG5_ROWS][BIG5_COLS];
+	      int[][] big5p = new int[BIG5P_ROWS][BIG5P_COLS];
+	      int[][] euctw = new int[EUC_TW_ROWS][EUC_TW_COLS];
+	      int[][] kr = new int[KR_ROWS][KR_COLS];
+	      int[][] jp = new int[JP_ROWS][JP_COLS];
+	      // Initialize the Frequency Table for GB, GBK, Big5, EUC-TW, KR, JP
+	      initialize_frequencies(gb, gbk, big5, big5p, euctw, kr, jp);
+	      GB = flatten(gb);
+	      GBK = flatten(gbk);
+	      BIG5 = flatten(big5);
+	      BIG5P = flatten(big5p);
+	      EUC_TW = flatten(euctw);
+	      KR = flatten(kr);
+	      JP = flatten(jp);
+	    }
+
+	    private static int[] flatten(int[][] table) {
+	      int cols = table[0].length;
+	      int[] flat = new int[table.length * cols];
+	      for (int row = 0; row < table.length; row++) {
+	        System.arraycopy(table[row], 0, flat, row * cols, cols);
+	      }
+	      return flat;
+	    }
+
 	  }
 
 	  public static void main(String argc[]) {
 	    BytesEncodingDetect sinodetector;
 	    int result = OTHER;
 	    int i;
+	    boolean benchmark = false;
 	    sinodetector = new BytesEncodingDetect();
 	    for (i = 0; i < argc.length; i++) {
 	      if (argc[i].startsWith("http://") == true) {
@@ -100,6 +174,12 @@ class BytesEncodingDetect extends Encoding {
 	      } else if (argc[i].equals("-d")) {
 	        sinodetector.debug = true;
 	        continue;
+	      } else if (argc[i].equals("-b")) {
+	        benchmark = true;
+	        continue;
+	      } else if (benchmark) {
+	        benchmark(new File(argc[i]));
+	        continue;
 	      } else {
 	        result = sinodetector.detectEncoding(new File(argc[i]));
 	      }
@@ -107,6 +187,34 @@ class BytesEncodingDetect extends Encoding {
 	    }
 	  }
 
+	  /*
+	   * Used by "-b": prints the cost of constructing a detector and of running the full and sampled detection on a file,
+	   * in ms per MB. Run it with one file per charset family of interest.
+	   */
+	  static void benchmark(File testfile) {
+	    int rounds = 20;
+	    long start = System.nanoTime();
+	    for (int i = 0; i < 10000; i++) {
+	      new BytesEncodingDetect();
+	    }
+	    long ctornanos = (System.nanoTime() - start) / 10000;
+	    BytesEncodingDetect detector = new BytesEncodingDetect();
+	    double mb = testfile.length() / (1024d * 1024d);
+	    int result = OTHER;
+	    start = System.nanoTime();
+	    for (int i = 0; i < rounds; i++) {
+	      result = detector.detectEncoding(testfile);
+	    }
+	    double full = (System.nanoTime() - start) / 1000000d / rounds;
+	    start = System.nanoTime();
+	    for (int i = 0; i < rounds; i++) {
+	      detector.detectEncodingSampled(testfile);
+	    }
+	    double sampled = (System.nanoTime() - start) / 1000000d / rounds;
+	    System.out.println(testfile.getName() + " [" + nicename[result] + "] construct " + ctornanos + " ns, full "
+	        + String.format("%.3f", full / mb) + " ms/MB, sampled " + String.format("%.3f", sampled) + " ms");
+	  }
+
 	  /**
 	   * Function : detectEncoding Aruguments: URL Returns : One of the encodings from the Encoding enumeration (GB2312, HZ, BIG5,
 	   * EUC_TW, ASCII, or OTHER) Description: This function looks at the URL contents and assigns it a probability score for each
@@ -151,6 +259,189 @@ class BytesEncodingDetect extends Encoding {
 	    return detectEncoding(rawtext);
 	  }
 
+	  /**
+	   * Size of each of the head, middle and tail windows read by detectEncodingSampled().
+	   */
+	  public static final int SAMPLE_WINDOW = 64 * 1024;
+
+	  /**
+	   * Function : detectEncodingSampled Aruguments: File Returns : One of the encodings from the Encoding enumeration
+	   * Description: Like detectEncoding(File), but only reads a bounded sample of the file: a window at its head, middle
+	   * and tail, each trimmed to whole lines. A BOM, pure ASCII or valid UTF-8 is recognized in a single pass over the
+	   * sample; only otherwise are the per-charset probability functions run, and then only over the sample. A sample of a
+	   * larger file that looks like UTF-8 says nothing about the bytes not read, so the whole file is then decoded as UTF-8
+	   * to make sure; if it isn't UTF-8 after all, the window where it stops being so is scored instead.
+	   */
+	  public int detectEncodingSampled(File testfile) {
+	    byte[] sample;
+	    int samplelen;
+	    int quick;
+	    try {
+	      RandomAccessFile raf = new RandomAccessFile(testfile, "r");
+	      try {
+	        long filelen = raf.length();
+	        boolean complete = filelen <= 3L * SAMPLE_WINDOW;
+	        if (complete) {
+	          sample = new byte[(int) filelen];
+	          raf.readFully(sample);
+	          samplelen = sample.length;
+	        } else {
+	          sample = new byte[3 * SAMPLE_WINDOW];
+	          samplelen = readWindow(raf, 0, sample, 0, false, true);
+	          samplelen += readWindow(raf, (filelen - SAMPLE_WINDOW) / 2, sample, samplelen, true, true);
+	          samplelen += readWindow(raf, filelen - SAMPLE_WINDOW, sample, samplelen, true, false);
+	        }
+	        quick = quickDetect(sample, samplelen, complete);
+	        // Decoding GBK text and the like as UTF-8 would silently replace it, and saving would write the replacements back.
+	        if (quick == UTF8 && !complete && !hasUtf8Bom(sample, samplelen)) {
+	          long malformed = findMalformedUtf8(raf.getChannel());
+	          if (malformed != -1) {
+	            long pos = Math.min(Math.max(0, malformed - SAMPLE_WINDOW / 2), filelen - SAMPLE_WINDOW);
+	            samplelen = readWindow(raf, pos, sample, 0, false, true);
+	            quick = -1;
+	          }
+	        }
+	      } finally {
+	        raf.close();
+	      }
+	    } catch (IOException e) {
+	      System.err.println("Error: " + e);
+	      return OTHER;
+	    }
+	    if (quick != -1) {
+	      return quick;
+	    }
+	    if (samplelen < sample.length) {
+	      sample = Arrays.copyOf(sample, samplelen);
+	    }
+	    return detectEncoding(sample);
+	  }
+
+	  /*
+	   * Reads SAMPLE_WINDOW bytes at pos into buf at off, optionally dropping the (possibly partial) first and last lines so
+	   * that no multi-byte character is cut in half. '\n' is never part of a multi-byte sequence in the supported encodings
+	   * other than UTF-16, which is only detected by its BOM anyway. Returns the number of bytes kept.
+	   */
+	  private static int readWindow(RandomAccessFile raf, long pos, byte[] buf, int off, boolean trimstart, boolean trimend)
+	      throws IOException {
+	    raf.seek(pos);
+	    raf.readFully(buf, off, SAMPLE_WINDOW);
+	    int start = off, end = off + SAMPLE_WINDOW;
+	    if (trimstart) {
+	      for (int i = start; i < end; i++) {
+	        if (buf[i] == '\n') {
+	          start = i + 1;
+	          break;
+	        }
+	      }
+	    }
+	    if (trimend) {
+	      for (int i = end - 1; i >= start; i--) {
+	        if (buf[i] == '\n') {
+	          end = i + 1;
+	          break;
+	        }
+	      }
+	    }
+	    System.arraycopy(buf, start, buf, off, end - start);
+	    return end - start;
+	  }
+
+	  private static boolean hasUtf8Bom(byte[] rawtext, int rawtextlen) {
+	    return rawtextlen >= 3 && rawtext[0] == (byte) 0xEF && rawtext[1] == (byte) 0xBB && rawtext[2] == (byte) 0xBF;
+	  }
+
+	  /*
+	   * Decodes a whole file as UTF-8 with CodingErrorAction.REPORT, a window at a time. Returns the offset of the first byte
+	   * that is not part of well-formed UTF-8, or -1 if there is none.
+	   */
+	  static long findMalformedUtf8(FileChannel channel) throws IOException {
+	    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPORT)
+	        .onUnmappableCharacter(CodingErrorAction.REPORT);
+	    ByteBuffer in = ByteBuffer.allocate(SAMPLE_WINDOW);
+	    CharBuffer out = CharBuffer.allocate(SAMPLE_WINDOW);
+	    long readpos = 0;
+	    boolean eof = false;
+	    while (true) {
+	      if (!eof) {
+	        int n = channel.read(in, readpos);
+	        if (n == -1) {
+	          eof = true;
+	        } else {
+	          readpos += n;
+	        }
+	      }
+	      in.flip();
+	      CoderResult result = decoder.decode(in, out, eof);
+	      if (result.isError()) {
+	        return readpos - in.remaining();
+	      }
+	      out.clear();
+	      if (eof && result.isUnderflow()) {
+	        return -1;
+	      }
+	      in.compact();
+	    }
+	  }
+
+	  /*
+	   * Function: quickDetect Returns : UTF8, UNICODE or ASCII if the sample starts with a BOM, is pure 7-bit ASCII (without
+	   * the ESC and "~{" sequences used by ISO-2022 and HZ), or is well-formed UTF-8; -1 if the full scoring is needed. A pure
+	   * ASCII sample of a file that was not read completely is reported as UTF8, since the unread part may still contain
+	   * non-ASCII text; detectEncodingSampled() then checks that part.
+	   */
+	  int quickDetect(byte[] rawtext, int rawtextlen, boolean complete) {
+	    if (hasUtf8Bom(rawtext, rawtextlen)) {
+	      return UTF8;
+	    }
+	    if (rawtextlen >= 2 && ((rawtext[0] == (byte) 0xFE && rawtext[1] == (byte) 0xFF)
+	        || (rawtext[0] == (byte) 0xFF && rawtext[1] == (byte) 0xFE))) {
+	      return UNICODE;
+	    }
+	    boolean sevenbit = true, utf8 = true;
+	    int i = 0;
+	    while (i < rawtextlen) {
+	      int b = rawtext[i] & 0xFF;
+	      if (b < 0x80) {
+	        if (b == 0x1B || (b == '~' && i + 1 < rawtextlen && rawtext[i + 1] == '{')) {
+	          return -1;
+	        }
+	        i++;
+	        continue;
+	      }
+	      sevenbit = false;
+	      int trail;
+	      if (b >= 0xC2 && b <= 0xDF) {
+	        trail = 1;
+	      } else if (b >= 0xE0 && b <= 0xEF) {
+	        trail = 2;
+	      } else if (b >= 0xF0 && b <= 0xF4) {
+	        trail = 3;
+	      } else {
+	        utf8 = false;
+	        break;
+	      }
+	      if (i + trail >= rawtextlen) {
+	        utf8 = false;
+	        break;
+	      }
+	      for (int j = 1; j <= trail; j++) {
+	        if ((rawtext[i + j] & 0xC0) != 0x80) {
+	          utf8 = false;
+	          break;
+	        }
+	      }
+	      if (!utf8) {
+	        break;
+	      }
+	      i += trail + 1;
+	    }
+	    if (sevenbit && utf8) {
+	      return complete ? ASCII : UTF8;
+	    }
+	    return utf8 ? UTF8 : -1;
+	  }
+
 	  /**
 	   * Function : detectEncoding Aruguments: byte array Returns : One of the encodings from the Encoding enumeration (GB2312, HZ,
 	   * BIG5, EUC_TW, ASCII, or OTHER) Description: This function looks at the byte array and assigns it a probability score for
@@ -224,8 +515,8 @@ class BytesEncodingDetect extends Encoding {
 	          totalfreq += 500;
 	          row = rawtext[i] + 256 - 0xA1;
 	          column = rawtext[i + 1] + 256 - 0xA1;
-	          if (GBFreq[row][column] != 0) {
-	            gbfreq += GBFreq[row][column];
+	          if (GBFreq[row * GB_COLS + column] != 0) {
+	            gbfreq += GBFreq[row * GB_COLS + column];
 	          } else if (15 <= row && row < 55) {
 	            // In GB high-freq character range
 	            gbfreq += 200;
@@ -264,8 +555,8 @@ class BytesEncodingDetect extends Encoding {
 	          row = rawtext[i] + 256 - 0xA1;
 	          column = rawtext[i + 1] + 256 - 0xA1;
 	          // System.out.println("original row " + row + " column " + column);
-	          if (GBFreq[row][column] != 0) {
-	            gbfreq += GBFreq[row][column];
+	          if (GBFreq[row * GB_COLS + column] != 0) {
+	            gbfreq += GBFreq[row * GB_COLS + column];
 	          } else if (15 <= row && row < 55) {
 	            gbfreq += 200;
 	          }
@@ -282,8 +573,8 @@ class BytesEncodingDetect extends Encoding {
 	            column = rawtext[i + 1] + 256 - 0x40;
 	          }
 	          // System.out.println("extended row " + row + " column " + column + " rawtext[i] " + rawtext[i]);
-	          if (GBKFreq[row][column] != 0) {
-	            gbfreq += GBKFreq[row][column];
+	          if (GBKFreq[row * GBK_COLS + column] != 0) {
+	            gbfreq += GBKFreq[row * GBK_COLS + column];
 	          }
 	        }
 	        i++;
@@ -320,8 +611,8 @@ class BytesEncodingDetect extends Encoding {
 	          row = rawtext[i] + 256 - 0xA1;
 	          column = rawtext[i + 1] + 256 - 0xA1;
 	          // System.out.println("original row " + row + " column " + column);
-	          if (GBFreq[row][column] != 0) {
-	            gbfreq += GBFreq[row][column];
+	          if (GBFreq[row * GB_COLS + column] != 0) {
+	            gbfreq += GBFreq[row * GB_COLS + column];
 	          } else if (15 <= row && row < 55) {
 	            gbfreq += 200;
 	          }
@@ -338,8 +629,8 @@ class BytesEncodingDetect extends Encoding {
 	            column = rawtext[i + 1] + 256 - 0x40;
 	          }
 	          // System.out.println("extended row " + row + " column " + column + " rawtext[i] " + rawtext[i]);
-	          if (GBKFreq[row][column] != 0) {
-	            gbfreq += GBKFreq[row][column];
+	          if (GBKFreq[row * GBK_COLS + column] != 0) {
+	            gbfreq += GBKFreq[row * GBK_COLS + column];
 	          }
 	        } else if ((byte) 0x81 <= rawtext[i]
 	            && rawtext[i] <= (byte) 0xFE
@@ -351,7 +642,7 @@ class BytesEncodingDetect extends Encoding {
 	          /*
 	           * totalfreq += 500; row = rawtext[i] + 256 - 0x81; if (0x40 <= rawtext[i+1] && rawtext[i+1] <= 0x7E) { column =
 	           * rawtext[i+1] - 0x40; } else { column = rawtext[i+1] + 256 - 0x40; } //System.out.println("extended row " + row + "
-	           * column " + column + " rawtext[i] " + rawtext[i]); if (GBKFreq[row][column] != 0) { gbfreq += GBKFreq[row][column]; }
+	           * column " + column + " rawtext[i] " + rawtext[i]); if (GBKFreq[row * GBK_COLS + column] != 0) { gbfreq += GBKFreq[row * GBK_COLS + column]; }
 	           */
 	        }
 	        i++;
@@ -392,8 +683,8 @@ class BytesEncodingDetect extends Encoding {
 	              row = rawtext[i] - 0x21;
 	              column = rawtext[i + 1] - 0x21;
 	              totalfreq += 500;
-	              if (GBFreq[row][column] != 0) {
-	                hzfreq += GBFreq[row][column];
+	              if (GBFreq[row * GB_COLS + column] != 0) {
+	                hzfreq += GBFreq[row * GB_COLS + column];
 	              } else if (15 <= row && row < 55) {
 	                hzfreq += 200;
 	              }
@@ -402,8 +693,8 @@ class BytesEncodingDetect extends Encoding {
 	              row = rawtext[i] + 256 - 0xA1;
 	              column = rawtext[i + 1] + 256 - 0xA1;
 	              totalfreq += 500;
-	              if (GBFreq[row][column] != 0) {
-	                hzfreq += GBFreq[row][column];
+	              if (GBFreq[row * GB_COLS + column] != 0) {
+	                hzfreq += GBFreq[row * GB_COLS + column];
 	              } else if (15 <= row && row < 55) {
 	                hzfreq += 200;
 	              }
@@ -460,8 +751,8 @@ class BytesEncodingDetect extends Encoding {
 	          } else {
 	            column = rawtext[i + 1] + 256 - 0x61;
 	          }
-	          if (Big5Freq[row][column] != 0) {
-	            bffreq += Big5Freq[row][column];
+	          if (Big5Freq[row * BIG5_COLS + column] != 0) {
+	            bffreq += Big5Freq[row * BIG5_COLS + column];
 	          } else if (3 <= row && row <= 37) {
 	            bffreq += 200;
 	          }
@@ -503,8 +794,8 @@ class BytesEncodingDetect extends Encoding {
 	            column = rawtext[i + 1] - 0x61;
 	          }
 	          // System.out.println("original row " + row + " column " + column);
-	          if (Big5Freq[row][column] != 0) {
-	            bffreq += Big5Freq[row][column];
+	          if (Big5Freq[row * BIG5_COLS + column] != 0) {
+	            bffreq += Big5Freq[row * BIG5_COLS + column];
 	          } else if (3 <= row && row < 37) {
 	            bffreq += 200;
 	          }
@@ -519,8 +810,8 @@ class BytesEncodingDetect extends Encoding {
 	            column = rawtext[i + 1] - 0x40;
 	          }
 	          // System.out.println("extended row " + row + " column " + column + " rawtext[i] " + rawtext[i]);
-	          if (Big5PFreq[row][column] != 0) {
-	            bffreq += Big5PFreq[row][column];
+	          if (Big5PFreq[row * BIG5P_COLS + column] != 0) {
+	            bffreq += Big5PFreq[row * BIG5P_COLS + column];
 	          }
 	        }
 	        i++;
@@ -563,8 +854,8 @@ class BytesEncodingDetect extends Encoding {
 	          totalfreq += 500;
 	          row = rawtext[i] + 256 - 0xA1;
 	          column = rawtext[i + 1] + 256 - 0xA1;
-	          if (EUC_TWFreq[row][column] != 0) {
-	            cnsfreq += EUC_TWFreq[row][column];
+	          if (EUC_TWFreq[row * EUC_TW_COLS + column] != 0) {
+	            cnsfreq += EUC_TWFreq[row * EUC_TW_COLS + column];
 	          } else if (35 <= row && row <= 92) {
 	            cnsfreq += 150;
 	          }
@@ -601,8 +892,8 @@ class BytesEncodingDetect extends Encoding {
 	              row = rawtext[i] - 0x21;
 	              column = rawtext[i + 1] - 0x21;
 	              totalfreq += 500;
-	              if (GBFreq[row][column] != 0) {
-	                isofreq += GBFreq[row][column];
+	              if (GBFreq[row * GB_COLS + column] != 0) {
+	                isofreq += GBFreq[row * GB_COLS + column];
 	              } else if (15 <= row && row < 55) {
 	                isofreq += 200;
 	              }
@@ -622,8 +913,8 @@ class BytesEncodingDetect extends Encoding {
 	              totalfreq += 500;
 	              row = rawtext[i] - 0x21;
 	              column = rawtext[i + 1] - 0x21;
-	              if (EUC_TWFreq[row][column] != 0) {
-	                isofreq += EUC_TWFreq[row][column];
+	              if (EUC_TWFreq[row * EUC_TW_COLS + column] != 0) {
+	                isofreq += EUC_TWFreq[row * EUC_TW_COLS + column];
 	              } else if (35 <= row && row <= 92) {
 	                isofreq += 150;
 	              }
@@ -762,8 +1053,8 @@ class BytesEncodingDetect extends Encoding {
 	          totalfreq += 500;
 	          row = rawtext[i] + 256 - 0xA1;
 	          column = rawtext[i + 1] + 256 - 0xA1;
-	          if (KRFreq[row][column] != 0) {
-	            krfreq += KRFreq[row][column];
+	          if (KRFreq[row * KR_COLS + column] != 0) {
+	            krfreq += KRFreq[row * KR_COLS + column];
 	          } else if (15 <= row && row < 55) {
 	            krfreq += 0;
 	          }
@@ -804,8 +1095,8 @@ class BytesEncodingDetect extends Encoding {
 	              && rawtext[i + 1] <= (byte) 0xFE) {
 	            row = rawtext[i] + 256 - 0xA1;
 	            column = rawtext[i + 1] + 256 - 0xA1;
-	            if (KRFreq[row][column] != 0) {
-	              krfreq += KRFreq[row][column];
+	            if (KRFreq[row * KR_COLS + column] != 0) {
+	              krfreq += KRFreq[row * KR_COLS + column];
 	            }
 	          }
 	        }
@@ -852,8 +1143,8 @@ class BytesEncodingDetect extends Encoding {
 	          totalfreq += 500;
 	          row = rawtext[i] + 256 - 0xA1;
 	          column = rawtext[i + 1] + 256 - 0xA1;
-	          if (JPFreq[row][column] != 0) {
-	            jpfreq += JPFreq[row][column];
+	          if (JPFreq[row * JP_COLS + column] != 0) {
+	            jpfreq += JPFreq[row * JP_COLS + column];
 	          } else if (15 <= row && row < 55) {
 	            jpfreq += 0;
 	          }
@@ -920,8 +1211,8 @@ class BytesEncodingDetect extends Encoding {
 	          row -= 0x20;
 	          column = 0x20;
 	          // System.out.println("original row " + row + " column " + column);
-	          if (row < JPFreq.length && column < JPFreq[row].length && JPFreq[row][column] != 0) {
-	            jpfreq += JPFreq[row][column];
+	          if (row < JP_ROWS && column < JP_COLS && JPFreq[row * JP_COLS + column] != 0) {
+	            jpfreq += JPFreq[row * JP_COLS + column];
 	          }
 	          i++;
 	        } else if ((byte) 0xA1 <= rawtext[i] && rawtext[i] <= (byte) 0xDF) {
@@ -935,7 +1226,8 @@ class BytesEncodingDetect extends Encoding {
 	    return (int) (rangeval + freqval) - 1;
 	  }
 
-	  void initialize_frequencies() {
+	  static void initialize_frequencies(int[][] GBFreq, int[][] GBKFreq, int[][] Big5Freq, int[][] Big5PFreq,
+	      int[][] EUC_TWFreq, int[][] KRFreq, int[][] JPFreq) {
 	    int i, j;
 	    for (i = 0; i < 94; i++) {
 	      for (j = 0; j < 94; j++) {
@@ -4533,8 +4825,8 @@ class BytesEncodingDetect extends Encoding {
 	  // Names of charsets as used in charset parameter of HTML Meta tag
 	  public static String[] htmlname;
 
-	  // Constructor
-	  public Encoding() {
+	  // Assigned once when the class is loaded, rather than on every construction
+	  static {
 	    javaname = new String[TOTALTYPES];
 	    nicename = new String[TOTALTYPES];
 	    htmlname = new String[TOTALTYPES];
@@ -4614,5 +4906,9 @@ class BytesEncodingDetect extends Encoding {
 	    nicename[ASCII] = "ASCII";
 	    nicename[OTHER] = "OTHER";
 	  }
+
+	  // Constructor
+	  public Encoding() {
+	  }
 	 
 	}
\ No newline at end of file